@@ -0,0 +1,192 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.core.Archive;
+import jp.ohtayo.mathopt.core.Particle;
+import jp.ohtayo.mathopt.core.RandomStream;
+import jp.ohtayo.mathopt.core.Rank;
+import jp.ohtayo.mathopt.core.Swarm;
+import jp.ohtayo.mathopt.core.SynchronizedArchive;
+
+/**
+ * 世代の同期を取らない非同期・定常状態型のOMOPSOの計算を行うクラスです。<br>
+ * {@link OMOPSO}は粒子群全体の更新・突然変異・評価・選択を順に行うため、世代ごとに最も遅い評価の終了を待ちます。<br>
+ * 本クラスでは各スレッドが粒子を1つずつ受け取り、更新・突然変異・評価を行って、評価した粒子をスレッドごとのバッファに溜めます。<br>
+ * バッファが粒子数÷スレッド数に達したら、バッファ内で優越される粒子をロックの外で除いてから、まとめてアーカイブに追加します。<br>
+ * アーカイブの書き込みロックと上限を超えた解の削除はバッチごとに1回のため、スレッドが追加のたびにロックを待つことはありません。<br>
+ * 評価時間が粒子によって大きく異なる目的関数でも、スレッドが他の粒子の評価を待つことはありません。<br>
+ * 突然変異は粒子番号で3つに分け、一様突然変異・非一様突然変異・突然変異なしを固定で割り当てます。<br>
+ * 非一様突然変異の評価回数には、それまでの評価数を粒子数で割った値(世代数に相当)を使います。<br>
+ * 評価の終わる順番はスレッドの実行順で変わるため、シードを指定しても結果は同一になりません。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class AsynchronousOMOPSO extends OMOPSO {
+
+	/**
+	 * 非同期OMOPSOのメイン関数です。<br>
+	 * 評価数が粒子数×評価回数に達するまで計算し、評価数が粒子数の倍数になるたびにアーカイブを保存します。<br>
+	 * 保存するアーカイブには、各スレッドのバッファに残っている粒子は含まれません。最後にすべてのバッファを追加します。<br>
+	 * アーカイブは複数スレッドから同時に使えるように{@link SynchronizedArchive}で包みます。<br>
+	 *
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfParticles 粒子の数
+	 * @param numberOfIterations 評価回数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数クラスの名前(文字列)
+	 * @param archive 非劣解アーカイブ
+	 * @param numberOfThreads スレッド数(粒子数より多い分は使わない)
+	 * @param seed 乱数のシード
+	 */
+	public void main(int numberOfVariables, int numberOfParticles, int numberOfIterations,
+					 int numberOfObjectives, final String nameOfObjectiveFunction, Archive archive,
+					 int numberOfThreads, long seed)
+	{
+		final SynchronizedArchive shared = new SynchronizedArchive(archive);
+		final RandomStream random = new RandomStream(seed);
+		final int size = numberOfParticles;
+		final int batch = Math.max(1, numberOfParticles / Math.max(1, numberOfThreads));	//アーカイブにまとめて追加する数
+		final int budget = numberOfParticles * numberOfIterations;
+		final double mutationRate = 1.0/numberOfVariables;
+
+		//初期化
+		Swarm swarm = new Swarm( numberOfParticles );
+		swarm.initialize( numberOfVariables, numberOfObjectives, nameOfObjectiveFunction, random.split(0) );
+		swarm = evaluate(swarm, nameOfObjectiveFunction);
+		shared.add(swarm);
+		save(shared.toSwarm(), 0);
+
+		//粒子の待ち行列(スレッドは空いた粒子から受け取る)
+		final LinkedBlockingQueue<Integer> queue = new LinkedBlockingQueue<Integer>();
+		final RandomStream[] streams = new RandomStream[size];
+		for(int i=0; i<size; i++)
+		{
+			queue.add(i);
+			streams[i] = random.split(i+1);	//粒子ごとの乱数列(同時に1スレッドしか使わない)
+		}
+
+		final Particle[] particles = swarm.particle;
+		final AtomicInteger issued = new AtomicInteger();		//評価を始めた数
+		final AtomicInteger completed = new AtomicInteger();	//評価を終えた数
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+		Thread[] threads = new Thread[Math.max(1, Math.min(numberOfThreads, size))];
+		for(int t=0; t<threads.length; t++)
+		{
+			threads[t] = new Thread(new Runnable() {
+				public void run()
+				{
+					ArrayList<Particle> buffer = new ArrayList<Particle>(batch);
+					try {
+						while(error.get() == null && issued.getAndIncrement() < budget)
+						{
+							int index = queue.take();
+							int iterate = completed.get() / size;
+							step(particles[index], index, iterate, mutationRate, streams[index], shared, nameOfObjectiveFunction);
+							buffer.add(particles[index].copy());	//粒子を待ち行列に戻す前にコピーする
+							queue.add(index);
+							if(buffer.size() >= batch)	flush(buffer, shared);
+
+							//評価数が粒子数の倍数になったらアーカイブを保存
+							int count = completed.incrementAndGet();
+							if(count % size == 0)
+							{
+								Logging.logger.info(count/size + "世代分の評価を終えました。");
+								save(shared.toSwarm(), count/size);
+							}
+						}
+						flush(buffer, shared);
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					}
+				}
+			}, "asynchronous-omopso-" + (t+1));
+			threads[t].setDaemon(true);
+			threads[t].start();
+		}
+
+		//全スレッドの終了を待つ
+		try {
+			for(int t=0; t<threads.length; t++)	threads[t].join();
+		} catch (InterruptedException e) {
+			for(int t=0; t<threads.length; t++)	threads[t].interrupt();
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("asynchronous omopso was interrupted", e);
+		}
+
+		if(error.get() != null)
+		{
+			Logging.logger.severe("計算中に例外が発生しました。" + error.get().toString());
+			throw new IllegalStateException("asynchronous omopso failed", error.get());
+		}
+	}
+
+	/**
+	 * バッファ内で他の粒子に優越される粒子を除き、残りをまとめてアーカイブに追加します。<br>
+	 * 優越判定はアーカイブのロックの外で行い、書き込みロックは追加の1回だけ取得します。<br>
+	 * @param buffer 評価済みの粒子のバッファ(追加後に空にする)
+	 * @param archive アーカイブ
+	 */
+	protected void flush(ArrayList<Particle> buffer, Archive archive)
+	{
+		if(buffer.isEmpty())	return;
+		ArrayList<Particle> kept = new ArrayList<Particle>(buffer.size());
+		for(Particle particle : buffer)
+		{
+			boolean dominated = false;
+			for(int k=kept.size()-1; k>=0; k--)
+			{
+				if(Rank.dominated(kept.get(k).fitness, particle.fitness))
+				{
+					dominated = true;	//同じ適応度の場合も先の粒子を残す
+					break;
+				}
+				if(Rank.dominated(particle.fitness, kept.get(k).fitness))	kept.remove(k);
+			}
+			if(!dominated)	kept.add(particle);
+		}
+		buffer.clear();
+
+		Swarm swarm = new Swarm(kept.size());
+		for(int i=0; i<kept.size(); i++)	swarm.particle[i] = kept.get(i);
+		archive.add(swarm);
+	}
+
+	/**
+	 * 1つの粒子の更新・突然変異・評価を行います。<br>
+	 * 評価した粒子は呼び出し元でバッファに溜めてからアーカイブに追加します。<br>
+	 * @param particle 粒子
+	 * @param index 粒子の番号
+	 * @param iterate 世代数に相当する評価数
+	 * @param mutationRate 突然変異確率
+	 * @param random 粒子の乱数列
+	 * @param archive リーダーを取り出すアーカイブ
+	 * @param nameOfObjectiveFunction 目的関数の名前
+	 */
+	protected void step(Particle particle, int index, int iterate, double mutationRate, RandomStream random,
+			Archive archive, String nameOfObjectiveFunction)
+	{
+		//位置・速度の更新
+		double w = 0.1+0.4*random.nextDouble();
+		double c1 = 1.5+0.5*random.nextDouble();
+		double c2 = 1.5+0.5*random.nextDouble();
+		double r1 = random.nextDouble();
+		double r2 = random.nextDouble();
+		Particle leader = archive.sample(random.nextDouble());
+		move(particle, leader, w, c1, c2, r1, r2);
+
+		//突然変異
+		if(index % 3 == 0)		mutateUniform(particle, mutationRate, random);
+		else if(index % 3 == 1)	mutateNonUniform(particle, mutationRate, iterate, random);
+
+		//評価
+		particle.evaluate(nameOfObjectiveFunction);
+		particle.updateBest(particle.fitness.length);
+	}
+}
@@ -1,13 +1,19 @@
 package jp.ohtayo.mathopt.algorithm;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.core.Vertex;
 import jp.ohtayo.mathopt.core.Simplex;
 
 /**
- * 滑降シンプレックス法を計算するクラスです。
+ * 滑降シンプレックス法を計算するクラスです。<br>
+ * 評価に時間のかかる目的関数向けに、反射・拡大・2種類の縮小の候補点を投機的に並列評価するモードも提供します。<br>
  *
  * @author ohtayo (ohta.yoshihiro@outlook.jp)
  */
@@ -148,4 +154,163 @@ public class DownhillSimplex {
 		*/
 		return bestFitness.get(numberOfIterations-1);
 	}
+
+	/**
+	 * 候補点を投機的に並列評価する滑降シンプレックス法のメイン関数です。<br>
+	 * 反射点xrを評価してから拡大点・縮小点を求める代わりに、xr、拡大点xe、xrの縮小点、最悪点の縮小点を同時に評価し、<br>
+	 * 評価後に逐次の場合と同じ条件で置き換える点を選びます。収縮操作の再評価も並列に行います。<br>
+	 * 最悪点の数を2以上にすると、適応度の悪い順にその数の頂点を残りの頂点の重心に対して同時に更新します。<br>
+	 * すべての最悪点が縮小に失敗した場合のみ収縮操作を行います。<br>
+	 * 評価数は1世代あたり最悪点の数×4(収縮時は+探索点の数)になりますが、待ち時間は1～2評価分になります。<br>
+	 * @param numberOfPoints 探索点の数
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param alpha 反射率α
+	 * @param beta 縮小率β
+	 * @param ganma 拡大率γ
+	 * @param numberOfThreads 評価のスレッド数
+	 * @param numberOfWorstVertices 1世代で更新する最悪点の数(1以上、探索点の数未満)
+	 * @param seed 乱数のシード
+	 * @return 最終世代の最優秀適応度
+	 */
+	public static double main(
+			int numberOfPoints,
+			int numberOfVariables,
+			int numberOfIterations,
+			final String nameOfObjectiveFunction, 
+			double alpha, 
+			double beta,
+			double ganma,
+			int numberOfThreads,
+			int numberOfWorstVertices,
+			long seed)
+	{
+		if(numberOfWorstVertices < 1 || numberOfWorstVertices >= numberOfPoints)
+		{
+			Logging.logger.severe("最悪点の数(numberOfWorstVertices)が不正です。");
+			throw new IllegalArgumentException("illegal number of worst vertices: " + numberOfWorstVertices);
+		}
+		int numberOfObjectives = 1;
+		int k = numberOfWorstVertices;
+		RandomStream random = new RandomStream(seed);
+		EvaluationExecutor executor = new EvaluationExecutor(numberOfThreads);
+		
+		try {
+			//1. 初期化
+			Simplex simplex = new Simplex(numberOfPoints);
+			simplex.initialize(numberOfVariables, numberOfPoints, numberOfObjectives, nameOfObjectiveFunction, random.split(0), executor);
+			
+			double bestFitness = 0;
+			Vertex[][] candidate = new Vertex[k][];
+			Runnable[] tasks = new Runnable[4*k];
+			for (int iterate = 0; iterate<numberOfIterations; iterate++){
+				Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+				
+				//2. 適応度の良い順に並べ、xl, 残す頂点の最悪点xs, 最悪点k個と、最悪点を除いた重心xgを求める
+				Integer[] order = sort(simplex);
+				Vertex xl = (Vertex) simplex.individual[order[0]];
+				Vertex xs = (Vertex) simplex.individual[order[numberOfPoints-k-1]];
+				bestFitness = xl.getFitness()[0];
+				Logging.logger.info(xl.toString());
+				
+				int[] worst = new int[k];
+				for(int j=0; j<k; j++)	worst[j] = order[numberOfPoints-1-j];
+				simplex.calculateCentroid(worst);
+				
+				//3. 最悪点ごとに反射点xr, 拡大点xe, xrの縮小点, xhの縮小点を求め、まとめて並列評価する
+				for(int j=0; j<k; j++)
+				{
+					Vertex xh = (Vertex) simplex.individual[worst[j]];
+					Vertex xr = xh.reflection(simplex.xg, alpha);
+					candidate[j] = new Vertex[]{ xr, xr.expansion(simplex.xg, ganma),
+							xr.contraction(simplex.xg, beta), xh.contraction(simplex.xg, beta) };
+					for(int c=0; c<4; c++)
+					{
+						final Vertex target = candidate[j][c];
+						tasks[4*j+c] = new Runnable() {
+							public void run()	{ target.evaluate(nameOfObjectiveFunction); }
+						};
+					}
+				}
+				executor.execute(tasks);
+				
+				//4. 逐次の場合と同じ条件で置き換える点を選ぶ
+				boolean reduction = true;
+				for(int j=0; j<k; j++)
+				{
+					if( replace(simplex, worst[j], candidate[j], xl, xs) )	reduction = false;
+				}
+				
+				//5. すべての最悪点で縮小に失敗したら収縮操作で位置を更新し評価する
+				if(reduction)	simplex.reduction(nameOfObjectiveFunction, executor);
+			}
+			return bestFitness;
+		} finally {
+			executor.close();
+		}
+	}
+	
+	/**
+	 * 評価済みの候補点から最悪点を置き換える点を選び、置き換えます。<br>
+	 * 条件は逐次のメイン関数と同じです。<br>
+	 * @param simplex シンプレックス
+	 * @param indexh 最悪点のインデックス
+	 * @param candidate 評価済みの候補点(xr, xe, xrの縮小点, xhの縮小点)
+	 * @param xl 最良点
+	 * @param xs 残す頂点の最悪点
+	 * @return 収縮操作が不要ならtrue
+	 */
+	private static boolean replace(Simplex simplex, int indexh, Vertex[] candidate, Vertex xl, Vertex xs)
+	{
+		double fh = simplex.individual[indexh].getFitness()[0];
+		double fr = candidate[0].getFitness()[0];
+		
+		//f(xr)< f(xl)ならxeとxrのよい方で置き換える
+		if( fr < xl.getFitness()[0] ){
+			simplex.individual[indexh] = (candidate[1].getFitness()[0] < fr) ? candidate[1] : candidate[0];
+			return true;
+		}
+		
+		//f(xs)<f(xr)<f(xh)ならxhをxrに置き換え、xrの縮小点がよければさらに置き換える
+		if( (xs.getFitness()[0]<fr) || (fr<fh) ){
+			simplex.individual[indexh] = candidate[0];
+			if(candidate[2].getFitness()[0] < fr){
+				simplex.individual[indexh] = candidate[2];
+				return true;
+			}
+			return false;
+		}
+		
+		//f(xh)<=f(xr)ならxhの縮小点がよければ置き換える
+		if( fh<=fr ){
+			if(candidate[3].getFitness()[0] < fh){
+				simplex.individual[indexh] = candidate[3];
+				return true;
+			}
+			return false;
+		}
+		
+		//上記条件以外の時xhをxrで置き換える
+		simplex.individual[indexh] = candidate[0];
+		return true;
+	}
+	
+	/**
+	 * 頂点のインデックスを1番目の適応度の良い順に並べます。<br>
+	 * @param simplex シンプレックス
+	 * @return 適応度の良い順のインデックス
+	 */
+	private static Integer[] sort(final Simplex simplex)
+	{
+		Integer[] order = new Integer[simplex.individual.length];
+		for(int i=0; i<order.length; i++)	order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b)
+			{
+				return Double.compare(simplex.individual[a].getFitness()[0], simplex.individual[b].getFitness()[0]);
+			}
+		});
+		return order;
+	}
 }
@@ -0,0 +1,79 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.util.List;
+
+import jp.ohtayo.mathopt.core.RandomStream;
+
+/**
+ * 島モデル({@link IslandModel})の1つの島の抽象クラスです。<br>
+ * 島は1つのスレッドで独立に世代を進め、移住のときだけ他の島と解をやり取りします。<br>
+ * 島のメソッドはすべてその島のスレッドから呼ばれるため、島の内部状態を同期する必要はありません。<br>
+ *
+ * @param <T> 移住する解の型(粒子・個体)
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public abstract class Island<T> {
+
+	/** 移住方針	*/	protected int policy = IslandModel.POLICY_BEST_WORST;
+	/** 島の乱数列	*/	protected RandomStream random = new RandomStream();
+
+	/**
+	 * 移住方針を設定します。<br>
+	 * @param policy POLICY_BEST_WORST(最良解を送り最悪解と置き換える) / POLICY_RANDOM_RANDOM(ランダムな解を送りランダムな解と置き換える)
+	 */
+	public void setPolicy(int policy)
+	{
+		this.policy = policy;
+	}
+
+	/**
+	 * 島の乱数列を設定します。<br>
+	 * @param random 乱数列
+	 */
+	public void setRandom(RandomStream random)
+	{
+		this.random = random;
+	}
+
+	/**
+	 * 初期解を生成して評価します。<br>
+	 */
+	abstract public void initialize();
+
+	/**
+	 * 1世代の計算を行います。<br>
+	 * 受け取った移住解は、新しく評価した解の一部と置き換えてから次世代の選択に加えます。<br>
+	 * @param iterate これまでの世代数
+	 * @param immigrants 他の島から受け取った移住解(なければ空)
+	 */
+	abstract public void iterate(int iterate, List<T> immigrants);
+
+	/**
+	 * 他の島に送る移住解を選びます。<br>
+	 * 移住解は島の解のコピーを返します。<br>
+	 * @param number 移住解の数
+	 * @return 移住解
+	 */
+	abstract public List<T> emigrate(int number);
+
+	/**
+	 * 計算結果の解を返します。<br>
+	 * 島の計算の終了後に呼び出してください。<br>
+	 * @return 解(グローバルベスト・親個体群)
+	 */
+	abstract public List<T> getSolutions();
+
+	/**
+	 * 0～length-1からランダムにnumber個の番号を選びます。<br>
+	 * @param length 番号の数
+	 * @param number 選ぶ数
+	 * @return 選んだ番号
+	 */
+	protected int[] choose(int length, int number)
+	{
+		int[] permutation = random.permutation(length);
+		int[] index = new int[Math.min(number, length)];
+		System.arraycopy(permutation, 0, index, 0, index.length);
+		return index;
+	}
+}
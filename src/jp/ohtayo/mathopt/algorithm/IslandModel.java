@@ -0,0 +1,216 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.core.RandomStream;
+
+/**
+ * 島モデルで複数の最適化を並列に計算するクラスです。<br>
+ * 島({@link Island})ごとに1つのスレッドを生成し、各島は独立に世代を進めます。<br>
+ * 移住間隔の世代ごとに、移住トポロジで決まる送り先の島へ移住解を送ります。<br>
+ * 移住解は送り先の島のロックフリーなキューに入れるだけで、島どうしで世代を揃える同期は行いません。<br>
+ * 送り先の島は次の世代の計算を始めるときにキューにある移住解をすべて受け取るため、速い島が遅い島を待つことはありません。<br>
+ *
+ * @param <T> 移住する解の型(粒子・個体)
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class IslandModel<T> {
+
+	/** リング状に隣の島へ移住する		*/	public static final int TOPOLOGY_RING = 0;
+	/** 自分以外のすべての島へ移住する	*/	public static final int TOPOLOGY_FULL = 1;
+	/** 最良解を送り最悪解と置き換える	*/	public static final int POLICY_BEST_WORST = 0;
+	/** ランダムな解を送りランダムな解と置き換える	*/	public static final int POLICY_RANDOM_RANDOM = 1;
+
+	/** 移住トポロジ	*/	private final int topology;
+	/** 移住間隔(世代数)	*/	private final int interval;
+	/** 1回の移住で送る解の数	*/	private final int numberOfMigrants;
+	/** 移住方針	*/	private final int policy;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param topology 移住トポロジ(TOPOLOGY_RING / TOPOLOGY_FULL)
+	 * @param interval 移住間隔(世代数)
+	 * @param numberOfMigrants 1回の移住で送る解の数
+	 * @param policy 移住方針(POLICY_BEST_WORST / POLICY_RANDOM_RANDOM)
+	 */
+	public IslandModel(int topology, int interval, int numberOfMigrants, int policy)
+	{
+		if(topology != TOPOLOGY_RING && topology != TOPOLOGY_FULL)
+		{
+			Logging.logger.severe("移住トポロジが異常です。");
+			throw new IllegalArgumentException("illegal topology: " + topology);
+		}
+		if(interval < 1)
+		{
+			Logging.logger.severe("移住間隔が短すぎます。");
+			throw new IllegalArgumentException("illegal migration interval: " + interval);
+		}
+		if(numberOfMigrants < 0)
+		{
+			Logging.logger.severe("移住解の数が少なすぎます。");
+			throw new IllegalArgumentException("illegal number of migrants: " + numberOfMigrants);
+		}
+		if(policy != POLICY_BEST_WORST && policy != POLICY_RANDOM_RANDOM)
+		{
+			Logging.logger.severe("移住方針が異常です。");
+			throw new IllegalArgumentException("illegal policy: " + policy);
+		}
+		this.topology = topology;
+		this.interval = interval;
+		this.numberOfMigrants = numberOfMigrants;
+		this.policy = policy;
+	}
+
+	/**
+	 * 島モデルの計算を行います。<br>
+	 * 島ごとのスレッドで初期化とnumberOfIterations世代の計算を行い、すべての島の終了を待ちます。<br>
+	 * 島の乱数列はシードから島ごとに分割します。<br>
+	 * いずれかの島で例外が発生した場合、すべての島の終了後に最初の例外を投げます。<br>
+	 * @param islands 島
+	 * @param numberOfIterations 世代数
+	 * @param seed 乱数のシード
+	 */
+	public void run(final List<? extends Island<T>> islands, final int numberOfIterations, long seed)
+	{
+		final int size = islands.size();
+		RandomStream random = new RandomStream(seed);
+
+		//島ごとの移住解の受け取りキュー
+		final List<ConcurrentLinkedQueue<T>> mailbox = new ArrayList<ConcurrentLinkedQueue<T>>(size);
+		for(int i=0; i<size; i++)
+		{
+			mailbox.add(new ConcurrentLinkedQueue<T>());
+			islands.get(i).setPolicy(policy);
+			islands.get(i).setRandom(random.split(i));
+		}
+
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[size];
+		for(int i=0; i<size; i++)
+		{
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run()
+				{
+					try{
+						evolve(islands, mailbox, index, numberOfIterations);
+					}catch(Throwable e){
+						error.compareAndSet(null, e);
+					}
+				}
+			}, "island-thread-" + (i+1));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		//全島の終了を待つ
+		try {
+			for(int i=0; i<size; i++)	threads[i].join();
+		} catch (InterruptedException e) {
+			for(int i=0; i<size; i++)	threads[i].interrupt();
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("island model was interrupted", e);
+		}
+
+		if(error.get() != null)
+		{
+			Logging.logger.severe("島の計算中に例外が発生しました。" + error.get().toString());
+			throw new IllegalStateException("island failed", error.get());
+		}
+	}
+
+	/**
+	 * 1つの島の全世代を計算します。(島のスレッドで実行)<br>
+	 * @param islands 島
+	 * @param mailbox 島ごとの移住解の受け取りキュー
+	 * @param index 島の番号
+	 * @param numberOfIterations 世代数
+	 */
+	private void evolve(List<? extends Island<T>> islands, List<ConcurrentLinkedQueue<T>> mailbox, int index, int numberOfIterations)
+	{
+		Island<T> island = islands.get(index);
+		ConcurrentLinkedQueue<T> inbox = mailbox.get(index);
+		int size = islands.size();
+
+		island.initialize();
+		for(int iterate=0; iterate<numberOfIterations; iterate++)
+		{
+			if(Thread.currentThread().isInterrupted())	throw new IllegalStateException("island was interrupted");
+
+			//届いている移住解をすべて受け取る
+			List<T> immigrants = new ArrayList<T>();
+			T immigrant;
+			while((immigrant = inbox.poll()) != null)	immigrants.add(immigrant);
+
+			island.iterate(iterate, immigrants);
+
+			//移住間隔ごとに移住解を送る(最終世代では送らない)
+			if(!migrates(iterate, numberOfIterations))	continue;
+			int[] destination = destinations(index, size);
+			for(int i=0; i<destination.length; i++)
+			{
+				mailbox.get(destination[i]).addAll(island.emigrate(numberOfMigrants));	//送り先ごとに別のコピーを送る
+			}
+		}
+		Logging.logger.info((index+1) + "番目の島の計算を終了しました。");
+	}
+
+	/**
+	 * その世代の計算の後に移住解を送るかを返します。<br>
+	 * 移住間隔ごとに送り、最終世代では送りません。<br>
+	 * @param iterate これまでの世代数
+	 * @param numberOfIterations 世代数
+	 * @return 送る場合true
+	 */
+	public boolean migrates(int iterate, int numberOfIterations)
+	{
+		return numberOfMigrants > 0 && (iterate+1) % interval == 0 && iterate+1 < numberOfIterations;
+	}
+
+	/**
+	 * 移住トポロジに従って、島から移住解を送る先の島の番号を返します。<br>
+	 * @param index 送り元の島の番号
+	 * @param size 島の数
+	 * @return 送り先の島の番号(島が1つなら空)
+	 */
+	public int[] destinations(int index, int size)
+	{
+		if(size < 2)	return new int[0];
+		if(topology == TOPOLOGY_RING)	return new int[]{ (index+1) % size };
+		int[] destination = new int[size-1];
+		for(int i=0, count=0; i<size; i++)
+		{
+			if(i != index)	destination[count++] = i;
+		}
+		return destination;
+	}
+
+	/**
+	 * 1回の移住で送る解の数を返します。<br>
+	 * @return 移住解の数
+	 */
+	public int getNumberOfMigrants()	{ return numberOfMigrants; }
+
+	/**
+	 * 移住方針を返します。<br>
+	 * @return 移住方針
+	 */
+	public int getPolicy()	{ return policy; }
+
+	/**
+	 * 移住間隔を返します。<br>
+	 * @return 移住間隔(世代数)
+	 */
+	public int getInterval()	{ return interval; }
+
+	/**
+	 * 移住トポロジを返します。<br>
+	 * @return 移住トポロジ
+	 */
+	public int getTopology()	{ return topology; }
+}
@@ -3,10 +3,10 @@ package jp.ohtayo.mathopt.algorithm;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
-import jp.ohtayo.commons.random.Random;
-import jp.ohtayo.commons.util.Cast;
 import jp.ohtayo.mathopt.core.Population;
 import jp.ohtayo.mathopt.core.BinaryIndividual;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
 
 /**
  * 世代交代モデルにJGG，交叉にUNDXを用いた実数地遺伝的アルゴリズムの計算クラスです．
@@ -29,6 +29,29 @@ public class JGGUNDX {
 			int numberOfIterations,
 			String nameOfObjectiveFunction, 
 			double mutationRate)
+	{
+		return main(numberOfVariables, numberOfIterations, nameOfObjectiveFunction, mutationRate, null, new RandomStream().getSeed());
+	}
+
+	/**
+	 * RCGAのメイン関数です。<br>
+	 * 子の生成と評価を指定したスレッドプールで並行に行います。<br>
+	 * 乱数列は世代ごと・子ごとにシードから分割するため、同じシードであればスレッド数によらず同じ結果になります。<br>
+	 * @param numberOfVariables 変数数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param mutationRate 突然変異確率
+	 * @param executor スレッドプール(nullなら逐次計算)
+	 * @param seed 乱数のシード
+	 * @return 最終世代の解集団の一番よい適応度
+	 */
+	public static double main(
+			int numberOfVariables, 
+			int numberOfIterations,
+			String nameOfObjectiveFunction, 
+			double mutationRate,
+			EvaluationExecutor executor,
+			long seed)
 	{
 		int numberOfPopulations = numberOfVariables * 50;	//個体数は15n～50nが推奨
 		int numberOfReplace = numberOfVariables;			//入れ替え個体数は変数と同値
@@ -36,9 +59,10 @@ public class JGGUNDX {
 		double crossoverRate = numberOfChildren / numberOfReplace;	//交叉確率は、取り出した個体から生成する親の割合。
 		
 		//初期化
+		RandomStream random = new RandomStream(seed);
 		Population population = new Population(numberOfPopulations);
 		int numberOfObjectives = 1;
-		population.initialize(numberOfVariables, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction);
+		population.initialize(numberOfVariables, 0, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction, random.split(0), executor);
 		Population parents = null;
 		Population children = null;
 		
@@ -48,17 +72,19 @@ public class JGGUNDX {
 		
 		for (int iterate = 0; iterate<numberOfIterations; iterate++){
 			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+			//世代ごとの乱数列
+			RandomStream generation = random.split(iterate+1);
 			//populationからparentsを抽出
-			Vector vector = new Vector(numberOfReplace, "random");	//ランダム配列
-			int[] index = Cast.doubleToInt( vector.multiply(numberOfPopulations).get() );
+			int[] index = new int[numberOfReplace];
+			for(int i=0; i<index.length; i++)	index[i] = (int)(generation.nextDouble() * numberOfPopulations);
 			parents = population.picup(index);
 			
 			//抽出したparentsからchildrenを生成
-			children = RCGA.undx(parents, crossoverRate);
+			children = RCGA.undx(parents, crossoverRate, generation.split(0), executor);
 			//生成したchildrenに突然変異発生
-			children = RCGA.mutate(children, mutationRate);
+			children = RCGA.mutate(children, mutationRate, generation.split(1));
 			//childrenの評価
-			children.evaluate(nameOfObjectiveFunction);
+			children.evaluate(nameOfObjectiveFunction, executor);
 			//childrenからエリート保存をして、入れ替え個体を作る
 			parents = SimpleGeneticAlgorithm.selectElite(children, parents.individual.length);
 			
@@ -104,7 +130,20 @@ public class JGGUNDX {
 	 */
 	public static  Population select(Population parent, Population children, int eliteNumber)
 	{
-		Random random = new Random();
+		return select(parent, children, eliteNumber, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列で親と子の個体群から次世代の親個体群を選択します。<br>
+	 * 選択方法にはエリート選択とルーレット選択を用います。<br>
+	 * @param parent 親個体群
+	 * @param children 子個体群
+	 * @param eliteNumber エリート数
+	 * @param random 乱数列
+	 * @return 次世代の親個体群
+	 */
+	public static  Population select(Population parent, Population children, int eliteNumber, RandomStream random)
+	{
 		boolean binary = (parent.individual[0].getClass().getName() == "BinaryIndividual");
 		int numberOfBits=0;
 		if(binary)	numberOfBits = ((BinaryIndividual)parent.individual[0]).getNumberOfBits();
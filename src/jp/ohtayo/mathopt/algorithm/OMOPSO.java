@@ -1,14 +1,26 @@
 package jp.ohtayo.mathopt.algorithm;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.math.Numeric;
-import jp.ohtayo.commons.random.Random;
 import jp.ohtayo.commons.util.Cast;
 import jp.ohtayo.commons.io.Csv;
+import jp.ohtayo.mathopt.core.Archive;
+import jp.ohtayo.mathopt.core.CrowdingDistance;
+import jp.ohtayo.mathopt.core.DominanceMatrix;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.Particle;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.core.Swarm;
 import jp.ohtayo.mathopt.core.Rank;
+import jp.ohtayo.mathopt.core.Selection;
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
 
 /**
@@ -21,6 +33,73 @@ import jp.ohtayo.mathopt.function.ObjectiveFunction;
  */
 public class OMOPSO {
 
+	/** 境界ランクの密度評価に近傍2点のマンハッタン距離を使う	*/	public static final int DENSITY_NEAREST = 0;
+	/** 境界ランクの密度評価にNSGA-IIの混雑距離を使う		*/	public static final int DENSITY_CROWDING = 1;
+
+	/** 境界ランクの密度評価方法		*/	protected int density = DENSITY_NEAREST;
+	/** 混雑距離の計算(作業用配列を使い回す)	*/	protected final CrowdingDistance crowdingDistance = new CrowdingDistance();
+	/** 世代をまたいで保持する優越関係(nullなら毎世代計算し直す)	*/	protected DominanceMatrix dominanceMatrix = null;
+	/** 評価用のスレッドプール(nullなら逐次評価)	*/	protected EvaluationExecutor evaluationExecutor = null;
+	/** 計算全体の乱数列(世代ごとに分割して使う)	*/	protected RandomStream random = new RandomStream();
+	/** 評価中に前の世代の選択・保存を行うか	*/	protected boolean pipelined = false;
+
+	/**
+	 * 境界ランクから粒子を選ぶときの密度評価方法を設定します。<br>
+	 * @param density DENSITY_NEAREST(近傍距離) / DENSITY_CROWDING(混雑距離)
+	 */
+	public void setDensity(int density)
+	{
+		if(density != DENSITY_NEAREST && density != DENSITY_CROWDING)
+		{
+			Logging.logger.severe("密度評価方法が異常です。");
+			throw new IllegalArgumentException();
+		}
+		this.density = density;
+	}
+
+	/**
+	 * 世代をまたいで優越関係を保持し、新しく評価した粒子の優越関係のみを計算するか設定します。<br>
+	 * @param incremental 保持する場合true / 毎世代すべて計算し直す場合false
+	 */
+	public void setIncrementalRanking(boolean incremental)
+	{
+		dominanceMatrix = incremental ? new DominanceMatrix(0.0, 0.0) : null;
+	}
+
+	/**
+	 * 粒子群の評価に使うスレッドプールを設定します。<br>
+	 * スレッドプールは呼び出し側で計算の終了後に閉じてください。<br>
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void setEvaluationExecutor(EvaluationExecutor executor)
+	{
+		this.evaluationExecutor = executor;
+	}
+
+	/**
+	 * 乱数のシードを設定します。<br>
+	 * 乱数列は初期化と世代ごとにシードから分割するため、同じシードであれば評価のスレッド数によらず同じ結果になります。<br>
+	 * 設定しなければ時刻から決めたシードを使います。<br>
+	 * @param seed 乱数のシード
+	 */
+	public void setSeed(long seed)
+	{
+		this.random = new RandomStream(seed);
+	}
+
+	/**
+	 * 粒子群の評価中に、前の世代の選択(アーカイブへの追加)とCSVファイルの保存を行うか設定します。<br>
+	 * 評価を別スレッドで行い、その間に前の世代の粒子群を選択・保存するため、評価以外の時間を評価の裏に隠せます。<br>
+	 * その代わり、位置の更新に使うグローバルベストは1世代前のもの(直前に評価した粒子群を含まないもの)になります。<br>
+	 * 保存する内容は世代ごとに同期する場合と同じく、その世代の計算を始める時点までの選択結果です。<br>
+	 * 評価と重ねるのは選択と保存のみです。位置の更新・突然変異は評価で更新したパーソナルベストを使うため、評価とは重ねずに評価の前に行います。<br>
+	 * @param pipelined 評価と選択・保存を重ねる場合true / 順に行う場合false
+	 */
+	public void setPipelined(boolean pipelined)
+	{
+		this.pipelined = pipelined;
+	}
+
 	/**
 	 * MOPSOのメイン関数です。<br>
 	 * MOPSOの計算は本関数を呼び出して行います。<br>
@@ -37,9 +116,15 @@ public class OMOPSO {
 	public void main(int numberOfVariables, int numberOfParticles, int numberOfIterations,
 					 int numberOfObjectives, String nameOfObjectiveFunction, double epsilon, double alpha)
 	{
+		if(pipelined)
+		{
+			pipeline(numberOfVariables, numberOfParticles, numberOfIterations, numberOfObjectives, nameOfObjectiveFunction, epsilon, alpha);
+			return;
+		}
+
 		//初期化
 		Swarm swarm = new Swarm( numberOfParticles );
-		swarm.initialize( numberOfVariables, numberOfObjectives, nameOfObjectiveFunction );
+		swarm.initialize( numberOfVariables, numberOfObjectives, nameOfObjectiveFunction, random.split(0) );
 		swarm = evaluate(swarm, nameOfObjectiveFunction);
 
 		//グローバルベストにswarmをコピー
@@ -48,10 +133,11 @@ public class OMOPSO {
 		for (int iterate = 0; iterate<numberOfIterations; iterate++){
 			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
 			save(globalBest, iterate);
+			RandomStream generation = random.split(iterate+1);	//世代の乱数列
 
-			swarm = update(swarm, globalBest);
+			swarm = update(swarm, globalBest, generation);
 
-			swarm = mutate(swarm,iterate);
+			swarm = mutate(swarm, iterate, generation);
 
 			swarm = evaluate(swarm, nameOfObjectiveFunction);
 
@@ -61,6 +147,193 @@ public class OMOPSO {
 		save(globalBest, numberOfIterations);
 	}
 
+	/**
+	 * 非劣解アーカイブを用いたMOPSOのメイン関数です。<br>
+	 * グローバルベストをアーカイブで管理し、新しく評価した粒子のみをアーカイブに追加します。<br>
+	 * 毎世代swarmとglobalBestを合わせてランク付けし直す{@link #main(int, int, int, int, String, double, double)}と異なり、<br>
+	 * 粒子の挿入はアーカイブの木構造で関係する部分木のみと比較し、上限を超えた解の削除は1世代に1回の混雑距離計算と、削除した解の近傍の混雑距離の計算し直しで行います。<br>
+	 * 優劣判定は通常のdominationのみです。<br>
+	 *
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfParticles 粒子の数
+	 * @param numberOfIterations 評価回数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数クラスの名前(文字列)
+	 * @param archive 非劣解アーカイブ
+	 */
+	public void main(int numberOfVariables, int numberOfParticles, int numberOfIterations,
+					 int numberOfObjectives, String nameOfObjectiveFunction, Archive archive)
+	{
+		if(pipelined)
+		{
+			pipeline(numberOfVariables, numberOfParticles, numberOfIterations, numberOfObjectives, nameOfObjectiveFunction, archive);
+			return;
+		}
+
+		//初期化
+		Swarm swarm = new Swarm( numberOfParticles );
+		swarm.initialize( numberOfVariables, numberOfObjectives, nameOfObjectiveFunction, random.split(0) );
+		swarm = evaluate(swarm, nameOfObjectiveFunction);
+
+		//アーカイブに初期粒子群を追加
+		archive.add(swarm);
+
+		for (int iterate = 0; iterate<numberOfIterations; iterate++){
+			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+			save(archive.toSwarm(), iterate);
+			RandomStream generation = random.split(iterate+1);	//世代の乱数列
+
+			swarm = update(swarm, archive, generation);
+
+			swarm = mutate(swarm, iterate, generation);
+
+			swarm = evaluate(swarm, nameOfObjectiveFunction);
+
+			archive.add(swarm);
+		}
+
+		save(archive.toSwarm(), numberOfIterations);
+	}
+
+	/**
+	 * 評価と選択・保存を重ねるMOPSOの計算です。<br>
+	 * 世代gの粒子群を別スレッドで評価している間に、世代g-1の粒子群からグローバルベストを選択して保存します。<br>
+	 * 世代gの位置の更新には世代g-2までのグローバルベストを使います。(遅れは1世代まで)<br>
+	 * 次の世代の位置の更新・突然変異は評価の終了を待ってから行います。({@link #setPipelined(boolean)}を参照)<br>
+	 *
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfParticles 粒子の数
+	 * @param numberOfIterations 評価回数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数クラスの名前(文字列)
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 */
+	protected void pipeline(int numberOfVariables, int numberOfParticles, int numberOfIterations,
+					 int numberOfObjectives, String nameOfObjectiveFunction, double epsilon, double alpha)
+	{
+		ExecutorService evaluator = Executors.newSingleThreadExecutor();
+		try{
+			//初期化
+			Swarm swarm = new Swarm( numberOfParticles );
+			swarm.initialize( numberOfVariables, numberOfObjectives, nameOfObjectiveFunction, random.split(0) );
+			swarm = evaluate(swarm, nameOfObjectiveFunction);
+
+			//グローバルベストにswarmをコピー
+			Swarm globalBest = swarm.copy();
+			Swarm evaluated = null;	//評価を終えて、まだ選択していない粒子群
+
+			for (int iterate = 0; iterate<numberOfIterations; iterate++){
+				Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+				RandomStream generation = random.split(iterate+1);	//世代の乱数列
+
+				swarm = update(swarm, globalBest, generation);
+
+				swarm = mutate(swarm, iterate, generation);
+
+				Future<Swarm> evaluation = evaluate(evaluator, swarm, nameOfObjectiveFunction);
+
+				//評価中に前の世代の選択と保存を行う
+				if(evaluated != null)	globalBest = select(evaluated, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+				save(globalBest, iterate);
+
+				swarm = await(evaluation);
+				evaluated = swarm.copy();	//次の世代の更新で粒子群が変わるためコピーして選択する
+			}
+
+			if(evaluated != null)	globalBest = select(evaluated, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+			save(globalBest, numberOfIterations);
+		}finally{
+			evaluator.shutdownNow();
+		}
+	}
+
+	/**
+	 * 評価と選択・保存を重ねる、非劣解アーカイブを用いたMOPSOの計算です。<br>
+	 * 世代gの粒子群を別スレッドで評価している間に、世代g-1の粒子群をアーカイブに追加して保存します。<br>
+	 * 世代gの位置の更新には世代g-2までを追加したアーカイブを使います。(遅れは1世代まで)<br>
+	 * 次の世代の位置の更新・突然変異は評価の終了を待ってから行います。({@link #setPipelined(boolean)}を参照)<br>
+	 *
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfParticles 粒子の数
+	 * @param numberOfIterations 評価回数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数クラスの名前(文字列)
+	 * @param archive 非劣解アーカイブ
+	 */
+	protected void pipeline(int numberOfVariables, int numberOfParticles, int numberOfIterations,
+					 int numberOfObjectives, String nameOfObjectiveFunction, Archive archive)
+	{
+		ExecutorService evaluator = Executors.newSingleThreadExecutor();
+		try{
+			//初期化
+			Swarm swarm = new Swarm( numberOfParticles );
+			swarm.initialize( numberOfVariables, numberOfObjectives, nameOfObjectiveFunction, random.split(0) );
+			swarm = evaluate(swarm, nameOfObjectiveFunction);
+
+			//アーカイブに初期粒子群を追加
+			archive.add(swarm);
+			Swarm evaluated = null;	//評価を終えて、まだアーカイブに追加していない粒子群
+
+			for (int iterate = 0; iterate<numberOfIterations; iterate++){
+				Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+				RandomStream generation = random.split(iterate+1);	//世代の乱数列
+
+				swarm = update(swarm, archive, generation);
+
+				swarm = mutate(swarm, iterate, generation);
+
+				Future<Swarm> evaluation = evaluate(evaluator, swarm, nameOfObjectiveFunction);
+
+				//評価中に前の世代の追加と保存を行う
+				if(evaluated != null)	archive.add(evaluated);
+				save(archive.toSwarm(), iterate);
+
+				swarm = await(evaluation);
+				evaluated = swarm.copy();	//次の世代の更新で粒子群が変わるためコピーして追加する
+			}
+
+			if(evaluated != null)	archive.add(evaluated);
+			save(archive.toSwarm(), numberOfIterations);
+		}finally{
+			evaluator.shutdownNow();
+		}
+	}
+
+	/**
+	 * 粒子群の評価を別スレッドで始めます。<br>
+	 * @param evaluator 評価を行うスレッド
+	 * @param swarm 粒子群
+	 * @param nameOfObjectiveFunction 目的関数の名前
+	 * @return 評価の結果
+	 */
+	private Future<Swarm> evaluate(ExecutorService evaluator, final Swarm swarm, final String nameOfObjectiveFunction)
+	{
+		return evaluator.submit(new Callable<Swarm>() {
+			public Swarm call()	{ return evaluate(swarm, nameOfObjectiveFunction); }
+		});
+	}
+
+	/**
+	 * 別スレッドで始めた評価の終了を待ちます。<br>
+	 * @param evaluation 評価の結果
+	 * @return 評価した粒子群
+	 */
+	protected Swarm await(Future<Swarm> evaluation)
+	{
+		try {
+			return evaluation.get();
+		} catch (InterruptedException e) {
+			evaluation.cancel(true);
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("evaluation was interrupted", e);
+		} catch (ExecutionException e) {
+			Logging.logger.severe("評価中に例外が発生しました。" + e.getCause().toString());
+			throw new IllegalStateException("evaluation failed", e.getCause());
+		}
+	}
+
 	/**
 	 * グローバルベスト粒子群をCSVファイルとして保存します。<br>
 	 * @param globalBest グローバルベスト粒子群
@@ -90,9 +363,18 @@ public class OMOPSO {
 	 */
 	public Swarm update(Swarm swarm, Swarm globalBest)
 	{
-//		Random random = new Random(32648L);	// シード固定
-		Random random = new Random();
+		return update(swarm, globalBest, new RandomStream());
+	}
 
+	/**
+	 * グローバルベスト粒子群を用いて、指定した乱数列で粒子群の位置と速度を更新します。<br>
+	 * @param swarm 粒子群
+	 * @param globalBest グローバルベスト粒子群
+	 * @param random 乱数列
+	 * @return 更新した粒子群
+	 */
+	public Swarm update(Swarm swarm, Swarm globalBest, RandomStream random)
+	{
 		//ランダム数
 		double w = 0.1+0.4*random.nextDouble();
 		double c1 = 1.5+0.5*random.nextDouble();
@@ -111,25 +393,80 @@ public class OMOPSO {
 			r2 = random.nextDouble();
 			rg = rank1Index[ (int)Math.floor( rank1Index.length * random.nextDouble() )];
 			//位置・速度の更新
-			for (int v=0; v<swarm.particle[i].velocity.length; v++){
-				swarm.particle[i].velocity[v] = w * swarm.particle[i].velocity[v]
-						+ c1 * r1 * (swarm.particle[i].bestPosition[v]- swarm.particle[i].position[v])
-						+ c2 * r2 * (globalBest.particle[rg].position[v] - swarm.particle[i].position[v]);
+			move(swarm.particle[i], globalBest.particle[rg], w, c1, c2, r1, r2);
+		}
+
+		return swarm;
+	}
 
-				//速度がはみ出てたら補正
-				swarm.particle[i].velocity[v] = Numeric.limit(swarm.particle[i].velocity[v], 0.5, -0.5);
+	/**
+	 * 非劣解アーカイブからリーダーを選び、粒子群の位置と速度を更新します。<br>
+	 * アーカイブの解は全て非劣解のため、ランク付けをせずにランダムに選びます。<br>
+	 * @param swarm 粒子群
+	 * @param archive 非劣解アーカイブ
+	 * @return 更新した粒子群
+	 */
+	public Swarm update(Swarm swarm, Archive archive)
+	{
+		return update(swarm, archive, new RandomStream());
+	}
 
-				//位置の更新
-				swarm.particle[i].position[v] += swarm.particle[i].velocity[v];
+	/**
+	 * 非劣解アーカイブからリーダーを選び、指定した乱数列で粒子群の位置と速度を更新します。<br>
+	 * @param swarm 粒子群
+	 * @param archive 非劣解アーカイブ
+	 * @param random 乱数列
+	 * @return 更新した粒子群
+	 */
+	public Swarm update(Swarm swarm, Archive archive, RandomStream random)
+	{
+		//ランダム数
+		double w = 0.1+0.4*random.nextDouble();
+		double c1 = 1.5+0.5*random.nextDouble();
+		double c2 = 1.5+0.5*random.nextDouble();
+		double r1, r2;
 
-				//位置がはみ出てたら補正
-				swarm.particle[i].position[v] = Numeric.limit(swarm.particle[i].position[v], 1.0, 0.0);
-			}
+		//全ての粒子に対して
+		for (int i=0; i<swarm.particle.length; i++){
+			//ランダム数
+			r1 = random.nextDouble();
+			r2 = random.nextDouble();
+			Particle leader = archive.sample(random.nextDouble());
+			//位置・速度の更新
+			move(swarm.particle[i], leader, w, c1, c2, r1, r2);
 		}
 
 		return swarm;
 	}
 
+	/**
+	 * 1つの粒子の位置と速度をリーダー粒子に向けて更新します。<br>
+	 * @param particle 粒子
+	 * @param leader リーダー粒子
+	 * @param w 重み
+	 * @param c1 定数1
+	 * @param c2 定数2
+	 * @param r1 ランダム数1
+	 * @param r2 ランダム数2
+	 */
+	protected void move(Particle particle, Particle leader, double w, double c1, double c2, double r1, double r2)
+	{
+		for (int v=0; v<particle.velocity.length; v++){
+			particle.velocity[v] = w * particle.velocity[v]
+					+ c1 * r1 * (particle.bestPosition[v]- particle.position[v])
+					+ c2 * r2 * (leader.position[v] - particle.position[v]);
+
+			//速度がはみ出てたら補正
+			particle.velocity[v] = Numeric.limit(particle.velocity[v], 0.5, -0.5);
+
+			//位置の更新
+			particle.position[v] += particle.velocity[v];
+
+			//位置がはみ出てたら補正
+			particle.position[v] = Numeric.limit(particle.position[v], 1.0, 0.0);
+		}
+	}
+
 	/**
 	 * 粒子群に突然変異を発生します。<br>
 	 * 粒子群は、一様突然変異を起こす粒子群、非一様突然変異を起こす粒子群、突然変異しない粒子群の３つに分割して、<br>
@@ -140,8 +477,19 @@ public class OMOPSO {
 	 */
 	public Swarm mutate(Swarm swarm, int iterate)
 	{
-		Random random = new Random(2149857L);
+		return mutate(swarm, iterate, new RandomStream());
+	}
 
+	/**
+	 * 指定した乱数列で粒子群に突然変異を発生します。<br>
+	 * 粒子群の分割と突然変異に同じ乱数列を使います。<br>
+	 * @param swarm 粒子群
+	 * @param iterate これまでの評価回数
+	 * @param random 乱数列
+	 * @return 突然変異を起こした粒子群
+	 */
+	public Swarm mutate(Swarm swarm, int iterate, RandomStream random)
+	{
 		//突然変異確率
 		double mutationRate = 1.0/swarm.particle[0].position.length;
 
@@ -158,11 +506,13 @@ public class OMOPSO {
 			num1 = size+1; num2 = size+1; num3 = size;
 		}
 		//次にランダム数を生成
-		Vector index = new Vector(0,1,swarm.particle.length-1);
-		index = index.shuffle();
-		int[] uniformIndex = Cast.doubleToInt( index.get(0,num1).get() );
-		int[] nonUniformIndex = Cast.doubleToInt( index.get(num1,num2).get() );
-		int[] nonIndex = Cast.doubleToInt( index.get(num1+num2,num3).get() );
+		int[] index = random.permutation(swarm.particle.length);
+		int[] uniformIndex = new int[num1];
+		int[] nonUniformIndex = new int[num2];
+		int[] nonIndex = new int[num3];
+		System.arraycopy(index, 0, uniformIndex, 0, num1);
+		System.arraycopy(index, num1, nonUniformIndex, 0, num2);
+		System.arraycopy(index, num1+num2, nonIndex, 0, num3);
 
 
 		//ランダム数で選んだものを抽出
@@ -175,32 +525,12 @@ public class OMOPSO {
 
 		//1つめのSwarmは一様突然変異
 		for(int i=0; i<uniformSwarm.particle.length; i++){
-			for(int j=0; j<uniformSwarm.particle[i].position.length; j++){
-				if(random.nextDouble() < mutationRate)
-				{
-					uniformSwarm.particle[i].position[j] = random.nextDouble();
-				}
-				if(random.nextDouble() < mutationRate)
-				{
-					uniformSwarm.particle[i].velocity[j] = random.nextDouble()-0.5;
-				}
-			}
+			mutateUniform(uniformSwarm.particle[i], mutationRate, random);
 		}
 
 		//2つめのSwarmは非一様突然変異
 		for(int i=0; i<nonUniformSwarm.particle.length; i++){
-			for(int j=0; j<nonUniformSwarm.particle[i].position.length; j++){
-				if(random.nextDouble() < mutationRate){
-					double variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
-					nonUniformSwarm.particle[i].position[j] += variation;
-					nonUniformSwarm.particle[i].position[j] = Numeric.limit(nonUniformSwarm.particle[i].position[j], 1, 0);
-				}
-				if(random.nextDouble() < mutationRate){
-					double variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
-					nonUniformSwarm.particle[i].velocity[j] += variation;
-					nonUniformSwarm.particle[i].velocity[j] = Numeric.limit(nonUniformSwarm.particle[i].velocity[j], 0.5, -0.5);
-				}
-			}
+			mutateNonUniform(nonUniformSwarm.particle[i], mutationRate, iterate, random);
 		}
 
 		//3つめは何もせず、3つをくっつけて返す
@@ -209,6 +539,51 @@ public class OMOPSO {
 		return swarm;
 	}
 
+	/**
+	 * 1つの粒子に一様突然変異を起こします。<br>
+	 * 変数ごとに突然変異確率で、位置を0～1、速度を-0.5～0.5の一様乱数に置き換えます。<br>
+	 * @param particle 粒子
+	 * @param mutationRate 突然変異確率
+	 * @param random 乱数
+	 */
+	protected void mutateUniform(Particle particle, double mutationRate, RandomStream random)
+	{
+		for(int j=0; j<particle.position.length; j++){
+			if(random.nextDouble() < mutationRate)
+			{
+				particle.position[j] = random.nextDouble();
+			}
+			if(random.nextDouble() < mutationRate)
+			{
+				particle.velocity[j] = random.nextDouble()-0.5;
+			}
+		}
+	}
+
+	/**
+	 * 1つの粒子に非一様突然変異を起こします。<br>
+	 * 変数ごとに突然変異確率で、位置と速度に評価回数とともに小さくなる変動を加えます。<br>
+	 * @param particle 粒子
+	 * @param mutationRate 突然変異確率
+	 * @param iterate これまでの評価回数
+	 * @param random 乱数
+	 */
+	protected void mutateNonUniform(Particle particle, double mutationRate, int iterate, RandomStream random)
+	{
+		for(int j=0; j<particle.position.length; j++){
+			if(random.nextDouble() < mutationRate){
+				double variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
+				particle.position[j] += variation;
+				particle.position[j] = Numeric.limit(particle.position[j], 1, 0);
+			}
+			if(random.nextDouble() < mutationRate){
+				double variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
+				particle.velocity[j] += variation;
+				particle.velocity[j] = Numeric.limit(particle.velocity[j], 0.5, -0.5);
+			}
+		}
+	}
+
 	/**
 	 * 粒子群の評価を行い適応度を更新します。<br>
 	 * @param swarm 粒子群
@@ -218,9 +593,9 @@ public class OMOPSO {
 	public Swarm evaluate(Swarm swarm, String nameOfObjectiveFunction)
 	{
 		int numberOfObjectives = swarm.particle[0].fitness.length;
+		swarm.evaluate(nameOfObjectiveFunction, evaluationExecutor);	//スレッドプールがあれば並行に評価
 		for(int i=0; i<swarm.particle.length; i++)
 		{
-			swarm.particle[i].evaluate(nameOfObjectiveFunction);
 			swarm.particle[i].updateBest(numberOfObjectives);
 		}
 		return swarm;
@@ -245,7 +620,9 @@ public class OMOPSO {
 		double[] maxValue = (double[])ObjectiveFunction.getMaxValue(nameOfObjectiveFunction);	//最大値を取得
 		double[] minValue = (double[])ObjectiveFunction.getMinValue(nameOfObjectiveFunction);	//最小値を取得
 		fitness = new Matrix(fitness).normalize(maxValue, minValue).get();//正規化
-		int[] rank = Rank.ranking(combined.getFitness(), epsilon, alpha);
+		int[] rank;
+		if(dominanceMatrix != null)	rank = dominanceMatrix.ranking(combined, epsilon, alpha);	//新しい粒子の優越関係のみ計算
+		else						rank = Rank.borderRanking(combined.getFitness(), null, epsilon, alpha, globalSize, false);	//境界ランクまでのみ計算
 
 		//境界ランク番号計算
 		int numOfBorderRank = Rank.calculateBorderRank(rank, globalSize);
@@ -289,16 +666,12 @@ public class OMOPSO {
 			}
 		}
 
-		//境界ランク+上位ランクの近傍距離を計算し境界ランクのみ残す
-		Swarm last = Swarm.add(upper, border);
-		double[][] lastFitness = last.getFitness();
-		lastFitness = new Matrix(lastFitness).normalize(maxValue, minValue).get();	//正規化
-		double[] lastDistance =  Rank.calculateDistance(lastFitness);
-		double[] borderDistance = new Vector(lastDistance).get(upperRankSize, borderRankSize).get();
+		//境界ランクの密度を計算する
+		double[] borderDistance = calculateBorderDistance(upper, border, maxValue, minValue);
 
-		//近傍距離でソートする
+		//近傍距離の大きい順に選択する
 		//int[] index = Numeric.sort(borderDistance,"descend");
-		int[] index = new Vector(borderDistance).sort("descend");
+		int[] index = Selection.largest(borderDistance, globalSize-upperRankSize);	//全体はソートせず残数分のみ選択
 
 		//上位ランク粒子をglobalBestに保存
 		for (int i=0; i<upperRankSize; i++)
@@ -314,4 +687,39 @@ public class OMOPSO {
 		//グローバルベストとして返す。
 		return globalBest;
 	}
+
+	/**
+	 * 境界ランクの粒子の密度(大きいほど疎)を計算します。<br>
+	 * DENSITY_NEARESTでは境界ランク+上位ランクの近傍距離、DENSITY_CROWDINGでは境界ランクのみの混雑距離を計算します。<br>
+	 * @param upper 上位ランクの粒子群
+	 * @param border 境界ランクの粒子群
+	 * @param maxValue 正規化に使う最大値
+	 * @param minValue 正規化に使う最小値
+	 * @return 境界ランクの粒子の密度
+	 */
+	protected double[] calculateBorderDistance(Swarm upper, Swarm border, double[] maxValue, double[] minValue)
+	{
+		if(density == DENSITY_CROWDING)
+		{
+			double[][] borderFitness = new Matrix(border.getFitness()).normalize(maxValue, minValue).get();	//正規化
+			return crowdingDistance.calculate(borderFitness);
+		}
+
+		//境界ランク+上位ランクの近傍距離を計算し境界ランクのみ残す
+		Swarm last = Swarm.add(upper, border);
+		double[][] lastFitness = last.getFitness();
+		lastFitness = new Matrix(lastFitness).normalize(maxValue, minValue).get();	//正規化
+		double[] lastDistance =  calculateDistance(lastFitness);
+		return new Vector(lastDistance).get(upper.particle.length, border.particle.length).get();
+	}
+
+	/**
+	 * 近傍距離を計算します。<br>
+	 * @param fitness 正規化した適応度
+	 * @return 近傍距離
+	 */
+	protected double[] calculateDistance(double[][] fitness)
+	{
+		return Rank.calculateDistance(fitness);
+	}
 }
@@ -0,0 +1,145 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jp.ohtayo.commons.math.Vector;
+import jp.ohtayo.commons.util.Cast;
+import jp.ohtayo.mathopt.core.Particle;
+import jp.ohtayo.mathopt.core.RandomStream;
+import jp.ohtayo.mathopt.core.Rank;
+import jp.ohtayo.mathopt.core.Selection;
+import jp.ohtayo.mathopt.core.Swarm;
+
+/**
+ * 島モデル({@link IslandModel})でOMOPSOを計算する島のクラスです。<br>
+ * 1世代の計算は{@link OMOPSO#main(int, int, int, int, String, double, double)}と同じです。<br>
+ * 受け取った移住解は評価済みの粒子と置き換えてから、グローバルベストの選択に加えます。<br>
+ * 島ごとにOMOPSOのインスタンスを分けてください。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class OMOPSOIsland extends Island<Particle> {
+
+	/** OMOPSO		*/	private final OMOPSO mopso;
+	/** 変数の数	*/	private final int numberOfVariables;
+	/** 粒子の数	*/	private final int numberOfParticles;
+	/** 目的関数の数*/	private final int numberOfObjectives;
+	/** 目的関数名	*/	private final String nameOfObjectiveFunction;
+	/** ε値		*/	private final double epsilon;
+	/** α値		*/	private final double alpha;
+	/** 粒子群		*/	private Swarm swarm;
+	/** グローバルベスト粒子群	*/	private Swarm globalBest;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param mopso 計算に使うOMOPSO(密度評価方法などは設定済みのもの)
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfParticles 粒子の数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 */
+	public OMOPSOIsland(OMOPSO mopso, int numberOfVariables, int numberOfParticles, int numberOfObjectives,
+			String nameOfObjectiveFunction, double epsilon, double alpha)
+	{
+		this.mopso = mopso;
+		this.numberOfVariables = numberOfVariables;
+		this.numberOfParticles = numberOfParticles;
+		this.numberOfObjectives = numberOfObjectives;
+		this.nameOfObjectiveFunction = nameOfObjectiveFunction;
+		this.epsilon = epsilon;
+		this.alpha = alpha;
+	}
+
+	/**
+	 * グローバルベスト粒子群を返します。<br>
+	 * @return グローバルベスト粒子群
+	 */
+	public Swarm getGlobalBest()	{ return globalBest; }
+
+	/**
+	 * 初期粒子群を生成して評価します。<br>
+	 */
+	@Override
+	public void initialize()
+	{
+		swarm = new Swarm(numberOfParticles);
+		swarm.initialize(numberOfVariables, numberOfObjectives, nameOfObjectiveFunction, random.split(0));
+		swarm = mopso.evaluate(swarm, nameOfObjectiveFunction);
+		globalBest = swarm.copy();
+	}
+
+	/**
+	 * 1世代の計算を行います。<br>
+	 * @param iterate これまでの世代数
+	 * @param immigrants 他の島から受け取った移住解(なければ空)
+	 */
+	@Override
+	public void iterate(int iterate, List<Particle> immigrants)
+	{
+		RandomStream generation = random.split(iterate+1);	//世代の乱数列
+		swarm = mopso.update(swarm, globalBest, generation);
+		swarm = mopso.mutate(swarm, iterate, generation);
+		swarm = mopso.evaluate(swarm, nameOfObjectiveFunction);
+
+		//移住解を粒子と置き換える
+		int number = Math.min(immigrants.size(), swarm.particle.length);
+		if(number > 0)
+		{
+			int[] index;
+			if(policy == IslandModel.POLICY_BEST_WORST)
+			{
+				int[] rank = Rank.ranking(swarm.getFitness(), 0.0, 0.0);
+				index = Selection.largest(Cast.intToDouble(rank), number);	//ランクの悪い粒子
+			}
+			else
+			{
+				index = choose(swarm.particle.length, number);
+			}
+			for(int i=0; i<number; i++)	swarm.particle[index[i]] = immigrants.get(i);
+		}
+
+		globalBest = mopso.select(swarm, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+	}
+
+	/**
+	 * 他の島に送る移住解を選びます。<br>
+	 * POLICY_BEST_WORSTではグローバルベストのランク1からランダムに選びます。<br>
+	 * @param number 移住解の数
+	 * @return 移住解
+	 */
+	@Override
+	public List<Particle> emigrate(int number)
+	{
+		int[] index;
+		if(policy == IslandModel.POLICY_BEST_WORST)
+		{
+			int[] rank = Rank.ranking(globalBest.getFitness(), 0.0, 0.0);
+			int[] rank1Index = Rank.rankIndex(rank, (int)(new Vector(Cast.intToDouble(rank)).min()));
+			int[] chosen = choose(rank1Index.length, number);
+			index = new int[chosen.length];
+			for(int i=0; i<chosen.length; i++)	index[i] = rank1Index[chosen[i]];
+		}
+		else
+		{
+			index = choose(globalBest.particle.length, number);
+		}
+
+		List<Particle> emigrants = new ArrayList<Particle>(index.length);
+		for(int i=0; i<index.length; i++)	emigrants.add(globalBest.particle[index[i]].copy());
+		return emigrants;
+	}
+
+	/**
+	 * グローバルベスト粒子群の粒子を返します。<br>
+	 * @return グローバルベストの粒子
+	 */
+	@Override
+	public List<Particle> getSolutions()
+	{
+		return new ArrayList<Particle>(Arrays.asList(globalBest.particle));
+	}
+}
@@ -1,15 +1,18 @@
 package jp.ohtayo.mathopt.algorithm;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
-import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.io.Csv;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.core.Swarm;
 import jp.ohtayo.mathopt.core.Rank;
+import jp.ohtayo.mathopt.core.Selection;
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
 
 /**
@@ -26,6 +29,8 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 	 * MOPSOのメイン関数です。<br>
 	 * MOPSOの計算は本関数を呼び出して行います。<br>
 	 * 優劣計算にε-dominationかα-dominationを使用する事ができます。<br>
+	 * {@link #setPipelined(boolean)}でtrueを設定した場合、世代gの粒子群を評価している間に世代g-1の粒子群から選択・保存を行います。<br>
+	 * 位置の更新・突然変異はパーソナルベストの評価を待つため、評価とは重ねません。<br>
 	 *
 	 * @param numberOfVariables 変数の数
 	 * @param numberOfParticles 粒子の数
@@ -35,35 +40,79 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 	 * @param numberOfConstraints 制約数
 	 * @param epsilon ε値
 	 * @param alpha α値
-	 * @param numberOfThreads スレッド数
+	 * @param numberOfThreads スレッド数(setEvaluationExecutorでスレッドプールを設定した場合は使わない)
 	 * @param fileOfInitialSolutions 初期解を指定する場合そのファイル名。nullか空文字列ならランダムで初期化
 	 */
 	public void main(int numberOfVariables, int numberOfParticles, int numberOfIterations,
 					 int numberOfObjectives, String nameOfObjectiveFunction, int numberOfConstraints,
 					 double epsilon, double alpha, int numberOfThreads, String fileOfInitialSolutions)
 	{
-		Swarm swarm = new Swarm( numberOfParticles );
-		swarm.initialize( numberOfVariables, numberOfObjectives, numberOfConstraints,
-						nameOfObjectiveFunction, fileOfInitialSolutions );
-		swarm = evaluate(swarm, nameOfObjectiveFunction, numberOfThreads);
+		//評価用のスレッドは計算の終了まで使い回す(設定されていなければここで生成して最後に閉じる)
+		EvaluationExecutor executor = (evaluationExecutor != null) ? evaluationExecutor : new EvaluationExecutor(numberOfThreads);
+		//評価と選択・保存を重ねる場合は、評価の終了を待つスレッドを別に用意する
+		ExecutorService evaluator = pipelined ? Executors.newSingleThreadExecutor() : null;
+		try{
+			Swarm swarm = new Swarm( numberOfParticles );
+			swarm.initialize( numberOfVariables, numberOfObjectives, numberOfConstraints,
+							nameOfObjectiveFunction, fileOfInitialSolutions, random.split(0) );
+			swarm = evaluate(swarm, nameOfObjectiveFunction, executor);
+
+			//グローバルベストにswarmをコピー
+			Swarm globalBest = swarm.copy();
+			Swarm evaluated = null;	//評価を終えて、まだ選択していない粒子群(評価と選択・保存を重ねる場合)
+
+			for (int iterate = 0; iterate<numberOfIterations; iterate++){
+				Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+				RandomStream generation = random.split(iterate+1);	//世代の乱数列
+
+				if(evaluator == null){
+					save(globalBest, iterate);
 
-		//グローバルベストにswarmをコピー
-		Swarm globalBest = swarm.copy();
+					swarm = update(swarm, globalBest, generation);
 
-		for (int iterate = 0; iterate<numberOfIterations; iterate++){
-			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
-			save(globalBest, iterate);
+					swarm = mutate(swarm, iterate, generation);
 
-			swarm = update(swarm, globalBest);
+					swarm = evaluate(swarm, nameOfObjectiveFunction, executor);
 
-			swarm = mutate(swarm,iterate);
+					globalBest = select(swarm, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+				}else{
+					swarm = update(swarm, globalBest, generation);
 
-			swarm = evaluate(swarm, nameOfObjectiveFunction, numberOfThreads);
+					swarm = mutate(swarm, iterate, generation);
 
-			globalBest = select(swarm, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+					Future<Swarm> evaluation = evaluate(evaluator, swarm, nameOfObjectiveFunction, executor);
+
+					//評価中に前の世代の選択と保存を行う
+					if(evaluated != null)	globalBest = select(evaluated, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+					save(globalBest, iterate);
+
+					swarm = await(evaluation);
+					evaluated = swarm.copy();	//次の世代の更新で粒子群が変わるためコピーして選択する
+				}
+			}
+
+			if(evaluated != null)	globalBest = select(evaluated, globalBest, nameOfObjectiveFunction, epsilon, alpha);
+			save(globalBest, numberOfIterations);
+		}finally{
+			if(evaluator != null)	evaluator.shutdownNow();
+			if(executor != evaluationExecutor)	executor.close();
 		}
+	}
 
-		save(globalBest, numberOfIterations);
+	/**
+	 * 粒子群の評価を別スレッドで始めます。<br>
+	 * @param evaluator 評価の終了を待つスレッド
+	 * @param swarm 粒子群
+	 * @param nameOfObjectiveFunction 目的関数の名前
+	 * @param executor 評価用のスレッドプール
+	 * @return 評価の結果
+	 */
+	private Future<Swarm> evaluate(ExecutorService evaluator, final Swarm swarm, final String nameOfObjectiveFunction,
+			final EvaluationExecutor executor)
+	{
+		return evaluator.submit(new Callable<Swarm>() {
+			public Swarm call()	{ return evaluate(swarm, nameOfObjectiveFunction, executor); }
+		});
 	}
 
 	/**
@@ -92,33 +141,20 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 
 	/**
 	 * 粒子群の評価を行い適応度を更新します。<br>
-	 * マルチスレッドで処理するためExecutor Framework(jdk1.5以上)を用います<br>
+	 * 粒子ごとの評価タスクをまとめてスレッドプールに渡し、全ての評価の終了を待ちます。<br>
 	 * @param swarm 粒子群
 	 * @param nameOfObjectiveFunction 目的関数の名前
-	 * @param numberOfThreads スレッド数
+	 * @param executor 評価用のスレッドプール
 	 * @return 適応度を更新した粒子群
 	 */
-	private Swarm evaluate(Swarm swarm, String nameOfObjectiveFunction, int numberOfThreads)
+	private Swarm evaluate(Swarm swarm, String nameOfObjectiveFunction, EvaluationExecutor executor)
 	{
-		//8スレッドの枠を用意
-		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
-		try{
-			//別スレッドで順次解の評価タスクを渡す
-			for(int i=0; i<swarm.particle.length; i++)
-			{
-				executor.execute(new EvaluateOne(swarm, i, nameOfObjectiveFunction));
-			}
-		}finally{
-			//新規タスクの受付を終了して残ったタスクを継続する．
-			executor.shutdown();
-			try {
-				//指定時間(個体数×1分)が経過するか，全タスクが終了するまで処理を停止する．
-				executor.awaitTermination(swarm.particle.length, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-				Logging.logger.severe(e.getMessage());
-			}
+		Runnable[] tasks = new Runnable[swarm.particle.length];
+		for(int i=0; i<swarm.particle.length; i++)
+		{
+			tasks[i] = new EvaluateOne(swarm, i, nameOfObjectiveFunction);
 		}
+		executor.execute(tasks);
 
 		return swarm;
 	}
@@ -147,7 +183,8 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 		public void run(){
 			//プール番号を除くスレッドIDを取得
 			threadName = Thread.currentThread().getName().split("-");
-			threadNumber = Integer.valueOf(threadName[threadName.length-1]);
+			if(threadName[threadName.length-1].matches("[0-9]+"))	threadNumber = Integer.valueOf(threadName[threadName.length-1]);
+			else	threadNumber = (int)Thread.currentThread().getId();	//仮想スレッドは名前がないため識別番号を使う
 			//スレッドIDを指定して評価を実行
 			System.out.println("スレッドID="+String.valueOf(threadNumber));
 			Logging.logger.info(Thread.currentThread().getName()+"開始");
@@ -176,7 +213,9 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 		double[] maxValue = (double[])ObjectiveFunction.getMaxValue(nameOfObjectiveFunction);	//最大値を取得
 		double[] minValue = (double[])ObjectiveFunction.getMinValue(nameOfObjectiveFunction);	//最小値を取得
 		fitness = new Matrix(fitness).normalize(maxValue, minValue).get();
-		int[] rank = Rank.ranking(combined.getFitness(), combined.getConstraint(), epsilon, alpha);
+		int[] rank;
+		if(dominanceMatrix != null)	rank = dominanceMatrix.ranking(combined, epsilon, alpha);	//新しい粒子の優越関係のみ計算
+		else						rank = Rank.borderRanking(combined.getFitness(), combined.getConstraint(), epsilon, alpha, globalSize, true);	//境界ランクまでのみ計算、粒子数が多ければ並列計算
 
 		//境界ランク番号計算
 		int numOfBorderRank = Rank.calculateBorderRank(rank, globalSize);
@@ -220,15 +259,11 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 			}
 		}
 
-		//境界ランク+上位ランクの近傍距離を計算し境界ランクのみ残す
-		Swarm last = Swarm.add(upper, border);
-		double[][] lastFitness = last.getFitness();
-		lastFitness = new Matrix(lastFitness).normalize(maxValue, minValue).get();
-		double[] lastDistance =  Rank.calculateDistance(lastFitness);
-		double[] borderDistance = new Vector(lastDistance).get(upperRankSize, borderRankSize).get();
+		//境界ランクの密度を計算する
+		double[] borderDistance = calculateBorderDistance(upper, border, maxValue, minValue);
 
-		//近傍距離でソートする
-		int[] index = new Vector(borderDistance).sort("descend");
+		//近傍距離の大きい順に選択する
+		int[] index = Selection.largest(borderDistance, globalSize-upperRankSize);	//全体はソートせず残数分のみ選択
 
 		//上位ランク粒子をglobalBestに保存
 		for (int i=0; i<upperRankSize; i++)
@@ -244,4 +279,15 @@ public class OMOPSOMultiThreadConstraint extends OMOPSO{
 		//グローバルベストとして返す。
 		return globalBest;
 	}
+
+	/**
+	 * 近傍距離を計算します。粒子数が多ければ並列計算します。<br>
+	 * @param fitness 正規化した適応度
+	 * @return 近傍距離
+	 */
+	@Override
+	protected double[] calculateDistance(double[][] fitness)
+	{
+		return Rank.parallelCalculateDistance(fitness);
+	}
 }
@@ -3,8 +3,8 @@ package jp.ohtayo.mathopt.algorithm;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.math.Numeric;
-import jp.ohtayo.commons.random.Random;
 import jp.ohtayo.mathopt.core.Particle;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.core.Swarm;
 import jp.ohtayo.mathopt.algorithm.PSO;
 import jp.ohtayo.mathopt.algorithm.OMOPSO;
@@ -19,6 +19,8 @@ import jp.ohtayo.mathopt.algorithm.OMOPSO;
  */
 public class OPSO extends PSO{
 
+	/** 並列計算での突然変異(OMOPSOの突然変異を使う)	*/	private final OMOPSO omopso = new OMOPSO();
+
 	/**
 	 * OptimalPSOのメイン関数です。<br>
 	 * OptimalPSOの計算は本関数を呼び出して行います。<br>
@@ -30,12 +32,14 @@ public class OPSO extends PSO{
 	 */
 	public double main(int numberOfVariables, int numberOfParticles, int numberOfIterations, String nameOfObjectiveFunction)
 	{
-		// mutate()のためにOMOPSOをインスタンス化
-		OMOPSO omopso = new OMOPSO();
+		if(numberOfWorkers > 0)
+		{
+			return parallel(numberOfVariables, numberOfParticles, numberOfIterations, nameOfObjectiveFunction, 0, 0, 0);	//重み・定数は粒子ごとに決める
+		}
 
 		//初期化
 		Swarm swarm = new Swarm( numberOfParticles );
-		swarm.initialize( numberOfVariables, 1, nameOfObjectiveFunction );
+		swarm.initialize( numberOfVariables, 1, nameOfObjectiveFunction, random.split(0) );
 		swarm = evaluate(swarm, nameOfObjectiveFunction);
 		
 		//グローバルベストにswarmをコピー
@@ -47,10 +51,11 @@ public class OPSO extends PSO{
 		for (int iterate = 0; iterate<numberOfIterations; iterate++){
 			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
 			save(globalBest, iterate);
+			RandomStream generation = random.split(iterate+1);	//世代の乱数列
 		
-			swarm = update(swarm, globalBest);
+			swarm = update(swarm, globalBest, generation);
 			
-			swarm = omopso.mutate(swarm,iterate);
+			swarm = omopso.mutate(swarm, iterate, generation);
 
 			swarm = evaluate(swarm, nameOfObjectiveFunction);
 			
@@ -68,13 +73,12 @@ public class OPSO extends PSO{
 	 * 粒子群の位置の更新をします。<br>
 	 * @param swarm 粒子群
 	 * @param globalBest グローバルベスト粒子
+	 * @param random 乱数列
 	 * @return 更新した粒子群
 	 */
 	
-	private Swarm update(Swarm swarm, Particle globalBest)
+	private Swarm update(Swarm swarm, Particle globalBest, RandomStream random)
 	{
-		Random random = new Random();
-		
 		//ランダム数
 		double w = 0.1+0.4*random.nextDouble();
 		double c1 = 1.5+0.5*random.nextDouble();
@@ -105,4 +109,33 @@ public class OPSO extends PSO{
 		
 		return swarm;
 	}
+
+	/**
+	 * 並列計算で1つの粒子の位置の更新と突然変異を行います。<br>
+	 * 重み・定数は粒子の更新ごとに乱数で決めます。<br>
+	 * 突然変異は粒子番号で3つに分け、一様突然変異・非一様突然変異・突然変異なしを固定で割り当てます。<br>
+	 * @param particle 粒子
+	 * @param index 粒子の番号
+	 * @param globalBest グローバルベスト粒子(共有しているため変更しない)
+	 * @param iterate 今までの評価回数
+	 * @param random 粒子の乱数列
+	 * @param w 重み(使わない)
+	 * @param c1 定数1(使わない)
+	 * @param c2 定数2(使わない)
+	 */
+	@Override
+	protected void step(Particle particle, int index, Particle globalBest, int iterate, RandomStream random,
+			double w, double c1, double c2)
+	{
+		w = 0.1+0.4*random.nextDouble();
+		c1 = 1.5+0.5*random.nextDouble();
+		c2 = 1.5+0.5*random.nextDouble();
+		double r1 = random.nextDouble();
+		double r2 = random.nextDouble();
+		move(particle, globalBest, w, c1, c2, r1, r2);
+
+		double mutationRate = 1.0/particle.position.length;
+		if(index % 3 == 0)		omopso.mutateUniform(particle, mutationRate, random);
+		else if(index % 3 == 1)	omopso.mutateNonUniform(particle, mutationRate, iterate, random);
+	}
 }
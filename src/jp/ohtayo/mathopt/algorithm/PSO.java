@@ -1,11 +1,16 @@
 package jp.ohtayo.mathopt.algorithm;
 
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.math.Numeric;
-import jp.ohtayo.commons.random.Random;
 import jp.ohtayo.commons.io.Csv;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
 import jp.ohtayo.mathopt.core.Particle;
+import jp.ohtayo.mathopt.core.RandomStream;
+import jp.ohtayo.mathopt.core.SharedGlobalBest;
 import jp.ohtayo.mathopt.core.Swarm;
 
 /**
@@ -17,6 +22,71 @@ import jp.ohtayo.mathopt.core.Swarm;
  */
 public class PSO {
 
+	/** 並列計算でグローバルベストを世代ごとに反映する	*/	public static final int PROPAGATION_SYNCHRONOUS = 0;
+	/** 並列計算でグローバルベストを更新され次第反映する	*/	public static final int PROPAGATION_ASYNCHRONOUS = 1;
+
+	/** 評価用のスレッドプール(nullなら逐次評価)	*/	protected EvaluationExecutor evaluationExecutor = null;
+	/** 計算全体の乱数列(世代ごとに分割して使う)	*/	protected RandomStream random = new RandomStream();
+	/** 並列計算のスレッド数(0なら並列計算しない)	*/	protected int numberOfWorkers = 0;
+	/** 並列計算でのグローバルベストの反映方法	*/	protected int propagation = PROPAGATION_SYNCHRONOUS;
+	/** 世代ごとにグローバルベストを保存する	*/	protected boolean saving = true;
+
+	/**
+	 * 粒子群の評価に使うスレッドプールを設定します。<br>
+	 * スレッドプールは呼び出し側で計算の終了後に閉じてください。<br>
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void setEvaluationExecutor(EvaluationExecutor executor)
+	{
+		this.evaluationExecutor = executor;
+	}
+
+	/**
+	 * 乱数のシードを設定します。<br>
+	 * 乱数列は初期化と世代ごとにシードから分割するため、同じシードであれば評価のスレッド数によらず同じ結果になります。<br>
+	 * 設定しなければ時刻から決めたシードを使います。<br>
+	 * @param seed 乱数のシード
+	 */
+	public void setSeed(long seed)
+	{
+		this.random = new RandomStream(seed);
+	}
+
+	/**
+	 * 世代ごとにグローバルベストをファイルに保存するか設定します。<br>
+	 * 保存先は./result/pso世代数.csvで固定のため、複数の計算を同時に行う場合はfalseにしてください。<br>
+	 * @param saving 保存する場合true(既定) / 保存しない場合false
+	 */
+	public void setSaving(boolean saving)
+	{
+		this.saving = saving;
+	}
+
+	/**
+	 * 粒子の更新・評価を複数のスレッドで並列に行うか設定します。<br>
+	 * 粒子はスレッドごとに分けて受け持ち、各スレッドは粒子を評価するたびに共有のグローバルベストを更新します。<br>
+	 * PROPAGATION_SYNCHRONOUSでは全スレッドが世代を終えるのを待ち、その時点のグローバルベストを次の世代で使います。<br>
+	 * PROPAGATION_ASYNCHRONOUSでは世代の同期を取らず、粒子の更新のたびにその時点のグローバルベストを使います。<br>
+	 * 並列計算では評価用のスレッドプールは使いません。<br>
+	 * @param numberOfThreads スレッド数(0なら並列計算しない)
+	 * @param propagation PROPAGATION_SYNCHRONOUS(世代ごと) / PROPAGATION_ASYNCHRONOUS(更新され次第)
+	 */
+	public void setParallel(int numberOfThreads, int propagation)
+	{
+		if(numberOfThreads < 0)
+		{
+			Logging.logger.severe("スレッド数が異常です。");
+			throw new IllegalArgumentException("illegal number of threads: " + numberOfThreads);
+		}
+		if(propagation != PROPAGATION_SYNCHRONOUS && propagation != PROPAGATION_ASYNCHRONOUS)
+		{
+			Logging.logger.severe("グローバルベストの反映方法が異常です。");
+			throw new IllegalArgumentException("illegal propagation: " + propagation);
+		}
+		this.numberOfWorkers = numberOfThreads;
+		this.propagation = propagation;
+	}
+
 	/**
 	 * PSOのメイン関数です。<br>
 	 * PSOの計算は本関数を呼び出して行います。<br>
@@ -33,9 +103,14 @@ public class PSO {
 	public double main(int numberOfVariables, int numberOfParticles, int numberOfIterations,
 			 String nameOfObjectiveFunction, double weight, double constant1, double constant2)
 	{
+		if(numberOfWorkers > 0)
+		{
+			return parallel(numberOfVariables, numberOfParticles, numberOfIterations, nameOfObjectiveFunction, weight, constant1, constant2);
+		}
+
 		//初期化
 		Swarm swarm = new Swarm( numberOfParticles );
-		swarm.initialize( numberOfVariables, 1, nameOfObjectiveFunction );
+		swarm.initialize( numberOfVariables, 1, nameOfObjectiveFunction, random.split(0) );
 		swarm = evaluate(swarm, nameOfObjectiveFunction);
 		
 		//グローバルベストにswarmをコピー
@@ -46,10 +121,11 @@ public class PSO {
 		for (int iterate = 0; iterate<numberOfIterations; iterate++){
 			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
 			save(globalBest, iterate);
+			RandomStream generation = random.split(iterate+1);	//世代の乱数列
 		
-			swarm = update(swarm, globalBest, weight, constant1, constant2);
+			swarm = update(swarm, globalBest, weight, constant1, constant2, generation);
 			
-			swarm = mutate(swarm,iterate);
+			swarm = mutate(swarm, iterate, generation);
 			
 			swarm = evaluate(swarm, nameOfObjectiveFunction);
 			
@@ -63,13 +139,147 @@ public class PSO {
 
 	}
 	
+	/**
+	 * 粒子の更新・評価を複数のスレッドで並列に行うPSOの計算です。<br>
+	 * 粒子ごとにシードから分割した乱数列を使います。<br>
+	 * PROPAGATION_SYNCHRONOUSでは、適応度の同じ粒子がなければ、同じシードで同じ結果になります。<br>
+	 * PROPAGATION_ASYNCHRONOUSでは、スレッドの実行順で結果が変わります。<br>
+	 * グローバルベストは、同期する場合は世代ごと、同期しない場合は1番目のスレッドの世代ごとに保存します。<br>
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfParticles 粒子の数
+	 * @param numberOfIterations 評価回数
+	 * @param nameOfObjectiveFunction 目的関数の名前
+	 * @param weight 重み
+	 * @param constant1 定数1
+	 * @param constant2 定数2
+	 * @return 最終世代のglobalbestの適応度
+	 */
+	protected double parallel(int numberOfVariables, int numberOfParticles, final int numberOfIterations,
+			final String nameOfObjectiveFunction, final double weight, final double constant1, final double constant2)
+	{
+		//初期化
+		Swarm swarm = new Swarm( numberOfParticles );
+		swarm.initialize( numberOfVariables, 1, nameOfObjectiveFunction, random.split(0) );
+		swarm = evaluate(swarm, nameOfObjectiveFunction);
+
+		final SharedGlobalBest globalBest = new SharedGlobalBest();
+		for(int i=0; i<swarm.particle.length; i++)	globalBest.offer(swarm.particle[i]);
+		save(globalBest.get(), 0);
+
+		final Particle[] particles = swarm.particle;
+		final RandomStream[] streams = new RandomStream[particles.length];
+		for(int i=0; i<particles.length; i++)	streams[i] = random.split(i+1);	//粒子ごとの乱数列(受け持つスレッドのみが使う)
+
+		final boolean synchronous = (propagation == PROPAGATION_SYNCHRONOUS);
+		final int size = Math.max(1, Math.min(numberOfWorkers, particles.length));
+		final AtomicReference<Particle> leader = new AtomicReference<Particle>(globalBest.get());	//同期する場合に世代で使うグローバルベスト
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Phaser phaser = synchronous ? new Phaser(size) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties)
+			{
+				if(registeredParties == 0)	return true;	//全スレッドが終了した
+				//全スレッドが世代を終えたら、次の世代のグローバルベストを決めて保存
+				try {
+					Particle best = globalBest.get();
+					leader.set(best);
+					Logging.logger.info(phase+1 + "世代目の計算を終えました。");
+					save(best, phase+1);
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				}
+				return error.get() != null;	//例外があれば同期を終了して待っているスレッドを解放する
+			}
+		} : null;
+
+		Thread[] threads = new Thread[size];
+		for(int t=0; t<size; t++)
+		{
+			final int first = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run()
+				{
+					try {
+						for (int iterate = 0; iterate<numberOfIterations; iterate++)
+						{
+							if(error.get() != null)	break;
+							if(!synchronous && first == 0)	save(globalBest.get(), iterate);
+
+							//受け持つ粒子(スレッド番号から始めてスレッド数おき)を更新・評価
+							for (int i=first; i<particles.length; i+=size)
+							{
+								Particle best = synchronous ? leader.get() : globalBest.get();
+								step(particles[i], i, best, iterate, streams[i], weight, constant1, constant2);
+								particles[i].evaluate(nameOfObjectiveFunction);
+								particles[i].updateBest(1);
+								globalBest.offer(particles[i]);
+							}
+
+							if(synchronous)	phaser.arriveAndAwaitAdvance();
+						}
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					} finally {
+						if(synchronous)	phaser.arriveAndDeregister();	//他のスレッドが待たないように抜ける
+					}
+				}
+			}, "pso-worker-" + (t+1));
+			threads[t].setDaemon(true);
+			threads[t].start();
+		}
+
+		//全スレッドの終了を待つ
+		try {
+			for(int t=0; t<size; t++)	threads[t].join();
+		} catch (InterruptedException e) {
+			for(int t=0; t<size; t++)	threads[t].interrupt();
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("parallel pso was interrupted", e);
+		}
+
+		if(error.get() != null)
+		{
+			Logging.logger.severe("計算中に例外が発生しました。" + error.get().toString());
+			throw new IllegalStateException("parallel pso failed", error.get());
+		}
+
+		Particle best = globalBest.get();
+		Logging.logger.info(best.toString());
+		if(!synchronous)	save(best, numberOfIterations);
+		return best.fitness[0];
+	}
+
+	/**
+	 * 並列計算で1つの粒子の位置の更新と突然変異を行います。<br>
+	 * @param particle 粒子
+	 * @param index 粒子の番号
+	 * @param globalBest グローバルベスト粒子(共有しているため変更しない)
+	 * @param iterate 今までの評価回数
+	 * @param random 粒子の乱数列
+	 * @param w 重み
+	 * @param c1 定数1
+	 * @param c2 定数2
+	 */
+	protected void step(Particle particle, int index, Particle globalBest, int iterate, RandomStream random,
+			double w, double c1, double c2)
+	{
+		double r1 = random.nextDouble();
+		double r2 = random.nextDouble();
+		move(particle, globalBest, w, c1, c2, r1, r2);
+		mutate(particle, 1.0/particle.position.length, iterate, random);
+	}
+
 	/**
 	 * グローバルベスト粒子を保存します。<br>
+	 * {@link #setSaving(boolean)}でfalseを設定した場合は保存しません。<br>
 	 * @param globalBest グローバルベスト粒子
 	 * @param iterate 今までの評価回数
 	 */
 	public void save(Particle globalBest, int iterate)
 	{
+		if(!saving)	return;
+
 		//ファイル名の生成
 		String fileName  = "./result/pso" + iterate +".csv";
 		
@@ -90,28 +300,52 @@ public class PSO {
 	 */
 	public Swarm mutate(Swarm swarm, int iterate)
 	{
-		Random random = new Random();
+		return mutate(swarm, iterate, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列で粒子群に突然変異を起こします。<br>
+	 * 突然変異方法は非一様突然変異です。<br>
+	 * @param swarm 粒子群
+	 * @param iterate 今までの評価回数
+	 * @param random 乱数列
+	 * @return 突然変異を起こした粒子群
+	 */
+	public Swarm mutate(Swarm swarm, int iterate, RandomStream random)
+	{
 		double mutationRate = 1.0/swarm.particle[0].position.length;
-		double variation;
 		for(int i=0; i<swarm.particle.length; i++)
 		{
-			for(int j=0; j<swarm.particle[0].position.length; j++)
+			mutate(swarm.particle[i], mutationRate, iterate, random);
+		}
+		return swarm;
+	}
+
+	/**
+	 * 1つの粒子に非一様突然変異を起こします。<br>
+	 * @param particle 粒子
+	 * @param mutationRate 突然変異確率
+	 * @param iterate 今までの評価回数
+	 * @param random 乱数列
+	 */
+	protected void mutate(Particle particle, double mutationRate, int iterate, RandomStream random)
+	{
+		double variation;
+		for(int j=0; j<particle.position.length; j++)
+		{
+			if(random.nextDouble() < mutationRate)
 			{
-				if(random.nextDouble() < mutationRate)
-				{
-					variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
-					swarm.particle[i].position[j] += variation;
-					swarm.particle[i].position[j] = Numeric.limit(swarm.particle[i].position[j], 1, 0);
-				}
-				if(random.nextDouble() < mutationRate)
-				{
-					variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
-					swarm.particle[i].velocity[j] += variation;
-					swarm.particle[i].velocity[j] = Numeric.limit(swarm.particle[i].velocity[j], 0.5, -0.5);
-				}
+				variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
+				particle.position[j] += variation;
+				particle.position[j] = Numeric.limit(particle.position[j], 1, 0);
+			}
+			if(random.nextDouble() < mutationRate)
+			{
+				variation = (random.nextDouble()-0.5)/Math.sqrt(iterate+1);
+				particle.velocity[j] += variation;
+				particle.velocity[j] = Numeric.limit(particle.velocity[j], 0.5, -0.5);
 			}
 		}
-		return swarm;
 	}
 	
 	/**
@@ -123,11 +357,23 @@ public class PSO {
 	 * @param c2 定数2
 	 * @return 更新した粒子群
 	 */
-	
 	public Swarm update(Swarm swarm, Particle globalBest, double w, double c1, double c2)
 	{
-		Random random = new Random();
-		
+		return update(swarm, globalBest, w, c1, c2, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列で粒子群の位置の更新をします。<br>
+	 * @param swarm 粒子群
+	 * @param globalBest グローバルベスト粒子
+	 * @param w 重み
+	 * @param c1 定数1
+	 * @param c2 定数2
+	 * @param random 乱数列
+	 * @return 更新した粒子群
+	 */
+	public Swarm update(Swarm swarm, Particle globalBest, double w, double c1, double c2, RandomStream random)
+	{
 		//ランダム数
 		double r1, r2;
 
@@ -137,24 +383,39 @@ public class PSO {
 			r1 = random.nextDouble();
 			r2 = random.nextDouble();
 			//位置・速度の更新
-			for (int v=0; v<swarm.particle[i].velocity.length; v++){
-				swarm.particle[i].velocity[v] = w * swarm.particle[i].velocity[v]
-						+ c1 * r1 * (swarm.particle[i].bestPosition[v]- swarm.particle[i].position[v])
-						+ c2 * r2 * (globalBest.position[v] - swarm.particle[i].position[v]);
-
-				//速度がはみ出てたら補正
-				swarm.particle[i].velocity[v] = Numeric.limit(swarm.particle[i].velocity[v], 0.5, -0.5);
-				
-				//位置の更新
-				swarm.particle[i].position[v] += swarm.particle[i].velocity[v];
-				
-				//位置がはみ出てたら補正
-				swarm.particle[i].position[v] = Numeric.limit(swarm.particle[i].position[v], 1.0, 0.0);
-			}
+			move(swarm.particle[i], globalBest, w, c1, c2, r1, r2);
 		}
 		
 		return swarm;
 	}
+
+	/**
+	 * 1つの粒子の位置と速度をグローバルベスト粒子に向けて更新します。<br>
+	 * @param particle 粒子
+	 * @param globalBest グローバルベスト粒子
+	 * @param w 重み
+	 * @param c1 定数1
+	 * @param c2 定数2
+	 * @param r1 ランダム数1
+	 * @param r2 ランダム数2
+	 */
+	protected void move(Particle particle, Particle globalBest, double w, double c1, double c2, double r1, double r2)
+	{
+		for (int v=0; v<particle.velocity.length; v++){
+			particle.velocity[v] = w * particle.velocity[v]
+					+ c1 * r1 * (particle.bestPosition[v]- particle.position[v])
+					+ c2 * r2 * (globalBest.position[v] - particle.position[v]);
+
+			//速度がはみ出てたら補正
+			particle.velocity[v] = Numeric.limit(particle.velocity[v], 0.5, -0.5);
+			
+			//位置の更新
+			particle.position[v] += particle.velocity[v];
+			
+			//位置がはみ出てたら補正
+			particle.position[v] = Numeric.limit(particle.position[v], 1.0, 0.0);
+		}
+	}
 	
 	/**
 	 * グローバルベスト粒子を更新します。<br>
@@ -184,9 +445,9 @@ public class PSO {
 	 */
 	public Swarm evaluate(Swarm swarm, String nameOfObjectiveFunction)
 	{
+		swarm.evaluate(nameOfObjectiveFunction, evaluationExecutor);	//スレッドプールがあれば並行に評価
 		for(int i=0; i<swarm.particle.length; i++)
 		{
-			swarm.particle[i].evaluate(nameOfObjectiveFunction);
 			swarm.particle[i].updateBest(1);
 		}
 		return swarm;
@@ -0,0 +1,268 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
+
+/**
+ * 複数の温度の鎖(レプリカ)を並列に計算するレプリカ交換法(パラレルテンパリング)のクラスです。<br>
+ * 鎖cの温度は初期温度×公比^cとし、鎖0が最も低温です。各鎖は{@link SimulatedAnnealing}と同じ生成関数・受理関数でアニーリングし、<br>
+ * 世代ごとにすべての鎖の温度を同じ比で下げます。<br>
+ * 世代の終わりに隣接する鎖の状態を交換するかを判定します。交換する組は世代ごとに偶数番目・奇数番目からの組を交互に使います。<br>
+ * 鎖はスレッドプールで並列に計算し、状態・次状態は鎖ごとの配列を使い回すため、アニーリング中に配列を生成しません。<br>
+ * 鎖ごとの乱数列はシードから分割するため、同じシードであればスレッド数によらず同じ結果になります。<br>
+ * 計算後に温度ごとの受理率と隣接する温度間の交換率を取得できます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class ParallelTempering {
+
+	/** スレッド数		*/	private int numberOfThreads = 1;
+	/** 乱数列		*/	protected RandomStream random = new RandomStream();
+
+	/** 温度ごとの受理数	*/	private long[] accepted;
+	/** 温度ごとの提案数	*/	private long[] proposed;
+	/** 隣接する温度間の交換数	*/	private long[] exchanged;
+	/** 隣接する温度間の交換の試行数	*/	private long[] attempted;
+	/** 最良の状態		*/	private double[] bestVariable;
+
+	/**
+	 * 乱数のシードを設定します。<br>
+	 * @param seed 乱数のシード
+	 */
+	public void setSeed(long seed)
+	{
+		random = new RandomStream(seed);
+	}
+
+	/**
+	 * 鎖を計算するスレッド数を設定します。<br>
+	 * 鎖の数より多い分は使いません。<br>
+	 * @param numberOfThreads スレッド数
+	 */
+	public void setNumberOfThreads(int numberOfThreads)
+	{
+		if(numberOfThreads < 1)
+		{
+			Logging.logger.severe("スレッド数(numberOfThreads)が少なすぎます。");
+			throw new IllegalArgumentException("illegal number of threads: " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * レプリカ交換法のメイン関数です。<br>
+	 * 鎖の数が1なら{@link SimulatedAnnealing}と同じ手順のアニーリングになります。<br>
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param temperature 最も低温の鎖の初期温度
+	 * @param numberOfAnnealing 1世代あたりのアニーリング回数
+	 * @param step 変数変更幅
+	 * @param ganma 温度変更比ガンマ値
+	 * @param numberOfChains 鎖の数
+	 * @param ratio 隣接する鎖の温度の公比(1以上)
+	 * @return 全世代・全鎖の最優秀適応度
+	 */
+	public double main(
+			int numberOfVariables,
+			int numberOfIterations,
+			final String nameOfObjectiveFunction,
+			double temperature,
+			final double numberOfAnnealing,
+			final double step,
+			double ganma,
+			int numberOfChains,
+			double ratio)
+	{
+		if(numberOfChains < 1)
+		{
+			Logging.logger.severe("鎖の数(numberOfChains)が少なすぎます。");
+			throw new IllegalArgumentException("illegal number of chains: " + numberOfChains);
+		}
+		if(ratio < 1.0)
+		{
+			Logging.logger.severe("温度の公比(ratio)は1以上にしてください。");
+			throw new IllegalArgumentException("illegal temperature ratio: " + ratio);
+		}
+
+		accepted = new long[numberOfChains];
+		proposed = new long[numberOfChains];
+		exchanged = new long[Math.max(0, numberOfChains-1)];
+		attempted = new long[Math.max(0, numberOfChains-1)];
+		bestVariable = new double[numberOfVariables];
+		double bestEnergy = Double.POSITIVE_INFINITY;
+
+		//初期化(鎖ごとの乱数列はsplit(c+1)、交換判定はsplit(0))
+		final Chain[] chain = new Chain[numberOfChains];
+		for(int c=0; c<numberOfChains; c++)
+		{
+			chain[c] = new Chain(numberOfVariables, temperature*Math.pow(ratio, c), random.split(c+1));
+		}
+		RandomStream exchange = random.split(0);
+
+		Runnable[] initialize = new Runnable[numberOfChains];
+		Runnable[] anneal = new Runnable[numberOfChains];
+		for(int c=0; c<numberOfChains; c++)
+		{
+			final Chain target = chain[c];
+			initialize[c] = new Runnable() {
+				public void run()	{ target.energy = SimulatedAnnealing.evaluate(target.current, nameOfObjectiveFunction); }
+			};
+			anneal[c] = new Runnable() {
+				public void run()	{ target.anneal(numberOfAnnealing, step, nameOfObjectiveFunction); }
+			};
+		}
+
+		EvaluationExecutor executor = new EvaluationExecutor(Math.min(numberOfThreads, numberOfChains));
+		try {
+			executor.execute(initialize);
+
+			for (int iterate = 0; iterate<numberOfIterations; iterate++){
+				Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
+
+				//アニーリング(鎖ごとに並列)
+				executor.execute(anneal);
+
+				//最良の状態の更新
+				for(int c=0; c<numberOfChains; c++)
+				{
+					if(chain[c].bestEnergy < bestEnergy)
+					{
+						bestEnergy = chain[c].bestEnergy;
+						System.arraycopy(chain[c].best, 0, bestVariable, 0, numberOfVariables);
+					}
+				}
+
+				//レプリカ交換
+				for(int c=iterate%2; c+1<numberOfChains; c+=2)
+				{
+					attempted[c]++;
+					if(exchange(chain[c], chain[c+1], exchange))	exchanged[c]++;
+				}
+
+				//クーリング
+				for(int c=0; c<numberOfChains; c++)	chain[c].temperature *= ganma;
+
+				//最優秀適応度の表示
+				Logging.logger.info("最優秀適応度: " + bestEnergy + ", 最低温の鎖の適応度: " + chain[0].energy);
+			}
+		} finally {
+			executor.close();
+		}
+
+		for(int c=0; c<numberOfChains; c++)
+		{
+			accepted[c] = chain[c].accepted;
+			proposed[c] = chain[c].proposed;
+			Logging.logger.info("鎖" + c + ": 受理率 " + getAcceptanceRate()[c]
+					+ ((c+1<numberOfChains) ? ", 上の鎖との交換率 " + getExchangeRate()[c] : ""));
+		}
+		return bestEnergy;
+	}
+
+	/**
+	 * 隣接する鎖の状態を交換するかを判定し、交換する場合は状態とエネルギーを入れ替えます。<br>
+	 * 交換確率はmin(1, exp((1/T1-1/T2)(E1-E2)))です。<br>
+	 * @param lower 低温の鎖
+	 * @param upper 高温の鎖
+	 * @param random 乱数列
+	 * @return 交換した場合true
+	 */
+	private static boolean exchange(Chain lower, Chain upper, RandomStream random)
+	{
+		double delta = (1.0/lower.temperature - 1.0/upper.temperature) * (lower.energy - upper.energy);
+		if(delta < 0 && random.nextDouble() > Math.exp(delta))	return false;
+
+		double[] temp = lower.current;
+		lower.current = upper.current;
+		upper.current = temp;
+		double energy = lower.energy;
+		lower.energy = upper.energy;
+		upper.energy = energy;
+		return true;
+	}
+
+	/**
+	 * 温度ごとの受理率を返します。<br>
+	 * @return 受理率[鎖](鎖0が最も低温)
+	 */
+	public double[] getAcceptanceRate()
+	{
+		double[] rate = new double[accepted.length];
+		for(int c=0; c<rate.length; c++)	rate[c] = (proposed[c] > 0) ? (double)accepted[c]/proposed[c] : 0.0;
+		return rate;
+	}
+
+	/**
+	 * 隣接する温度間の交換率を返します。<br>
+	 * @return 交換率[鎖](鎖cと鎖c+1の間の交換率)
+	 */
+	public double[] getExchangeRate()
+	{
+		double[] rate = new double[exchanged.length];
+		for(int c=0; c<rate.length; c++)	rate[c] = (attempted[c] > 0) ? (double)exchanged[c]/attempted[c] : 0.0;
+		return rate;
+	}
+
+	/**
+	 * 全世代・全鎖の最良の状態を返します。<br>
+	 * @return 最良の状態
+	 */
+	public double[] getBestVariable()	{ return bestVariable; }
+
+	/**
+	 * 1つの温度で計算する鎖のクラスです。<br>
+	 * 状態・次状態・最良の状態の配列は生成時に確保して使い回します。<br>
+	 */
+	private static class Chain {
+
+		double[] current;				//現在の状態(交換で鎖の間を移動する)
+		double[] next;					//次状態(使い回す)
+		final double[] best;			//この鎖の最良の状態
+		double energy;					//現在の状態のエネルギー
+		double bestEnergy = Double.POSITIVE_INFINITY;	//この鎖の最良のエネルギー
+		double temperature;				//温度
+		final RandomStream random;		//鎖の乱数列
+		long accepted;					//受理数
+		long proposed;					//提案数
+
+		//コンストラクタ
+		Chain(int numberOfVariables, double temperature, RandomStream random)
+		{
+			this.current = random.rand(numberOfVariables);
+			this.next = new double[numberOfVariables];
+			this.best = new double[numberOfVariables];
+			this.temperature = temperature;
+			this.random = random;
+		}
+
+		//現在の温度で一定回数アニーリングする
+		void anneal(double numberOfAnnealing, double step, String nameOfObjectiveFunction)
+		{
+			if(energy < bestEnergy)	keepBest();	//交換で受け取った状態も最良の候補にする
+			for(int a = 0; a < numberOfAnnealing; a++)
+			{
+				SimulatedAnnealing.generate(current, next, step, random);
+				double nextEnergy = SimulatedAnnealing.evaluate(next, nameOfObjectiveFunction);
+				proposed++;
+				if(SimulatedAnnealing.accept(energy, nextEnergy, temperature, random))
+				{
+					double[] temp = current;
+					current = next;
+					next = temp;
+					energy = nextEnergy;
+					accepted++;
+					if(energy < bestEnergy)	keepBest();
+				}
+			}
+		}
+
+		//現在の状態を最良の状態として保存する
+		private void keepBest()
+		{
+			bestEnergy = energy;
+			System.arraycopy(current, 0, best, 0, current.length);
+		}
+	}
+}
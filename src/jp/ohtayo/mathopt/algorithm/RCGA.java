@@ -4,9 +4,9 @@ import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.math.Numeric;
-import jp.ohtayo.commons.random.Random;
-import jp.ohtayo.commons.util.Cast;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
 import jp.ohtayo.mathopt.core.Population;
+import jp.ohtayo.mathopt.core.RandomStream;
 
 /**
  * 実数値遺伝的アルゴリズム(RCGA)の計算を行うクラスです。<br>
@@ -37,14 +37,42 @@ public class RCGA {
 			double crossoverRate, 
 			double mutationRate,
 			int eliteNumber)
+	{
+		return main(numberOfVariables, numberOfPopulations, numberOfIterations,
+				nameOfObjectiveFunction, crossoverRate, mutationRate, eliteNumber, null, new RandomStream().getSeed());
+	}
+
+	/**
+	 * RCGAのメイン関数です。<br>
+	 * 子の生成と評価を指定したスレッドプールで並行に行います。評価するのは新しく生成した子のみです。<br>
+	 * 乱数列は世代ごと・子ごとにシードから分割するため、同じシードであればスレッド数によらず同じ結果になります。<br>
+	 * @param numberOfPopulations 個体数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param crossoverRate 交叉率
+	 * @param mutationRate 突然変異確率
+	 * @param eliteNumber エリート数
+	 * @param executor スレッドプール(nullなら逐次計算)
+	 * @param seed 乱数のシード
+	 * @return 最終世代の解集合のもっともよい適応度
+	 */
+	public static double main(
+			int numberOfVariables, 
+			int numberOfPopulations, 
+			int numberOfIterations,
+			String nameOfObjectiveFunction, 
+			double crossoverRate, 
+			double mutationRate,
+			int eliteNumber,
+			EvaluationExecutor executor,
+			long seed)
 	{
 		//初期化
+		RandomStream random = new RandomStream(seed);
 		Population parents = new Population(numberOfPopulations);
 		int numberOfObjectives = 1;
-		parents.initialize(numberOfVariables, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction);
+		parents.initialize(numberOfVariables, 0, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction, random.split(0), executor);
 		Population children = null;
-		Population parentsElite = null;
-		Population parentsRoulette = null;
 		
 		Vector bestFitness = new Vector(numberOfIterations);
 		Matrix bestVariables = new Matrix(numberOfIterations, numberOfVariables);
@@ -53,18 +81,17 @@ public class RCGA {
 		for (int iterate = 0; iterate<numberOfIterations; iterate++){
 			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
 		
-			children = undx(parents, crossoverRate);
+			//世代ごとの乱数列
+			RandomStream generation = random.split(iterate+1);
+		
+			children = undx(parents, crossoverRate, generation.split(0), executor);
 			
-			children = mutate(children, mutationRate);
+			children = mutate(children, mutationRate, generation.split(1));
 			
-			parents.evaluate(nameOfObjectiveFunction);
-			children.evaluate(nameOfObjectiveFunction);
+			//親は前の世代で評価済みのため、子のみ評価する
+			children.evaluate(nameOfObjectiveFunction, executor);
 			
-			Population population = parents.add(children);
-			parentsElite = SimpleGeneticAlgorithm.selectElite(population, eliteNumber);
-			double rate = (double)(numberOfPopulations-eliteNumber)/numberOfPopulations;
-			parentsRoulette = SimpleGeneticAlgorithm.selectRoulette(parents, children, rate);
-			parents = parentsElite.add(parentsRoulette);
+			parents = select(parents, children, eliteNumber, generation.split(2));
 			
 			//最優秀適応度の表示
 			bestFitness.set(iterate, new Matrix(parents.getFitness()).getColumn(0).min(min) );
@@ -91,6 +118,24 @@ public class RCGA {
 
 	}
 		
+	/**
+	 * 親と子の個体群から次世代の親個体群を選択します。<br>
+	 * 親と子を合わせた個体群からエリート数を選び、残りをルーレット選択で選びます。<br>
+	 * @param parents 親個体群
+	 * @param children 評価済みの子個体群
+	 * @param eliteNumber エリート数
+	 * @param random 乱数列
+	 * @return 次世代の親個体群
+	 */
+	public static Population select(Population parents, Population children, int eliteNumber, RandomStream random)
+	{
+		int numberOfPopulations = parents.individual.length;
+		Population parentsElite = SimpleGeneticAlgorithm.selectElite(parents.add(children), eliteNumber);
+		double rate = (double)(numberOfPopulations-eliteNumber)/numberOfPopulations;
+		Population parentsRoulette = SimpleGeneticAlgorithm.selectRoulette(parents, children, rate, random);
+		return parentsElite.add(parentsRoulette);
+	}
+
 	/**
 	 * UNDXを使って親を交叉して子を生成します。<br>
 	 * 参照：http://www.sice.jp/e-trans/papers/E2-21.pdf
@@ -100,78 +145,124 @@ public class RCGA {
 	 */
 	public static Population undx(Population population, double rate)
 	{
-		double eps = 1.0/(double)Integer.MAX_VALUE;
-		Vector order = new Vector((int)(population.individual.length*rate), "random");
-		int[] temp = Cast.doubleToInt( order.multiply(population.individual.length).get() );
-		order = new Vector( Cast.intToDouble(temp) );
-		//Vector order = new Vector(0,1,population.individual.length-1);	//0～numberOfPopulation-1までの数列を生成
-		//order = order.shuffle();	//数列をシャッフル
-		int[] index = {0,1,2,3};	//先頭4つを数列に継ぎ足し。
-		order = order.add(order.get(index));
-		
-		Population children = new Population( (int)Math.round(population.individual.length * rate) );	//子供個体群のサイズ決定
+		return undx(population, rate, new RandomStream(), null);
+	}
+
+	/**
+	 * UNDXを使って親を交叉して子を生成します。<br>
+	 * 子の生成は指定したスレッドプールで並行に行います。<br>
+	 * 子ごとに乱数列を分割するため、同じ乱数列であればスレッド数によらず同じ子を生成します。<br>
+	 * @param population 親個体群
+	 * @param rate 交叉確率
+	 * @param random 乱数列
+	 * @param executor スレッドプール(nullなら逐次計算)
+	 * @return 子個体群
+	 */
+	public static Population undx(final Population population, double rate, RandomStream random, EvaluationExecutor executor)
+	{
+		final int number = (int)Math.round(population.individual.length * rate);	//子供個体群のサイズ
+		
+		//親を選ぶ順番を決める
+		final int[] order = new int[number+4];
+		for(int i=0; i<number; i++)
+		{
+			order[i] = (int)(random.nextDouble() * population.individual.length);
+		}
+		for(int i=0; i<4; i++)	order[number+i] = order[i];	//先頭4つを数列に継ぎ足し。
+		
+		final Population children = new Population(number);
 		children.initialize(population.getNumberOfVariables(), population.getNumberOfObjectives());
 
-		for(int i=0; i<population.individual.length*rate; i++)
+		if(executor == null)
 		{
-			//親を3人決める
-			double[] idx = {order.get(i), order.get(i+2), order.get(i+4)};
-			Population parent = population.picup(Cast.doubleToInt(idx));
-			
-			//親が同一でないかを確認して、同一であった場合親1を変更
-			int count = i;
-			while( parent.individual[0].equals(parent.individual[1]) || parent.individual[1].equals(parent.individual[2]) || parent.individual[2].equals(parent.individual[0])	)
+			for(int i=0; i<number; i++)	undx(population, order, i, random.split(i), children);
+			return children;
+		}
+		
+		Runnable[] tasks = new Runnable[number];
+		for(int i=0; i<number; i++)
+		{
+			final int index = i;
+			final RandomStream stream = random.split(i);
+			tasks[i] = new Runnable()
 			{
-				count+=1;
-				if( count > (int)(population.individual.length*rate) )	count = 0;
-				if( count == i )	break;	//一周回って、すべての親を入れ替えても無理だった場合break
-				if( parent.individual[1].equals(parent.individual[2]) ){
-					parent.individual[1] = population.individual[(int)order.get(count+2)].copy();
-				}
-				if( parent.individual[0].equals(parent.individual[1]) ){
-					parent.individual[0] = population.individual[(int)order.get(count)].copy();
+				public void run()
+				{
+					undx(population, order, index, stream, children);
 				}
-				//Logging.logger.info("Change parents 1");
+			};
+		}
+		executor.execute(tasks);
+		
+		return children;
+	}
+
+	/**
+	 * UNDXでi番目の子を1つ生成します。<br>
+	 * @param population 親個体群
+	 * @param order 親を選ぶ順番(子の数+4の長さ)
+	 * @param i 子の番号
+	 * @param random 子ごとの乱数列
+	 * @param children 子個体群
+	 */
+	private static void undx(Population population, int[] order, int i, RandomStream random, Population children)
+	{
+		double eps = 1.0/(double)Integer.MAX_VALUE;
+		int number = order.length - 4;
+		
+		//親を3人決める
+		int[] idx = {order[i], order[i+2], order[i+4]};
+		Population parent = population.picup(idx);
+		
+		//親が同一でないかを確認して、同一であった場合親1を変更
+		int count = i;
+		while( parent.individual[0].equals(parent.individual[1]) || parent.individual[1].equals(parent.individual[2]) || parent.individual[2].equals(parent.individual[0])	)
+		{
+			count+=1;
+			if( count > number )	count = 0;
+			if( count == i )	break;	//一周回って、すべての親を入れ替えても無理だった場合break
+			if( parent.individual[1].equals(parent.individual[2]) ){
+				parent.individual[1] = population.individual[order[count+2]].copy();
 			}
-			//違う親を選択することができなかったため、子を親と同一にしてこの回は終了
-			if( parent.individual[0].equals(parent.individual[1]) || parent.individual[1].equals(parent.individual[2]) || parent.individual[2].equals(parent.individual[0]) ){
-				children.individual[i].setVariable( parent.individual[0].getVariable() );
-				continue;
+			if( parent.individual[0].equals(parent.individual[1]) ){
+				parent.individual[0] = population.individual[order[count]].copy();
 			}
-			
-			//中点を決める
-			Matrix variables = new Matrix(parent.getVariables());
-			Vector center = variables.getRow(0).plus(variables.getRow(1)).division(2.0);
-			
-			//差を求める
-			Vector difference01 = variables.getRow(1).minus(variables.getRow(0));
-			Vector difference02 = variables.getRow(2).minus(variables.getRow(0));
-			
-			//親0と親1の直線から親2への単位垂直ベクトルを求める
-			//公式：aとbの正射影ベクトル=a(a dot b) / norm(a)^2
-			//から正射影ベクトルvを求める。ベクトルbからvを引くと、垂直ベクトルが求まる。
-			//垂直ベクトルを大きさで割れば単位垂直ベクトルが求まる。
-			if(difference01.norm() == 0)	difference01 = new Vector(difference01.length(),eps);	//ノルムが0の場合、ゼロ割を防ぐために値を入れる。
-			Vector difference03 = difference01.multiply( difference01.innerProduct(difference02) / Numeric.square(difference01.norm()) );	//dif01とdif02の正射影ベクトル
-			Vector vertical = difference02.minus(difference03);	//親0ー親1直線に垂直方向のベクトル
-			double distance = vertical.norm();	//垂線方向の距離
-			if( distance == 0 )	distance = eps;	//距離が0の場合、ゼロ割を防ぐために値を入れる。
-			Vector basis = vertical.division(distance);	//垂線方向の基底ベクトル
-			
-			//子を求める
-			//子=中点c+ξd+D sigma(i=1～n-1){η_i e_i}
-			//ただしσξ=1/2、ση=0.35/sqrt(n)の正規分布(平均0)
-			//dは親0と親1の差、eiはdに直交な正規直交基底=垂線方向の基底ベクトルbasis、Dはdと直交な親2までのベクトルの大きさ
-			Random random = new Random();
-			Vector child = center.plus( difference01.multiply(random.randn()*0.5) );
-			child = child.plus( new Vector(random.randn(center.length())).multiply(0.35/Math.sqrt(center.length())).multiply(basis).multiply(distance) );
-			children.individual[i].setVariable(child.get());
-			
-			//位置がはみ出てたら補正
-			children.individual[i].setVariable( Numeric.limit(children.individual[i].getVariable(), 1.0, 0.0) );
+		}
+		//違う親を選択することができなかったため、子を親と同一にしてこの回は終了
+		if( parent.individual[0].equals(parent.individual[1]) || parent.individual[1].equals(parent.individual[2]) || parent.individual[2].equals(parent.individual[0]) ){
+			children.individual[i].setVariable( parent.individual[0].getVariable() );
+			return;
 		}
 		
-		return children;
+		//中点を決める
+		Matrix variables = new Matrix(parent.getVariables());
+		Vector center = variables.getRow(0).plus(variables.getRow(1)).division(2.0);
+		
+		//差を求める
+		Vector difference01 = variables.getRow(1).minus(variables.getRow(0));
+		Vector difference02 = variables.getRow(2).minus(variables.getRow(0));
+		
+		//親0と親1の直線から親2への単位垂直ベクトルを求める
+		//公式：aとbの正射影ベクトル=a(a dot b) / norm(a)^2
+		//から正射影ベクトルvを求める。ベクトルbからvを引くと、垂直ベクトルが求まる。
+		//垂直ベクトルを大きさで割れば単位垂直ベクトルが求まる。
+		if(difference01.norm() == 0)	difference01 = new Vector(difference01.length(),eps);	//ノルムが0の場合、ゼロ割を防ぐために値を入れる。
+		Vector difference03 = difference01.multiply( difference01.innerProduct(difference02) / Numeric.square(difference01.norm()) );	//dif01とdif02の正射影ベクトル
+		Vector vertical = difference02.minus(difference03);	//親0ー親1直線に垂直方向のベクトル
+		double distance = vertical.norm();	//垂線方向の距離
+		if( distance == 0 )	distance = eps;	//距離が0の場合、ゼロ割を防ぐために値を入れる。
+		Vector basis = vertical.division(distance);	//垂線方向の基底ベクトル
+		
+		//子を求める
+		//子=中点c+ξd+D sigma(i=1～n-1){η_i e_i}
+		//ただしσξ=1/2、ση=0.35/sqrt(n)の正規分布(平均0)
+		//dは親0と親1の差、eiはdに直交な正規直交基底=垂線方向の基底ベクトルbasis、Dはdと直交な親2までのベクトルの大きさ
+		Vector child = center.plus( difference01.multiply(random.randn()*0.5) );
+		child = child.plus( new Vector(random.randn(center.length())).multiply(0.35/Math.sqrt(center.length())).multiply(basis).multiply(distance) );
+		children.individual[i].setVariable(child.get());
+		
+		//位置がはみ出てたら補正
+		children.individual[i].setVariable( Numeric.limit(children.individual[i].getVariable(), 1.0, 0.0) );
 	}
 
 	/**
@@ -182,8 +273,18 @@ public class RCGA {
 	 */
 	public static Population mutate(Population population, double rate)
 	{
-		Random random = new Random();
-		
+		return mutate(population, rate, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列を使って個体群に突然変異を起こします。<br>
+	 * @param population 個体群
+	 * @param rate 突然変異確率
+	 * @param random 乱数列
+	 * @return 突然変異した個体群
+	 */
+	public static Population mutate(Population population, double rate, RandomStream random)
+	{
 		for(int i=0; i<population.individual.length; i++)
 		{
 			if(random.nextDouble() < rate)
@@ -0,0 +1,129 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jp.ohtayo.commons.math.Matrix;
+import jp.ohtayo.mathopt.core.Individual;
+import jp.ohtayo.mathopt.core.Population;
+import jp.ohtayo.mathopt.core.RandomStream;
+import jp.ohtayo.mathopt.core.Selection;
+
+/**
+ * 島モデル({@link IslandModel})でRCGAを計算する島のクラスです。<br>
+ * 1世代の計算は{@link RCGA#main(int, int, int, String, double, double, int)}と同じです。<br>
+ * 受け取った移住解は評価済みの子と置き換えてから、次世代の親の選択に加えます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class RCGAIsland extends Island<Individual> {
+
+	/** 変数の数	*/	private final int numberOfVariables;
+	/** 個体数		*/	private final int numberOfPopulations;
+	/** 目的関数名	*/	private final String nameOfObjectiveFunction;
+	/** 交叉率		*/	private final double crossoverRate;
+	/** 突然変異確率	*/	private final double mutationRate;
+	/** エリート数	*/	private final int eliteNumber;
+	/** 親個体群	*/	private Population parents;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfPopulations 個体数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param crossoverRate 交叉率
+	 * @param mutationRate 突然変異確率
+	 * @param eliteNumber エリート数
+	 */
+	public RCGAIsland(int numberOfVariables, int numberOfPopulations, String nameOfObjectiveFunction,
+			double crossoverRate, double mutationRate, int eliteNumber)
+	{
+		this.numberOfVariables = numberOfVariables;
+		this.numberOfPopulations = numberOfPopulations;
+		this.nameOfObjectiveFunction = nameOfObjectiveFunction;
+		this.crossoverRate = crossoverRate;
+		this.mutationRate = mutationRate;
+		this.eliteNumber = eliteNumber;
+	}
+
+	/**
+	 * 親個体群を返します。<br>
+	 * @return 親個体群
+	 */
+	public Population getPopulation()	{ return parents; }
+
+	/**
+	 * 親個体群のもっともよい適応度を返します。<br>
+	 * @return もっともよい適応度
+	 */
+	public double getBestFitness()
+	{
+		return new Matrix(parents.getFitness()).getColumn(0).min();
+	}
+
+	/**
+	 * 初期個体群を生成して評価します。<br>
+	 */
+	@Override
+	public void initialize()
+	{
+		parents = new Population(numberOfPopulations);
+		parents.initialize(numberOfVariables, 0, numberOfPopulations, 1, nameOfObjectiveFunction, random.split(0), null);
+	}
+
+	/**
+	 * 1世代の計算を行います。<br>
+	 * @param iterate これまでの世代数
+	 * @param immigrants 他の島から受け取った移住解(なければ空)
+	 */
+	@Override
+	public void iterate(int iterate, List<Individual> immigrants)
+	{
+		RandomStream generation = random.split(iterate+1);
+
+		Population children = RCGA.undx(parents, crossoverRate, generation.split(0), null);
+		children = RCGA.mutate(children, mutationRate, generation.split(1));
+		children.evaluate(nameOfObjectiveFunction, null);
+
+		//移住解を子と置き換える
+		int number = Math.min(immigrants.size(), children.individual.length);
+		if(number > 0)
+		{
+			int[] index;
+			if(policy == IslandModel.POLICY_BEST_WORST)	index = Selection.largest(new Matrix(children.getFitness()).getColumn(0).get(), number);	//適応度の悪い子
+			else										index = choose(children.individual.length, number);
+			for(int i=0; i<number; i++)	children.individual[index[i]] = immigrants.get(i);
+		}
+
+		parents = RCGA.select(parents, children, eliteNumber, generation.split(2));
+	}
+
+	/**
+	 * 他の島に送る移住解を選びます。<br>
+	 * @param number 移住解の数
+	 * @return 移住解
+	 */
+	@Override
+	public List<Individual> emigrate(int number)
+	{
+		int[] index;
+		number = Math.min(number, parents.individual.length);
+		if(policy == IslandModel.POLICY_BEST_WORST)	index = Selection.smallest(new Matrix(parents.getFitness()).getColumn(0).get(), number);	//適応度のよい親
+		else										index = choose(parents.individual.length, number);
+
+		List<Individual> emigrants = new ArrayList<Individual>(index.length);
+		for(int i=0; i<index.length; i++)	emigrants.add(parents.individual[index[i]].copy());
+		return emigrants;
+	}
+
+	/**
+	 * 親個体群の個体を返します。<br>
+	 * @return 親個体
+	 */
+	@Override
+	public List<Individual> getSolutions()
+	{
+		return new ArrayList<Individual>(Arrays.asList(parents.individual));
+	}
+}
@@ -0,0 +1,253 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.algorithm.RemoteIslandModel.Connection;
+import jp.ohtayo.mathopt.algorithm.RemoteIslandModel.Message;
+import jp.ohtayo.mathopt.core.RandomStream;
+import jp.ohtayo.mathopt.core.SolutionCodec;
+
+/**
+ * 島のプロセスで1つの島を計算し、{@link RemoteIslandModel}の中継と移住解をやり取りするクラスです。<br>
+ * 中継との接続が切れても島の計算は続け、移住解を送るときと結果を送るときに接続し直します。<br>
+ * 接続が切れている間に送れなかった移住解は捨てます。<br>
+ *
+ * @param <T> 移住する解の型(粒子・個体)
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class RemoteIsland<T> {
+
+	/** 結果を送るときの接続の試行回数	*/	private static final int CONNECT_ATTEMPTS = 10;
+	/** 接続の試行間隔[ms]	*/	private static final long CONNECT_INTERVAL = 1000L;
+	/** 結果の受信通知の待ち時間[ms]	*/	private static final long ACK_TIMEOUT = 10000L;
+
+	/** 島		*/	private final Island<T> island;
+	/** 解の変換	*/	private final SolutionCodec<T> codec;
+	/** 中継のホスト名	*/	private final String host;
+	/** 中継のポート番号	*/	private final int port;
+	/** 島の番号	*/	private final int index;
+	/** 受け取った移住解	*/	private final ConcurrentLinkedQueue<T> inbox = new ConcurrentLinkedQueue<T>();
+	/** 結果の受信通知	*/	private final CountDownLatch acknowledged = new CountDownLatch(1);
+	/** 中継との接続(切れていればnull)	*/	private volatile Connection connection = null;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param island 島
+	 * @param codec 解の変換
+	 * @param host 中継のホスト名
+	 * @param port 中継のポート番号
+	 * @param index 島の番号
+	 */
+	private RemoteIsland(Island<T> island, SolutionCodec<T> codec, String host, int port, int index)
+	{
+		this.island = island;
+		this.codec = codec;
+		this.host = host;
+		this.port = port;
+		this.index = index;
+	}
+
+	/**
+	 * 島のプロセスで島の計算を行い、結果を中継に送ります。<br>
+	 * argumentsには{@link RemoteIslandModel#run}が島のプロセスに渡した引数をそのまま指定します。<br>
+	 * @param <T> 移住する解の型
+	 * @param island 島
+	 * @param codec 解の変換
+	 * @param arguments 中継のホスト名 ポート番号 島の番号 起動回数 シード 世代数 移住間隔 移住解の数 移住方針(以降の引数は無視)
+	 */
+	public static <T> void run(Island<T> island, SolutionCodec<T> codec, String[] arguments)
+	{
+		String host = arguments[0];
+		int port = Integer.valueOf(arguments[1]);
+		int index = Integer.valueOf(arguments[2]);
+		int attempt = Integer.valueOf(arguments[3]);
+		long seed = Long.valueOf(arguments[4]);
+		int numberOfIterations = Integer.valueOf(arguments[5]);
+		IslandModel<T> model = new IslandModel<T>(IslandModel.TOPOLOGY_RING,
+				Integer.valueOf(arguments[6]), Integer.valueOf(arguments[7]), Integer.valueOf(arguments[8]));
+
+		//乱数列はIslandModelと同じく島ごとに分割し、起動し直した場合はさらに分割する
+		island.setPolicy(model.getPolicy());
+		RandomStream random = new RandomStream(seed).split(index);
+		island.setRandom(attempt == 0 ? random : random.split(attempt));
+
+		new RemoteIsland<T>(island, codec, host, port, index).evolve(model, numberOfIterations);
+	}
+
+	/**
+	 * 島の全世代を計算し、結果を送ります。<br>
+	 * @param model 移住の設定
+	 * @param numberOfIterations 世代数
+	 */
+	private void evolve(IslandModel<T> model, int numberOfIterations)
+	{
+		connect(1);
+
+		island.initialize();
+		for(int iterate=0; iterate<numberOfIterations; iterate++)
+		{
+			//届いている移住解をすべて受け取る
+			List<T> immigrants = new ArrayList<T>();
+			T immigrant;
+			while((immigrant = inbox.poll()) != null)	immigrants.add(immigrant);
+
+			island.iterate(iterate, immigrants);
+
+			if(!model.migrates(iterate, numberOfIterations))	continue;
+			if(!send(RemoteIslandModel.MESSAGE_MIGRANTS, codec.encode(island.emigrate(model.getNumberOfMigrants())), 1))
+			{
+				Logging.logger.warning((index+1) + "番目の島: 中継に接続できないため移住解を捨てます。");
+			}
+		}
+
+		//結果を送り、受信通知を待つ
+		byte[] result = codec.encode(island.getSolutions());
+		for(int i=0; i<CONNECT_ATTEMPTS; i++)
+		{
+			if(send(RemoteIslandModel.MESSAGE_FINAL, result, CONNECT_ATTEMPTS) && await())
+			{
+				close();
+				Logging.logger.info((index+1) + "番目の島の計算を終了しました。");
+				return;
+			}
+		}
+		close();
+		Logging.logger.severe((index+1) + "番目の島: 結果を中継に送れませんでした。");
+		throw new IllegalStateException("cannot send result to relay");
+	}
+
+	/**
+	 * メッセージを送ります。接続が切れていれば接続し直します。<br>
+	 * @param type メッセージの種類
+	 * @param payload メッセージの内容
+	 * @param attempts 接続の試行回数
+	 * @return 送れた場合true
+	 */
+	private boolean send(byte type, byte[] payload, int attempts)
+	{
+		Connection current = connection;
+		if(current == null)	current = connect(attempts);
+		if(current == null)	return false;
+		try {
+			current.send(type, payload);
+			return true;
+		} catch (IOException e) {
+			disconnect(current);
+			current = connect(attempts);	//1度だけ接続し直して送り直す
+			if(current == null)	return false;
+			try {
+				current.send(type, payload);
+				return true;
+			} catch (IOException retry) {
+				disconnect(current);
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * 中継に接続して島の番号を通知し、受信スレッドを開始します。<br>
+	 * @param attempts 接続の試行回数
+	 * @return 接続(接続できなければnull)
+	 */
+	private Connection connect(int attempts)
+	{
+		for(int i=0; i<attempts; i++)
+		{
+			try {
+				final Connection current = new Connection(new Socket(host, port));
+				ByteArrayOutputStream hello = new ByteArrayOutputStream();
+				new DataOutputStream(hello).writeInt(index);
+				current.send(RemoteIslandModel.MESSAGE_HELLO, hello.toByteArray());
+				connection = current;
+
+				Thread receiver = new Thread(new Runnable() {
+					public void run()	{ receive(current); }
+				}, "island-receiver");
+				receiver.setDaemon(true);
+				receiver.start();
+				return current;
+			} catch (IOException e) {
+				if(i+1 < attempts)	sleep(CONNECT_INTERVAL);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 中継からのメッセージを受け取ります。(受信スレッドで実行)<br>
+	 * 読み込みに失敗した場合と、移住解を変換できない場合は接続を閉じます。<br>
+	 * @param current 接続
+	 */
+	private void receive(Connection current)
+	{
+		try {
+			while(true)
+			{
+				Message message = RemoteIslandModel.readMessage(current.input);
+				if(message.type == RemoteIslandModel.MESSAGE_MIGRANTS)	inbox.addAll(codec.decode(message.payload));
+				else if(message.type == RemoteIslandModel.MESSAGE_ACK)	acknowledged.countDown();
+			}
+		} catch (IOException e) {
+			disconnect(current);
+		} catch (RuntimeException e) {
+			Logging.logger.warning((index+1) + "番目の島: 移住解を変換できないため接続を閉じます。" + e.getMessage());
+			disconnect(current);
+		}
+	}
+
+	/**
+	 * 結果の受信通知を待ちます。<br>
+	 * @return 受信通知が届いた場合true
+	 */
+	private boolean await()
+	{
+		try {
+			return acknowledged.await(ACK_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * 接続を閉じます。<br>
+	 * @param current 閉じる接続
+	 */
+	private synchronized void disconnect(Connection current)
+	{
+		if(connection == current)	connection = null;
+		current.close();
+	}
+
+	/**
+	 * 中継との接続を閉じます。<br>
+	 */
+	private void close()
+	{
+		Connection current = connection;
+		if(current != null)	disconnect(current);
+	}
+
+	/**
+	 * 指定時間待ちます。<br>
+	 * @param millis 待ち時間[ms]
+	 */
+	private static void sleep(long millis)
+	{
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
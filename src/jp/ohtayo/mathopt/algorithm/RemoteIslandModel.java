@@ -0,0 +1,437 @@
+package jp.ohtayo.mathopt.algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.core.SolutionCodec;
+
+/**
+ * 島ごとに別のプロセスを起動して島モデルを計算するクラスです。<br>
+ * 1つのJVMのヒープに収まらない規模の計算を、複数のプロセスに分けて行います。<br>
+ * 本クラスは島のプロセスを起動し、TCPで接続してきた島の間で移住解を中継します。<br>
+ * 島のプロセス側の処理は{@link RemoteIsland}が行います。<br>
+ * 移住解は{@link SolutionCodec}のバイナリ形式で送り、中継では変換しません。<br>
+ * 接続の切れた島への移住解は再接続まで保持し、島のプロセスが結果を送らずに終了した場合は指定回数まで起動し直します。<br>
+ * 起動またはメッセージの受信から一定時間何も届かない島のプロセスは、止まったものとして強制終了し、同じく起動し直します。<br>
+ * 起動し直しても結果を送らなかった島は除き、残りの島の結果をまとめて返します。<br>
+ *
+ * @param <T> 移住する解の型(粒子・個体)
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class RemoteIslandModel<T> {
+
+	/** 島の番号の通知(島→中継)	*/	static final byte MESSAGE_HELLO = 1;
+	/** 移住解(島→中継→島)	*/	static final byte MESSAGE_MIGRANTS = 2;
+	/** 計算結果(島→中継)	*/	static final byte MESSAGE_FINAL = 3;
+	/** 計算結果の受信通知(中継→島)	*/	static final byte MESSAGE_ACK = 4;
+
+	/** 島のプロセスの監視間隔[ms]	*/	private static final long MONITOR_INTERVAL = 200L;
+	/** 強制終了したプロセスの終了の待ち時間[s]	*/	private static final long DESTROY_TIMEOUT = 10L;
+
+	/** 移住の設定	*/	private final IslandModel<T> model;
+	/** 解の変換	*/	private final SolutionCodec<T> codec;
+	/** 島のプロセスを起動し直す回数	*/	private int numberOfRestarts = 3;
+	/** 島のプロセスの応答の待ち時間[ms]	*/	private long timeout = 600000L;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param model 移住トポロジ・間隔・解の数・方針を設定した島モデル
+	 * @param codec 解の変換
+	 */
+	public RemoteIslandModel(IslandModel<T> model, SolutionCodec<T> codec)
+	{
+		this.model = model;
+		this.codec = codec;
+	}
+
+	/**
+	 * 結果を送らずに終了した島のプロセスを起動し直す回数を設定します。<br>
+	 * @param numberOfRestarts 起動し直す回数(0なら起動し直さない)
+	 */
+	public void setNumberOfRestarts(int numberOfRestarts)
+	{
+		this.numberOfRestarts = numberOfRestarts;
+	}
+
+	/**
+	 * 島のプロセスの応答の待ち時間を設定します。<br>
+	 * 起動または最後のメッセージの受信からこの時間を過ぎても何も届かない島のプロセスは強制終了します。<br>
+	 * 移住間隔の世代数を計算するのにかかる時間より十分長くしてください。<br>
+	 * @param timeout 待ち時間[ms](0以下なら強制終了しない)
+	 */
+	public void setTimeout(long timeout)
+	{
+		this.timeout = timeout;
+	}
+
+	/**
+	 * 島のプロセスを起動して島モデルの計算を行い、すべての島の結果をまとめて返します。<br>
+	 * 島のプロセスは現在のJVMと同じjavaコマンドとクラスパスで、次の引数を付けてmainClassを起動します。<br>
+	 * 中継のホスト名 ポート番号 島の番号 起動回数 シード 世代数 移住間隔 移住解の数 移住方針 arguments...<br>
+	 * mainClassではこれらの引数で{@link RemoteIsland#run}を呼び出してください。<br>
+	 * @param numberOfIslands 島の数
+	 * @param numberOfIterations 世代数
+	 * @param seed 乱数のシード
+	 * @param mainClass 島のプロセスのメインクラス名
+	 * @param arguments 島のプロセスに渡す追加の引数
+	 * @return 結果を送ったすべての島の解
+	 */
+	public List<T> run(int numberOfIslands, int numberOfIterations, long seed, String mainClass, String... arguments)
+	{
+		final int size = numberOfIslands;
+		final AtomicReferenceArray<Connection> connections = new AtomicReferenceArray<Connection>(size);
+		final AtomicReferenceArray<byte[]> results = new AtomicReferenceArray<byte[]>(size);
+		final AtomicLongArray activity = new AtomicLongArray(size);	//島ごとの最後の起動・受信の時刻[ns]
+		final List<ConcurrentLinkedQueue<byte[]>> pending = new ArrayList<ConcurrentLinkedQueue<byte[]>>(size);
+		for(int i=0; i<size; i++)	pending.add(new ConcurrentLinkedQueue<byte[]>());
+
+		ServerSocket server;
+		try {
+			server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		} catch (IOException e) {
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("cannot open relay socket", e);
+		}
+		final ServerSocket listener = server;
+
+		//島からの接続を受け付ける
+		Thread acceptor = new Thread(new Runnable() {
+			public void run()
+			{
+				while(!listener.isClosed())
+				{
+					try {
+						final Socket socket = listener.accept();
+						Thread reader = new Thread(new Runnable() {
+							public void run()	{ relay(socket, connections, results, pending, activity); }
+						}, "island-relay");
+						reader.setDaemon(true);
+						reader.start();
+					} catch (IOException e) {
+						if(!listener.isClosed())	Logging.logger.warning(e.getMessage());
+					}
+				}
+			}
+		}, "island-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		//島のプロセスを起動して、結果が揃うか起動し直せなくなるまで監視する
+		Process[] processes = new Process[size];
+		int[] attempts = new int[size];
+		boolean[] failed = new boolean[size];
+		try {
+			for(int i=0; i<size; i++)
+			{
+				activity.set(i, System.nanoTime());
+				processes[i] = spawn(listener.getLocalPort(), i, 0, seed, numberOfIterations, mainClass, arguments);
+			}
+			while(true)
+			{
+				int finished = 0;
+				for(int i=0; i<size; i++)
+				{
+					if(results.get(i) != null || failed[i])	{ finished++; continue; }
+					if(processes[i].isAlive())
+					{
+						//応答のないプロセスは強制終了し、終了したプロセスと同じく扱う
+						if(timeout <= 0 || System.nanoTime() - activity.get(i) < TimeUnit.MILLISECONDS.toNanos(timeout))	continue;
+						Logging.logger.warning((i+1) + "番目の島のプロセスから" + timeout + "ms応答がないため強制終了します。");
+						processes[i].destroyForcibly().waitFor(DESTROY_TIMEOUT, TimeUnit.SECONDS);
+						if(results.get(i) != null)	{ finished++; continue; }
+					}
+					if(attempts[i] < numberOfRestarts)
+					{
+						attempts[i]++;
+						Logging.logger.warning((i+1) + "番目の島のプロセスが終了したため起動し直します。(" + attempts[i] + "回目)");
+						activity.set(i, System.nanoTime());
+						processes[i] = spawn(listener.getLocalPort(), i, attempts[i], seed, numberOfIterations, mainClass, arguments);
+					}
+					else
+					{
+						failed[i] = true;
+						Logging.logger.severe((i+1) + "番目の島のプロセスが結果を送らずに終了しました。この島の結果は除きます。");
+					}
+				}
+				if(finished == size)	break;
+				Thread.sleep(MONITOR_INTERVAL);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("island model was interrupted", e);
+		} finally {
+			for(int i=0; i<size; i++)	if(processes[i] != null)	terminate(processes[i]);
+			try {
+				listener.close();
+			} catch (IOException e) {
+				Logging.logger.warning(e.getMessage());
+			}
+			for(int i=0; i<size; i++)	if(connections.get(i) != null)	connections.get(i).close();
+		}
+
+		//結果をまとめる
+		List<T> solutions = new ArrayList<T>();
+		for(int i=0; i<size; i++)
+		{
+			if(results.get(i) == null)	continue;
+			try {
+				solutions.addAll(codec.decode(results.get(i)));
+			} catch (RuntimeException e) {
+				Logging.logger.severe((i+1) + "番目の島の結果を変換できません。この島の結果は除きます。" + e.getMessage());
+			}
+		}
+		if(solutions.isEmpty())
+		{
+			Logging.logger.severe("すべての島のプロセスが結果を送らずに終了しました。");
+			throw new IllegalStateException("all islands failed");
+		}
+		return solutions;
+	}
+
+	/**
+	 * 1つの島との接続でメッセージを受け取り、移住解を中継します。(接続ごとのスレッドで実行)<br>
+	 * @param socket 島との接続
+	 * @param connections 島ごとの接続
+	 * @param results 島ごとの計算結果
+	 * @param pending 島ごとの未送信の移住解
+	 * @param activity 島ごとの最後の起動・受信の時刻[ns]
+	 */
+	private void relay(Socket socket, AtomicReferenceArray<Connection> connections, AtomicReferenceArray<byte[]> results,
+			List<ConcurrentLinkedQueue<byte[]>> pending, AtomicLongArray activity)
+	{
+		Connection connection;
+		int index;
+		try {
+			connection = new Connection(socket);
+			Message hello = readMessage(connection.input);
+			if(hello.type != MESSAGE_HELLO)	throw new IOException("unexpected message: " + hello.type);
+			index = new DataInputStream(new ByteArrayInputStream(hello.payload)).readInt();
+			if(index < 0 || index >= connections.length())	throw new IOException("illegal island index: " + index);
+		} catch (IOException e) {
+			Logging.logger.warning("島との接続に失敗しました。" + e.getMessage());
+			closeQuietly(socket);
+			return;
+		}
+
+		//再接続なら古い接続を閉じて置き換え、保持していた移住解を送る
+		activity.set(index, System.nanoTime());
+		Connection previous = connections.getAndSet(index, connection);
+		if(previous != null)	previous.close();
+		flush(index, connections, pending);
+		Logging.logger.info((index+1) + "番目の島が接続しました。");
+
+		try {
+			while(true)
+			{
+				Message message = readMessage(connection.input);
+				activity.set(index, System.nanoTime());
+				if(message.type == MESSAGE_MIGRANTS)
+				{
+					int[] destination = model.destinations(index, connections.length());
+					for(int i=0; i<destination.length; i++)
+					{
+						if(results.get(destination[i]) != null)	continue;	//計算を終えた島には送らない
+						pending.get(destination[i]).add(message.payload);
+						flush(destination[i], connections, pending);
+					}
+				}
+				else if(message.type == MESSAGE_FINAL)
+				{
+					results.compareAndSet(index, null, message.payload);
+					connection.send(MESSAGE_ACK, new byte[0]);
+				}
+			}
+		} catch (IOException e) {
+			//島の終了・切断。再接続を待つ
+			connections.compareAndSet(index, connection, null);
+			connection.close();
+		}
+	}
+
+	/**
+	 * 島に未送信の移住解を送ります。<br>
+	 * 接続がないか送信に失敗した場合は、再接続まで保持します。<br>
+	 * @param index 島の番号
+	 * @param connections 島ごとの接続
+	 * @param pending 島ごとの未送信の移住解
+	 */
+	private static void flush(int index, AtomicReferenceArray<Connection> connections, List<ConcurrentLinkedQueue<byte[]>> pending)
+	{
+		Connection connection = connections.get(index);
+		if(connection == null)	return;
+		ConcurrentLinkedQueue<byte[]> queue = pending.get(index);
+		byte[] payload;
+		while((payload = queue.poll()) != null)
+		{
+			try {
+				connection.send(MESSAGE_MIGRANTS, payload);
+			} catch (IOException e) {
+				queue.add(payload);
+				connections.compareAndSet(index, connection, null);
+				connection.close();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 島のプロセスを起動します。<br>
+	 * @param port 中継のポート番号
+	 * @param index 島の番号
+	 * @param attempt 起動回数(初回は0)
+	 * @param seed 乱数のシード
+	 * @param numberOfIterations 世代数
+	 * @param mainClass 島のプロセスのメインクラス名
+	 * @param arguments 島のプロセスに渡す追加の引数
+	 * @return プロセス
+	 */
+	private Process spawn(int port, int index, int attempt, long seed, int numberOfIterations, String mainClass, String[] arguments)
+	{
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(mainClass);
+		command.add(InetAddress.getLoopbackAddress().getHostAddress());
+		command.add(String.valueOf(port));
+		command.add(String.valueOf(index));
+		command.add(String.valueOf(attempt));
+		command.add(String.valueOf(seed));
+		command.add(String.valueOf(numberOfIterations));
+		command.add(String.valueOf(model.getInterval()));
+		command.add(String.valueOf(model.getNumberOfMigrants()));
+		command.add(String.valueOf(model.getPolicy()));
+		for(int i=0; i<arguments.length; i++)	command.add(arguments[i]);
+		try {
+			return new ProcessBuilder(command).inheritIO().start();
+		} catch (IOException e) {
+			Logging.logger.severe((index+1) + "番目の島のプロセスを起動できません。" + e.getMessage());
+			throw new IllegalStateException("cannot start island process", e);
+		}
+	}
+
+	/**
+	 * 島のプロセスの終了を待ち、終了しなければ強制終了します。<br>
+	 * @param process プロセス
+	 */
+	private static void terminate(Process process)
+	{
+		try {
+			if(!process.waitFor(10, TimeUnit.SECONDS))	process.destroyForcibly();
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * メッセージを書き込みます。(種類・長さ・内容の順)<br>
+	 * @param output 出力先
+	 * @param type メッセージの種類
+	 * @param payload メッセージの内容
+	 * @throws IOException 書き込みに失敗した場合
+	 */
+	static void writeMessage(DataOutputStream output, byte type, byte[] payload) throws IOException
+	{
+		output.writeByte(type);
+		output.writeInt(payload.length);
+		output.write(payload);
+		output.flush();
+	}
+
+	/**
+	 * メッセージを読み込みます。<br>
+	 * @param input 入力元
+	 * @return メッセージ
+	 * @throws IOException 読み込みに失敗した場合・接続が切れた場合
+	 */
+	static Message readMessage(DataInputStream input) throws IOException
+	{
+		byte type = input.readByte();
+		int length = input.readInt();
+		if(length < 0)	throw new IOException("illegal message length: " + length);
+		byte[] payload = new byte[length];
+		input.readFully(payload);
+		return new Message(type, payload);
+	}
+
+	/**
+	 * ソケットを閉じます。閉じるときの例外は無視します。<br>
+	 * @param socket ソケット
+	 */
+	static void closeQuietly(Socket socket)
+	{
+		try {
+			socket.close();
+		} catch (IOException e) {
+			//閉じられない場合も何もしない
+		}
+	}
+
+	/**
+	 * メッセージのクラス<br>
+	 */
+	static class Message {
+		final byte type;		//種類
+		final byte[] payload;	//内容
+
+		//コンストラクタ
+		Message(byte type, byte[] payload)
+		{
+			this.type = type;
+			this.payload = payload;
+		}
+	}
+
+	/**
+	 * 島との接続のクラス<br>
+	 * 送信は複数の中継スレッドから呼ばれるため同期します。<br>
+	 */
+	static class Connection {
+		final Socket socket;			//ソケット
+		final DataInputStream input;	//入力
+		final DataOutputStream output;	//出力
+
+		//コンストラクタ
+		Connection(Socket socket) throws IOException
+		{
+			this.socket = socket;
+			try {
+				socket.setTcpNoDelay(true);
+			} catch (SocketException e) {
+				//遅延の設定ができなくても通信はできる
+			}
+			this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		//送信
+		synchronized void send(byte type, byte[] payload) throws IOException
+		{
+			writeMessage(output, type, payload);
+		}
+
+		//切断
+		void close()
+		{
+			closeQuietly(socket);
+		}
+	}
+}
@@ -3,10 +3,11 @@ package jp.ohtayo.mathopt.algorithm;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
-import jp.ohtayo.commons.random.Random;
-import jp.ohtayo.commons.util.Cast;
 import jp.ohtayo.mathopt.core.Population;
 import jp.ohtayo.mathopt.core.BinaryIndividual;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
+import jp.ohtayo.mathopt.core.Selection;
 
 /**
  * 遺伝的アルゴリズム(GA)の計算を行うクラスです。<br>
@@ -38,11 +39,71 @@ public class SimpleGeneticAlgorithm {
 			double crossoverRate, 
 			double mutationRate,
 			int eliteNumber)
+	{
+		return main(numberOfBits, numberOfVariables, numberOfPopulations, numberOfIterations,
+				nameOfObjectiveFunction, crossoverRate, mutationRate, eliteNumber, null);
+	}
+
+	/**
+	 * GAのメイン関数です。<br>
+	 * 個体群の評価に指定したスレッドプールを使います。<br>
+	 * @param numberOfBits ビット数
+	 * @param numberOfPopulations 個体数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param crossoverRate 交叉率
+	 * @param mutationRate 突然変異確率
+	 * @param eliteNumber エリート数
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 * @return 最終世代の個体集団のうち最優秀の適応度
+	 */
+	public static double main(
+			int numberOfBits,
+			int numberOfVariables, 
+			int numberOfPopulations, 
+			int numberOfIterations,
+			String nameOfObjectiveFunction, 
+			double crossoverRate, 
+			double mutationRate,
+			int eliteNumber,
+			EvaluationExecutor executor)
+	{
+		return main(numberOfBits, numberOfVariables, numberOfPopulations, numberOfIterations,
+				nameOfObjectiveFunction, crossoverRate, mutationRate, eliteNumber, executor, new RandomStream().getSeed());
+	}
+
+	/**
+	 * GAのメイン関数です。<br>
+	 * 個体群の評価に指定したスレッドプールを使います。評価するのは新しく生成した子のみです。<br>
+	 * 乱数列は世代ごとにシードから分割するため、同じシードであればスレッド数によらず同じ結果になります。<br>
+	 * @param numberOfBits ビット数
+	 * @param numberOfPopulations 個体数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param crossoverRate 交叉率
+	 * @param mutationRate 突然変異確率
+	 * @param eliteNumber エリート数
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 * @param seed 乱数のシード
+	 * @return 最終世代の個体集団のうち最優秀の適応度
+	 */
+	public static double main(
+			int numberOfBits,
+			int numberOfVariables, 
+			int numberOfPopulations, 
+			int numberOfIterations,
+			String nameOfObjectiveFunction, 
+			double crossoverRate, 
+			double mutationRate,
+			int eliteNumber,
+			EvaluationExecutor executor,
+			long seed)
 	{
 		//初期化
+		RandomStream random = new RandomStream(seed);
 		Population parents = new Population(numberOfPopulations);
 		int numberOfObjectives = 1;
-		parents.initialize(numberOfVariables, numberOfBits, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction);
+		parents.initialize(numberOfVariables, numberOfBits, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction, random.split(0), executor);
 		Population children = null;
 		Population parentsElite = null;
 		Population parentsRoulette = null;
@@ -54,18 +115,21 @@ public class SimpleGeneticAlgorithm {
 		for (int iterate = 0; iterate<numberOfIterations; iterate++){
 			Logging.logger.info(iterate+1 + "世代目の計算を始めます。");
 		
-			children = crossover(parents, crossoverRate);
+			//世代ごとの乱数列
+			RandomStream generation = random.split(iterate+1);
+		
+			children = crossover(parents, crossoverRate, generation.split(0));
 			
-			children = mutate(children, mutationRate);
+			children = mutate(children, mutationRate, generation.split(1));
 			
-			parents.evaluate(nameOfObjectiveFunction);
-			children.evaluate(nameOfObjectiveFunction);
+			//親は前の世代で評価済みのため、子のみ評価する
+			children.evaluate(nameOfObjectiveFunction, executor);
 			
 			//親個体と子個体を合わせた個体群を生成
 			Population population = parents.add(children);
 			parentsElite = selectElite(population, eliteNumber);
 			double rate = (double)(numberOfPopulations-eliteNumber)/numberOfPopulations;
-			parentsRoulette = selectRoulette(parents, children, rate);
+			parentsRoulette = selectRoulette(parents, children, rate, generation.split(2));
 			parents = parentsElite.add(parentsRoulette);
 			
 			//最優秀適応度の表示
@@ -102,7 +166,18 @@ public class SimpleGeneticAlgorithm {
 	 */
 	public static Population crossover(Population parent, double rate)
 	{
-		Random random = new Random();
+		return crossover(parent, rate, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列を使って親を交叉して子を生成します。<br>
+	 * @param parent 親個体群
+	 * @param rate 交叉確率
+	 * @param random 乱数列
+	 * @return 子個体群
+	 */
+	public static Population crossover(Population parent, double rate, RandomStream random)
+	{
 		int numberOfBits = ((BinaryIndividual) parent.individual[0]).getNumberOfBits();
 		
 		int[] chromosome0 = new int[parent.individual[0].getVariable().length];
@@ -116,8 +191,7 @@ public class SimpleGeneticAlgorithm {
 		children.setVariables( new Matrix(parent.individual.length, parent.individual[0].getVariable().length, 0.0).get() );	//全部0の行列を作って子供個体群の初期値に設定する。
 		
 		//親を2個体を取り出す順番を決める
-		int[] parentNumber = new int[parent.individual.length];
-		parentNumber = Cast.doubleToInt( random.shuffle(new Vector(0,1,parent.individual.length-1).get()) );
+		int[] parentNumber = random.permutation(parent.individual.length);
 		
 		//2個体ずつ親を選び，子を生成
 		for (int i = 0; i < parent.individual.length; i += 2)
@@ -159,7 +233,18 @@ public class SimpleGeneticAlgorithm {
 	 */
 	public static Population mutate(Population population, double rate)
 	{
-		Random random = new Random();
+		return mutate(population, rate, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列を使って個体群に突然変異を起こします。<br>
+	 * @param population 個体群
+	 * @param rate 突然変異確率
+	 * @param random 乱数列
+	 * @return 突然変異した個体群
+	 */
+	public static Population mutate(Population population, double rate, RandomStream random)
+	{
 		int numberOfBits = ((BinaryIndividual)population.individual[0]).getNumberOfBits();
 		
 		for(int i=0; i<population.individual.length; i++)
@@ -196,8 +281,8 @@ public class SimpleGeneticAlgorithm {
 		Matrix tempfitness = new Matrix(population.getFitness());
 		Vector fitness = tempfitness.getColumn(0);
 		
-		//適応度順にソートしてインデックスを得る
-		int[] index = fitness.sort();
+		//適応度の小さい順にエリート数分のインデックスを得る(全体はソートしない)
+		int[] index = Selection.smallest(fitness.get(), eliteNumber);
 		
 		//次の親個体の生成
 		Population nextGeneration = new Population(eliteNumber);
@@ -225,9 +310,22 @@ public class SimpleGeneticAlgorithm {
 	 * @return 次世代の親個体群
 	 */
 	public static  Population selectRoulette(Population parent, Population children, double rate)
+	{
+		return selectRoulette(parent, children, rate, new RandomStream());
+	}
+
+	/**
+	 * 指定した乱数列を使って親と子の個体群から次世代の親個体群を選択します。<br>
+	 * 選択方法にはルーレット選択を用います。<br>
+	 * @param parent 親個体群
+	 * @param children 子個体群
+	 * @param rate ルーレットで選択する割合
+	 * @param random 乱数列
+	 * @return 次世代の親個体群
+	 */
+	public static  Population selectRoulette(Population parent, Population children, double rate, RandomStream random)
 	{
 		int nextSize = (int)(parent.individual.length*rate);	//次世代個体数
-		Random random = new Random();
 		boolean binary = (parent.individual[0].getClass().getName() == "BinaryIndividual");
 		int numberOfBits=0;
 		if(binary)	numberOfBits = ((BinaryIndividual)parent.individual[0]).getNumberOfBits();
@@ -253,15 +351,16 @@ public class SimpleGeneticAlgorithm {
 		for (int i = 0; i < nextSize; i++)
 		{
 			double roulette = random.nextDouble() * sum;   //ルーレット値を生成
+			int selected = -1;	//当たった個体
+			int last = -1;		//最後にチェックした選択されていない個体
 			for (int j = 0; j < fitness.length(); j++)  //ルーレットの中であたりを探す
 			{
 				if (through[j] == false)    //選択されてないもののみチェック
 				{
+					last = j;
 					if (roulette < fitness.get(j))  //当たっていたら
 					{
-						nextGeneration.individual[i] = population.individual[index[j]].copy();
-						sum -= fitness.get(j);                      //ルーレットからその個体を除く
-						through[j] = true;                          //選択フラグを立てる
+						selected = j;
 						break;
 					}
 					else
@@ -270,6 +369,13 @@ public class SimpleGeneticAlgorithm {
 					}
 				}
 			}
+			//sumの丸め誤差や負の適応度で当たらなかった場合は、最後の選択されていない個体を選ぶ
+			//(未評価の初期個体を次世代に残さない)
+			if (selected < 0)	selected = last;
+			if (selected < 0)	break;
+			nextGeneration.individual[i] = population.individual[index[selected]].copy();
+			sum -= fitness.get(selected);                      //ルーレットからその個体を除く
+			through[selected] = true;                          //選択フラグを立てる
 		}
 		return nextGeneration;
 	}
@@ -3,13 +3,14 @@ package jp.ohtayo.mathopt.algorithm;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
-import jp.ohtayo.commons.math.Numeric;
-import jp.ohtayo.commons.random.Random;
 import jp.ohtayo.mathopt.core.Individual;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.core.RealCodedIndividual;
+import jp.ohtayo.mathopt.function.ObjectiveFunction;
 
 /**
- * 焼きなまし法(シミュレーテッドアニーリング)を計算するプログラムです．
+ * 焼きなまし法(シミュレーテッドアニーリング)を計算するプログラムです．<br>
+ * 複数の温度の鎖を並列に計算するレプリカ交換法は{@link ParallelTempering}で行います．<br>
  *
  * @author ohtayo (ohta.yoshihiro@outlook.jp)
  */
@@ -35,13 +36,38 @@ public class SimulatedAnnealing {
 			double step,
 			double ganma)
 	{
-		Random random = new Random();
+		return main(numberOfVariables, numberOfIterations, nameOfObjectiveFunction, temperature,
+				numberOfAnnealing, step, ganma, new RandomStream().getSeed());
+	}
+
+	/**
+	 * SAのメイン関数です。<br>
+	 * 状態の生成と受理判定にシードから生成した1つの乱数列を使うため、同じシードであれば同じ結果になります。<br>
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfIterations 世代数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param temperature 初期温度
+	 * @param step 変数変更幅
+	 * @param ganma 温度変更比ガンマ値
+	 * @param seed 乱数のシード
+	 * @return 最終世代の適応度
+	 */
+	public static double main(
+			int numberOfVariables, 
+			int numberOfIterations,
+			String nameOfObjectiveFunction, 
+			double temperature,
+			double numberOfAnnealing, 
+			double step,
+			double ganma,
+			long seed)
+	{
+		RandomStream random = new RandomStream(seed);
 		//初期化
-		Individual state = new RealCodedIndividual(numberOfVariables, 1);	//変数＝現在の状態
-		state.setVariable( random.array(state.getNumberOfVariables()) );	//状態の初期化
-		state.evaluate(nameOfObjectiveFunction);		//状態の評価
-		Individual nextState = state.copy();			//次の状態
-		nextState.evaluate(nameOfObjectiveFunction);	//次状態の評価
+		Individual state = new RealCodedIndividual(numberOfVariables, 1);	//表示用の現在の状態
+		double[] current = random.rand(numberOfVariables);	//現在の状態
+		double[] next = new double[numberOfVariables];		//次の状態(使い回す)
+		double energy = evaluate(current, nameOfObjectiveFunction);	//状態の評価
 		
 		Vector bestFitness = new Vector(numberOfIterations);
 		Matrix bestVariables = new Matrix(numberOfIterations, numberOfVariables);
@@ -54,11 +80,16 @@ public class SimulatedAnnealing {
 			for(int a = 0; a < numberOfAnnealing; a++ )
 			{
 				//次状態生成して評価
-				nextState = generate(state, step);	
-				nextState.evaluate(nameOfObjectiveFunction);
-				//受理する場合次状態に遷移
-				if(accept(state.getFitness()[0], nextState.getFitness()[0], temperature))
-					state = nextState.copy();
+				generate(current, next, step, random);
+				double nextEnergy = evaluate(next, nameOfObjectiveFunction);
+				//受理する場合次状態に遷移(配列を入れ替えて次の次状態の生成に使い回す)
+				if(accept(energy, nextEnergy, temperature, random))
+				{
+					double[] temp = current;
+					current = next;
+					next = temp;
+					energy = nextEnergy;
+				}
 			}
 			
 			//クーリング
@@ -66,8 +97,10 @@ public class SimulatedAnnealing {
 			temperature = reduce(temperature, ganma);
 			
 			//最優秀適応度の表示
-			bestFitness.set(iterate, state.getFitness()[0] );
-			bestVariables.setRow(iterate, new Vector(state.getVariable()));
+			state.setVariable(current);
+			state.setFitness(new double[]{energy});
+			bestFitness.set(iterate, energy );
+			bestVariables.setRow(iterate, new Vector(current));
 			Logging.logger.info(state.toString() );
 		}
 		
@@ -92,25 +125,30 @@ public class SimulatedAnnealing {
 	}
 	
 	/**
-	 * 生成関数 現在の状態から次に遷移すべき状態を返す
-	 * @param state 現在の状態
+	 * 生成関数 現在の状態から次に遷移すべき状態を求め、次状態の配列に書き込む
+	 * @param variable 現在の状態
+	 * @param next 次状態を書き込む配列
 	 * @param step 次状態までの距離の基準ステップ
-	 * @return 次状態
+	 * @param random 乱数列
 	 */
-	private static Individual generate(Individual state, double step){
-		//1～-1の配列を作る
-		Vector vector = new Vector(state.getVariable().length, "random").multiply(2).minus(1).round();
-		//±stepの配列にする
-		vector = vector.multiply(step);
-		//Individualに加減算して次のindividualを生成
-		vector = vector.plus(new Vector(state.getVariable()));
-		Individual result = new RealCodedIndividual(state.getVariable().length, 1);
-		result.setVariable(vector.get());
-		
-		//limitをかける
-		result.setVariable( Numeric.limit(result.getVariable(), 1, 0) );
-		
-		return result;
+	static void generate(double[] variable, double[] next, double step, RandomStream random){
+		for(int i=0; i<variable.length; i++)
+		{
+			//-1,0,1のいずれかを±stepにして加減算し、0～1のlimitをかける
+			double value = variable[i] + Math.round(random.nextDouble()*2-1) * step;
+			next[i] = Math.min(1.0, Math.max(0.0, value));
+		}
+	}
+	
+	/**
+	 * 状態を評価し、1番目の適応度をエネルギーとして返す
+	 * @param variable 状態
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @return エネルギー
+	 */
+	static double evaluate(double[] variable, String nameOfObjectiveFunction)
+	{
+		return ((double[])ObjectiveFunction.execute(variable, nameOfObjectiveFunction))[0];
 	}
 	
 	/**
@@ -119,16 +157,17 @@ public class SimulatedAnnealing {
 	 * @param e 現在状態のエネルギー
 	 * @param edash 次状態のエネルギー
 	 * @param temperature 現在の温度
+	 * @param random 乱数列
 	 * @return 受理するかどうか
 	 */
-	private static boolean accept(double e, double edash, double temperature)
+	static boolean accept(double e, double edash, double temperature, RandomStream random)
 	{
 		double delta = edash - e;
 		double probability;
 		if(delta < 0)	probability = 1.0;
 		else	probability = (Math.exp(-delta/temperature));
 		
-		if( new Random().nextDouble() <= probability )	return true;
+		if( random.nextDouble() <= probability )	return true;
 		else return false;
 	}
 	
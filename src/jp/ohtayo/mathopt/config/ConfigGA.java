@@ -3,6 +3,8 @@ package jp.ohtayo.mathopt.config;
 import jp.ohtayo.commons.io.ConfigBase;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Vector;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
 import jp.ohtayo.commons.util.StringUtility;
 
@@ -21,6 +23,9 @@ public class ConfigGA extends ConfigBase {
 	/** 交叉確率		*/	public String rateOfCrossOver;
 	/** 突然変異数		*/	public String rateOfMutation;
 	/** エリート数		*/	public String numberOfElite;
+	/** 評価方法(空なら逐次評価、virtualなら仮想スレッド、adaptiveなら評価をまとめて並列評価)	*/	public String evaluation;
+	/** 仮想スレッドでの同時評価数の上限(空なら上限なし)	*/	public String concurrency;
+	/** 乱数のシード(空なら時刻から決める)	*/	public String seed;
 
 	/**
 	 * 入力エラーチェックをします。
@@ -88,5 +93,27 @@ public class ConfigGA extends ConfigBase {
 			Logging.logger.severe("numberOfEliteが異常値です。");
 			throw new IllegalArgumentException();
 		}
+		EvaluationExecutor.validate(evaluation, concurrency);
+	}
+
+	/**
+	 * 乱数のシードを返します。<br>
+	 * 空欄なら時刻から決めたシードを設定し直すため、2回目以降も同じシードを返します。<br>
+	 * @return シード
+	 */
+	public long getSeed()
+	{
+		if (StringUtility.isNullOrEmpty(seed))	seed = String.valueOf(new RandomStream().getSeed());
+		return Long.valueOf(seed);
+	}
+
+	/**
+	 * 評価方法の設定に従って評価用のスレッドプールを生成します。<br>
+	 * 計算の終了後に{@link EvaluationExecutor#close()}で閉じてください。<br>
+	 * @return 仮想スレッドか評価をまとめるスレッドプール、逐次評価ならnull
+	 */
+	public EvaluationExecutor createEvaluationExecutor()
+	{
+		return EvaluationExecutor.create(evaluation, concurrency, Runtime.getRuntime().availableProcessors());
 	}
 }
@@ -4,6 +4,9 @@ import jp.ohtayo.commons.io.ConfigBase;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.util.StringUtility;
+import jp.ohtayo.mathopt.algorithm.IslandModel;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
 
 /**
@@ -22,6 +25,53 @@ public class ConfigMOPSO extends ConfigBase {
 	/** ε値		*/	public String epsilon;
 	/** α値		*/	public String alpha;
 	/** 初期解	*/	public String filenameOfInitialSolutions;
+	/** アーカイブ方式(空ならランク付けによる選択)	*/	public String archive;
+	/** 境界ランクの密度評価(空なら近傍距離)	*/	public String density;
+	/** 優越関係を世代をまたいで保持するか(trueで保持)	*/	public String incrementalRanking;
+	/** 評価のスレッド数(空ならプロセッサ数)	*/	public String numberOfThreads;
+	/** 評価方法(空なら逐次評価、virtualなら仮想スレッド、adaptiveなら評価をまとめて並列評価)	*/	public String evaluation;
+	/** 仮想スレッドでの同時評価数の上限(空なら上限なし)	*/	public String concurrency;
+	/** 粒子ごとに非同期に計算するか(trueで非同期、アーカイブ方式が空ならndtree)	*/	public String asynchronous;
+	/** 評価中に前の世代の選択・保存を行うか(trueで重ねる)	*/	public String pipelined;
+	/** 島モデルの島の数(空ならプロセッサ数)	*/	public String numberOfIslands;
+	/** 移住トポロジ(空ならring、fullなら全島へ移住)	*/	public String migrationTopology;
+	/** 移住間隔(世代数)	*/	public String migrationInterval;
+	/** 1回の移住で送る解の数	*/	public String numberOfMigrants;
+	/** 移住方針(空ならbestworst、randomならランダムな解どうし)	*/	public String migrationPolicy;
+	/** 乱数のシード(空なら時刻から決める)	*/	public String seed;
+
+	/**
+	 * 評価のスレッド数を返します。<br>
+	 * 空欄ならプロセッサ数を返します。<br>
+	 * @return スレッド数
+	 */
+	public int getNumberOfThreads()
+	{
+		if (StringUtility.isNullOrEmpty(numberOfThreads))	return Runtime.getRuntime().availableProcessors();
+		return Integer.valueOf(numberOfThreads);
+	}
+
+	/**
+	 * 島モデルの島の数を返します。<br>
+	 * 空欄ならプロセッサ数を返します。<br>
+	 * @return 島の数
+	 */
+	public int getNumberOfIslands()
+	{
+		if (StringUtility.isNullOrEmpty(numberOfIslands))	return Runtime.getRuntime().availableProcessors();
+		return Integer.valueOf(numberOfIslands);
+	}
+
+	/**
+	 * 乱数のシードを返します。<br>
+	 * 空欄なら時刻から決めたシードを設定し直すため、2回目以降も同じシードを返します。<br>
+	 * @return シード
+	 */
+	public long getSeed()
+	{
+		if (StringUtility.isNullOrEmpty(seed))	seed = String.valueOf(new RandomStream().getSeed());
+		return Long.valueOf(seed);
+	}
 
 	/**
 	 * 入力エラーチェックをします。
@@ -113,5 +163,59 @@ public class ConfigMOPSO extends ConfigBase {
 			Logging.logger.severe("alphaが大きすぎます。");
 			throw new IllegalArgumentException();
 		}
+		//ε-boxアーカイブはε値をboxの大きさに使う
+		if ("epsilonbox".equals(archive) && epsilon <= 0){
+			Logging.logger.severe("epsilonboxアーカイブにはepsilonが必要です。");
+			throw new IllegalArgumentException();
+		}
+		//密度評価は空欄(近傍距離)かcrowding(混雑距離)
+		if (!StringUtility.isNullOrEmpty(density) && !"crowding".equals(density)){
+			Logging.logger.severe("densityの指定が異常です。");
+			throw new IllegalArgumentException();
+		}
+		//スレッド数は空欄(プロセッサ数)か1以上
+		if (!StringUtility.isNullOrEmpty(numberOfThreads) && Integer.valueOf(numberOfThreads) < 1){
+			Logging.logger.severe("スレッド数(numberOfThreads)が少なすぎます。");
+			throw new IllegalArgumentException();
+		}
+		EvaluationExecutor.validate(evaluation, concurrency);
+		//島の数は空欄(プロセッサ数)か1以上、移住トポロジは空欄(ring)かring/full、移住方針は空欄(bestworst)かbestworst/random
+		if (!StringUtility.isNullOrEmpty(numberOfIslands) && Integer.valueOf(numberOfIslands) < 1){
+			Logging.logger.severe("島の数(numberOfIslands)が少なすぎます。");
+			throw new IllegalArgumentException();
+		}
+		if (!StringUtility.isNullOrEmpty(migrationTopology) && !"ring".equals(migrationTopology) && !"full".equals(migrationTopology)){
+			Logging.logger.severe("migrationTopologyの指定が異常です。");
+			throw new IllegalArgumentException();
+		}
+		if (!StringUtility.isNullOrEmpty(migrationPolicy) && !"bestworst".equals(migrationPolicy) && !"random".equals(migrationPolicy)){
+			Logging.logger.severe("migrationPolicyの指定が異常です。");
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * 評価方法の設定に従って評価用のスレッドプールを生成します。<br>
+	 * 計算の終了後に{@link EvaluationExecutor#close()}で閉じてください。<br>
+	 * @return 仮想スレッドか評価をまとめるスレッドプール、逐次評価ならnull
+	 */
+	public EvaluationExecutor createEvaluationExecutor()
+	{
+		return EvaluationExecutor.create(evaluation, concurrency, getNumberOfThreads());
+	}
+
+	/**
+	 * 移住の設定に従って島モデルを生成します。<br>
+	 * 移住間隔と移住解の数が空欄なら、それぞれ10世代と1つとします。<br>
+	 * @param <T> 移住する解の型
+	 * @return 島モデル
+	 */
+	public <T> IslandModel<T> createIslandModel()
+	{
+		int topology = "full".equals(migrationTopology) ? IslandModel.TOPOLOGY_FULL : IslandModel.TOPOLOGY_RING;
+		int policy = "random".equals(migrationPolicy) ? IslandModel.POLICY_RANDOM_RANDOM : IslandModel.POLICY_BEST_WORST;
+		int interval = StringUtility.isNullOrEmpty(migrationInterval) ? 10 : Integer.valueOf(migrationInterval);
+		int migrants = StringUtility.isNullOrEmpty(numberOfMigrants) ? 1 : Integer.valueOf(numberOfMigrants);
+		return new IslandModel<T>(topology, interval, migrants, policy);
 	}
 }
@@ -4,6 +4,9 @@ import jp.ohtayo.commons.io.ConfigBase;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.commons.math.Vector;
 import jp.ohtayo.commons.util.StringUtility;
+import jp.ohtayo.mathopt.algorithm.PSO;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.core.RandomStream;
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
 /**
  * 粒子群最適化(PSO)のコンフィグ設定をXMLで外部に保存・読込するクラスです。<br>
@@ -19,6 +22,11 @@ public class ConfigPSO extends ConfigBase {
 	/** 重みw		*/	public String weight;
 	/** 定数c1		*/	public String constant1;
 	/** 定数c2		*/	public String constant2;
+	/** 評価方法(空なら逐次評価、virtualなら仮想スレッド、adaptiveなら評価をまとめて並列評価)	*/	public String evaluation;
+	/** 仮想スレッドでの同時評価数の上限(空なら上限なし)	*/	public String concurrency;
+	/** 粒子の並列計算(空なら並列計算しない、synchronousなら世代ごとに同期、asynchronousなら同期しない)	*/	public String parallel;
+	/** 並列計算のスレッド数(空ならプロセッサ数)	*/	public String numberOfThreads;
+	/** 乱数のシード(空なら時刻から決める)	*/	public String seed;
 		
 	/**
 	 * 入力エラーチェックをします。
@@ -87,5 +95,58 @@ public class ConfigPSO extends ConfigBase {
 			Logging.logger.severe("c2が異常値です。");
 			throw new IllegalArgumentException();
 		}
+		EvaluationExecutor.validate(evaluation, concurrency);
+		//並列計算は空欄(並列計算しない)かsynchronous/asynchronous、スレッド数は空欄(プロセッサ数)か1以上
+		if (!StringUtility.isNullOrEmpty(parallel) && !"synchronous".equals(parallel) && !"asynchronous".equals(parallel)){
+			Logging.logger.severe("parallelの指定が異常です。");
+			throw new IllegalArgumentException();
+		}
+		if (!StringUtility.isNullOrEmpty(numberOfThreads) && Integer.valueOf(numberOfThreads) < 1){
+			Logging.logger.severe("スレッド数(numberOfThreads)が少なすぎます。");
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * 粒子の並列計算のスレッド数を返します。<br>
+	 * 並列計算しない場合は0、スレッド数が空欄ならプロセッサ数を返します。<br>
+	 * @return スレッド数
+	 */
+	public int getNumberOfThreads()
+	{
+		if (StringUtility.isNullOrEmpty(parallel))	return 0;
+		if (StringUtility.isNullOrEmpty(numberOfThreads))	return Runtime.getRuntime().availableProcessors();
+		return Integer.valueOf(numberOfThreads);
+	}
+
+	/**
+	 * 粒子の並列計算でのグローバルベストの反映方法を返します。<br>
+	 * @return asynchronousならPSO.PROPAGATION_ASYNCHRONOUS、それ以外はPSO.PROPAGATION_SYNCHRONOUS
+	 */
+	public int getPropagation()
+	{
+		if ("asynchronous".equals(parallel))	return PSO.PROPAGATION_ASYNCHRONOUS;
+		return PSO.PROPAGATION_SYNCHRONOUS;
+	}
+
+	/**
+	 * 乱数のシードを返します。<br>
+	 * 空欄なら時刻から決めたシードを設定し直すため、2回目以降も同じシードを返します。<br>
+	 * @return シード
+	 */
+	public long getSeed()
+	{
+		if (StringUtility.isNullOrEmpty(seed))	seed = String.valueOf(new RandomStream().getSeed());
+		return Long.valueOf(seed);
+	}
+
+	/**
+	 * 評価方法の設定に従って評価用のスレッドプールを生成します。<br>
+	 * 計算の終了後に{@link EvaluationExecutor#close()}で閉じてください。<br>
+	 * @return 仮想スレッドか評価をまとめるスレッドプール、逐次評価ならnull
+	 */
+	public EvaluationExecutor createEvaluationExecutor()
+	{
+		return EvaluationExecutor.create(evaluation, concurrency, Runtime.getRuntime().availableProcessors());
 	}
 }
@@ -0,0 +1,72 @@
+package jp.ohtayo.mathopt.core;
+
+/**
+ * 多目的最適化の非劣解を保持するアーカイブの抽象クラスです。<br>
+ * 粒子を追加すると優越判定を行い、非劣解のみを保持します。<br>
+ * 保持している非劣解からリーダー粒子をランダムに取り出すメソッドを提供します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public abstract class Archive {
+
+	/**
+	 * 粒子をアーカイブに追加します。<br>
+	 * 粒子はコピーして保持します。<br>
+	 * @param particle 追加する粒子
+	 * @return 追加された場合true / 他の解に優越されて追加されなかった場合false
+	 */
+	abstract public boolean add(Particle particle);
+
+	/**
+	 * 粒子群のすべての粒子をアーカイブに追加します。<br>
+	 * @param swarm 追加する粒子群
+	 * @return 追加された粒子の数
+	 */
+	public int add(Swarm swarm)
+	{
+		int count = 0;
+		for(int i=0; i<swarm.particle.length; i++)
+		{
+			if(add(swarm.particle[i]))	count++;
+		}
+		return count;
+	}
+
+	/**
+	 * 保持している解の数を返します。<br>
+	 * @return 解の数
+	 */
+	abstract public int size();
+
+	/**
+	 * 保持している解を返します。<br>
+	 * 番号は解の追加・削除によって変わります。<br>
+	 * @param index 解の番号(0～size()-1)
+	 * @return 解の粒子
+	 */
+	abstract public Particle get(int index);
+
+	/**
+	 * 保持している解からランダムに1つ取り出します。<br>
+	 * @param random 0以上1未満の乱数
+	 * @return 取り出した粒子
+	 */
+	public Particle sample(double random)
+	{
+		return get( (int)Math.floor(size() * random) );
+	}
+
+	/**
+	 * 保持している解を粒子群として返します。(別メモリ確保)<br>
+	 * @return 粒子群
+	 */
+	public Swarm toSwarm()
+	{
+		Swarm result = new Swarm(size());
+		for(int i=0; i<result.particle.length; i++)
+		{
+			result.particle[i] = get(i).copy();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,153 @@
+package jp.ohtayo.mathopt.core;
+
+/**
+ * NSGA-IIの混雑距離(crowding distance)を計算するクラスです。<br>
+ * 目的ごとに解の番号を適応度で1回ずつソートし、両隣の解の適応度の差の和を混雑距離とします。<br>
+ * 計算量はO(M・N log N)で、作業用の配列はインスタンス内で使い回すため、同じ大きさ以下の計算ではメモリを確保しません。<br>
+ * 作業用の配列を共有するため、1つのインスタンスを複数スレッドから同時に使うことはできません。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class CrowdingDistance {
+
+	/** 挿入ソートに切り替える要素数	*/	private static final int INSERTION_SORT_SIZE = 16;
+
+	/** ソートする解の番号	*/	private int[] index = new int[0];
+	/** ソートのキー		*/	private double[] key = new double[0];
+
+	/**
+	 * 混雑距離を計算します。<br>
+	 * 各目的の最大・最小の解はDouble.MAX_VALUEとします。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @return 混雑距離
+	 */
+	public double[] calculate(double[][] fitness)
+	{
+		double[] distance = new double[fitness.length];
+		calculate(fitness, fitness.length, distance);
+		return distance;
+	}
+
+	/**
+	 * 先頭からnumber個の解の混雑距離を計算し、distanceに格納します。<br>
+	 * 各目的の最大・最小の解はDouble.MAX_VALUEとします。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @param number 計算する解の数
+	 * @param distance 混雑距離の格納先(長さnumber以上)
+	 */
+	public void calculate(double[][] fitness, int number, double[] distance)
+	{
+		for(int i=0; i<number; i++)	distance[i] = 0.0;
+		if(number == 0)	return;
+		if(number <= 2)
+		{
+			for(int i=0; i<number; i++)	distance[i] = Double.MAX_VALUE;
+			return;
+		}
+
+		//作業用配列が足りなければ確保し直す
+		if(index.length < number)
+		{
+			index = new int[number];
+			key = new double[number];
+		}
+
+		int numberOfObjectives = fitness[0].length;
+		for(int o=0; o<numberOfObjectives; o++)
+		{
+			for(int i=0; i<number; i++)
+			{
+				index[i] = i;
+				key[i] = fitness[i][o];
+			}
+			sort(0, number-1);
+
+			//両端の解は最大値
+			distance[index[0]] = Double.MAX_VALUE;
+			distance[index[number-1]] = Double.MAX_VALUE;
+			double range = key[number-1] - key[0];
+			if(range == 0.0)	continue;
+
+			//両隣の解の差を加算
+			for(int k=1; k<number-1; k++)
+			{
+				if(distance[index[k]] == Double.MAX_VALUE)	continue;
+				distance[index[k]] += (key[k+1] - key[k-1]) / range;
+			}
+		}
+	}
+
+	/**
+	 * keyの昇順にkeyとindexを並べ替えます。(クイックソート)<br>
+	 * 再帰は小さい側のみ行い、要素数が少なければ挿入ソートに切り替えます。<br>
+	 * @param left 左端
+	 * @param right 右端(この位置を含む)
+	 */
+	private void sort(int left, int right)
+	{
+		while(right - left >= INSERTION_SORT_SIZE)
+		{
+			//3つの中央値をピボットにする
+			int middle = (left + right) >>> 1;
+			if(key[middle] < key[left])		swap(middle, left);
+			if(key[right] < key[left])		swap(right, left);
+			if(key[right] < key[middle])	swap(right, middle);
+			double pivot = key[middle];
+
+			int i = left;
+			int j = right;
+			while(i <= j)
+			{
+				while(key[i] < pivot)	i++;
+				while(key[j] > pivot)	j--;
+				if(i <= j)
+				{
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if(j - left < right - i)
+			{
+				sort(left, j);
+				left = i;
+			}
+			else
+			{
+				sort(i, right);
+				right = j;
+			}
+		}
+
+		//挿入ソート
+		for(int i=left+1; i<=right; i++)
+		{
+			double k = key[i];
+			int n = index[i];
+			int j = i-1;
+			while(j >= left && key[j] > k)
+			{
+				key[j+1] = key[j];
+				index[j+1] = index[j];
+				j--;
+			}
+			key[j+1] = k;
+			index[j+1] = n;
+		}
+	}
+
+	/**
+	 * keyとindexのi番目とj番目を入れ替えます。<br>
+	 * @param i 位置i
+	 * @param j 位置j
+	 */
+	private void swap(int i, int j)
+	{
+		double k = key[i];
+		key[i] = key[j];
+		key[j] = k;
+		int n = index[i];
+		index[i] = index[j];
+		index[j] = n;
+	}
+}
@@ -0,0 +1,313 @@
+package jp.ohtayo.mathopt.core;
+
+/**
+ * 解集合の優越判定をまとめて行うクラスです。<br>
+ * 適応度を行優先の連続した1次元配列に詰め直し、1つの解と最大64個の解の組について、<br>
+ * 「優越している」「優越されている」の両方向の判定結果を1回の走査でビットマスクとして求めます。<br>
+ * 判定は{@link Rank#dominated(double[], double[], double, double)}、<br>
+ * および{@link Rank#dominated(double[], double[], double[], double[], double, double)}と同じ結果になります。<br>
+ * α-dominationでは差の二乗和を1回だけ計算し、両方向の判定に共用します。<br>
+ * 構築後は読み出しのみのため、複数スレッドから同時に使うことができます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class DominanceKernel {
+
+	/** キャッシュに載せるブロックの行数	*/	public static final int TILE = 256;
+	/** 1回の比較でまとめる解の数		*/	public static final int WORD = 64;
+
+	/** 制約なし			*/	private static final int NO_CONSTRAINT = 0;
+	/** 制約数1(違反量で比較)	*/	private static final int SINGLE_CONSTRAINT = 1;
+	/** 制約数2以上(違反数で比較)	*/	private static final int MULTI_CONSTRAINT = 2;
+
+	/** 解の数			*/	private final int number;
+	/** 目的数			*/	private final int objectives;
+	/** 適応度(行優先)		*/	private final double[] block;
+	/** 優越判定の閾値(行優先、ε=0ならblockと同じ)	*/	private final double[] threshold;
+	/** α値(0ならα-dominationを使わない)	*/	private final double alpha;
+	/** 制約の種類			*/	private final int constraintMode;
+	/** 制約違反量、もしくは制約違反数	*/	private final double[] violation;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param fitness 適応度行列
+	 * @param epsilon ε値(0より大きければε-domination)
+	 */
+	public DominanceKernel(double[][] fitness, double epsilon)
+	{
+		this(fitness, null, epsilon, 0.0);
+	}
+
+	/**
+	 * コンストラクタ<br>
+	 * @param fitness 適応度行列
+	 * @param constraint 制約違反量行列(nullなら制約なし)
+	 * @param epsilon ε値(0より大きければε-domination)
+	 */
+	public DominanceKernel(double[][] fitness, double[][] constraint, double epsilon)
+	{
+		this(fitness, constraint, epsilon, 0.0);
+	}
+
+	/**
+	 * コンストラクタ<br>
+	 * @param fitness 適応度行列
+	 * @param constraint 制約違反量行列(nullなら制約なし)
+	 * @param epsilon ε値(0より大きければε-domination)
+	 * @param alpha α値(0より大きければα-domination、εより優先)
+	 */
+	public DominanceKernel(double[][] fitness, double[][] constraint, double epsilon, double alpha)
+	{
+		this.alpha = (alpha > 0.0) ? alpha : 0.0;
+		number = fitness.length;
+		objectives = (number > 0) ? fitness[0].length : 0;
+
+		//適応度を連続した配列に詰める
+		block = new double[number * objectives];
+		for(int i=0; i<number; i++)	System.arraycopy(fitness[i], 0, block, i*objectives, objectives);
+
+		//ε-dominationの閾値(basis*(1-ε))を前計算する
+		if(epsilon > 0.0 && !(alpha > 0.0))
+		{
+			threshold = new double[block.length];
+			for(int k=0; k<block.length; k++)	threshold[k] = block[k]*(1-epsilon);
+		}
+		else
+		{
+			threshold = block;
+		}
+
+		//制約は違反量(制約数1)か違反している制約の数(制約数2以上)に要約する
+		int numberOfConstraints = (constraint == null || number == 0) ? 0 : constraint[0].length;
+		if(numberOfConstraints == 0)
+		{
+			constraintMode = NO_CONSTRAINT;
+			violation = null;
+		}
+		else if(numberOfConstraints == 1)
+		{
+			constraintMode = SINGLE_CONSTRAINT;
+			violation = new double[number];
+			for(int i=0; i<number; i++)	violation[i] = constraint[i][0];
+		}
+		else
+		{
+			constraintMode = MULTI_CONSTRAINT;
+			violation = new double[number];
+			for(int i=0; i<number; i++)
+			{
+				int count = 0;
+				for(int c=0; c<numberOfConstraints; c++)	if(constraint[i][c] != 0)	count++;
+				violation[i] = count;
+			}
+		}
+	}
+
+	/**
+	 * 解の数を返します。<br>
+	 * @return 解の数
+	 */
+	public int size()	{ return number; }
+
+	/**
+	 * i番目の解とstart～end-1番目の解(最大64個)の優越関係をビットマスクで求めます。<br>
+	 * mask[0]のビットkはi番目の解がstart+k番目の解に優越していること、<br>
+	 * mask[1]のビットkはstart+k番目の解がi番目の解に優越していることを表します。<br>
+	 * 同じ解同士(i番目自身)も判定するため、必要なら呼び出し側で除いてください。<br>
+	 * @param i 解の番号
+	 * @param start 比較する解の開始番号
+	 * @param end 比較する解の終了番号(この番号を含まない、end-start≦64)
+	 * @param mask ビットマスクの格納先(長さ2)
+	 */
+	public void compare(int i, int start, int end, long[] mask)
+	{
+		long dominates = 0L;
+		long dominatedBy = 0L;
+		int bi = i*objectives;
+		for(int j=start; j<end; j++)
+		{
+			int bj = j*objectives;
+
+			//両方向の判定を分岐なしで1回の走査で行う
+			boolean iDominatesJ = true;
+			boolean jDominatesI = true;
+			if(alpha > 0.0)
+			{
+				int code = compareAlpha(bi, bj);
+				iDominatesJ = (code & 1) != 0;
+				jDominatesI = (code & 2) != 0;
+			}
+			else
+			{
+				for(int o=0; o<objectives; o++)
+				{
+					iDominatesJ &= block[bj+o] >= threshold[bi+o];
+					jDominatesI &= block[bi+o] >= threshold[bj+o];
+				}
+			}
+
+			//制約があれば制約違反で判定が決まる場合を上書きする
+			if(constraintMode == SINGLE_CONSTRAINT)
+			{
+				double vi = violation[i];
+				double vj = violation[j];
+				if(vi > 0 && vj > 0)
+				{
+					iDominatesJ = vj >= vi;
+					jDominatesI = vi >= vj;
+				}
+				else if(vi > 0)
+				{
+					iDominatesJ = false;
+					jDominatesI = true;
+				}
+				else if(vj > 0)
+				{
+					iDominatesJ = true;
+					jDominatesI = false;
+				}
+			}
+			else if(constraintMode == MULTI_CONSTRAINT && violation[i] != violation[j])
+			{
+				iDominatesJ = violation[i] > violation[j];
+				jDominatesI = !iDominatesJ;
+			}
+
+			long bit = 1L << (j-start);
+			if(iDominatesJ)	dominates |= bit;
+			if(jDominatesI)	dominatedBy |= bit;
+		}
+		mask[0] = dominates;
+		mask[1] = dominatedBy;
+	}
+
+	/**
+	 * 各解が優越されている個数をcountに加算します。<br>
+	 * 解の組の上三角のみをブロックごとに走査し、1回の判定で両方向の個数を数えます。<br>
+	 * @param count 優越されている個数の配列(長さは解の数)
+	 */
+	public void countDominators(int[] count)
+	{
+		long[] mask = new long[2];
+		for(int ti=0; ti<number; ti+=TILE)
+		{
+			int iEnd = Math.min(ti+TILE, number);
+			for(int tj=ti; tj<number; tj+=TILE)
+			{
+				int jEnd = Math.min(tj+TILE, number);
+				for(int i=ti; i<iEnd; i++)
+				{
+					//同じブロック内はiより後ろの解のみ
+					int jStart = (tj == ti) ? i+1 : tj;
+					for(int s=jStart; s<jEnd; s+=WORD)
+					{
+						compare(i, s, Math.min(s+WORD, jEnd), mask);
+						count[i] += Long.bitCount(mask[1]);
+						long bits = mask[0];
+						while(bits != 0L)
+						{
+							count[s + Long.numberOfTrailingZeros(bits)]++;
+							bits &= bits-1;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * start～end-1番目の解について、優越されている個数をcountに加算します。<br>
+	 * 各解を全ての解と比較するため、行ブロックごとに並列計算できます。<br>
+	 * @param count 優越されている個数の配列
+	 * @param start 開始行
+	 * @param end 終了行(この行を含まない)
+	 */
+	public void countDominators(int[] count, int start, int end)
+	{
+		countDominators(count, start, end, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * start～end-1番目の解について、優越されている個数をcountに加算します。<br>
+	 * 個数がlimit以上になった解はそこで比較を打ち切るため、countにはlimit以上の不正確な値が入ります。<br>
+	 * @param count 優越されている個数の配列
+	 * @param start 開始行
+	 * @param end 終了行(この行を含まない)
+	 * @param limit 比較を打ち切る個数
+	 */
+	public void countDominators(int[] count, int start, int end, int limit)
+	{
+		countDominators(count, start, end, limit, null);
+	}
+
+	/**
+	 * start～end-1番目の解について、優越されている個数をcountに加算します。<br>
+	 * i番目の解に優越し得る解がbound[i]番目より前にしかないことが分かっている場合、比較をそこまでにとどめます。<br>
+	 * 個数がlimit以上になった解はそこで比較を打ち切るため、countにはlimit以上の不正確な値が入ります。<br>
+	 * @param count 優越されている個数の配列
+	 * @param start 開始行
+	 * @param end 終了行(この行を含まない)
+	 * @param limit 比較を打ち切る個数
+	 * @param bound 解ごとの比較する解の終了番号(nullなら全ての解と比較)
+	 */
+	public void countDominators(int[] count, int start, int end, int limit, int[] bound)
+	{
+		long[] mask = new long[2];
+		for(int i=start; i<end; i++)
+		{
+			int columnEnd = (bound == null) ? number : bound[i];
+			for(int s=0; s<columnEnd && count[i]<limit; s+=WORD)
+			{
+				int e = Math.min(s+WORD, columnEnd);
+				compare(i, s, e, mask);
+				long bits = mask[1];
+				if(i >= s && i < e)	bits &= ~(1L << (i-s));	//自身は除く
+				count[i] += Long.bitCount(bits);
+			}
+		}
+	}
+
+	/**
+	 * α-dominationで2つの解の優越関係を両方向とも判定します。<br>
+	 * 差の二乗和と勝っている目的数を1回の走査で求め、勝っている目的以外の距離は二乗和からの引き算で求めます。<br>
+	 * @param bi 解iの先頭位置
+	 * @param bj 解jの先頭位置
+	 * @return 解iが解jに優越していればビット0、解jが解iに優越していればビット1を立てた値
+	 */
+	private int compareAlpha(int bi, int bj)
+	{
+		//解jから見た差(basis=j, target=i)
+		int winI = 0;	//解iが勝っている目的数
+		int winJ = 0;	//解jが勝っている目的数
+		double total = 0.0;
+		for(int o=0; o<objectives; o++)
+		{
+			double difference = block[bj+o] - block[bi+o];
+			if(difference > 0)	winI++;
+			if(difference < 0)	winJ++;
+			total += difference*difference;
+		}
+
+		//勝ってる目的のいずれかで、他の目的の距離×αより大きく勝っていれば優越されない
+		boolean strongI = false;
+		boolean strongJ = false;
+		if((winI > 0 && winI < objectives) || (winJ > 0 && winJ < objectives))
+		{
+			for(int o=0; o<objectives; o++)
+			{
+				double difference = block[bj+o] - block[bi+o];
+				if(difference == 0)	continue;
+				double others = total - difference*difference;
+				if(others < 0)	others = 0;
+				double limit = Math.sqrt(others)*alpha;
+				if(difference > 0 && limit < difference)	strongI = true;
+				if(difference < 0 && limit < -difference)	strongJ = true;
+			}
+		}
+
+		//jがiに優越: iが全目的で勝てばfalse、iが1つも勝たなければtrue、それ以外はiが大きく勝っていなければtrue
+		boolean jDominatesI = (winI == objectives) ? false : (winI == 0) ? true : !strongI;
+		boolean iDominatesJ = (winJ == objectives) ? false : (winJ == 0) ? true : !strongJ;
+		return (iDominatesJ ? 1 : 0) | (jDominatesI ? 2 : 0);
+	}
+}
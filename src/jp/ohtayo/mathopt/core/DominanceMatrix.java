@@ -0,0 +1,233 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 世代をまたいで優越関係を保持するビット行列のクラスです。<br>
+ * 粒子の識別番号(Particle.id)をキーに優越関係を保持し、ランク付けのたびに新しく加わった粒子の行・列のみを計算し、<br>
+ * いなくなった粒子の行・列は削除します。k個の粒子が入れ替わる場合、1世代の計算量はO(N・k)です。<br>
+ * 同じ識別番号の粒子は同じ適応度・制約違反量を持つことを前提とします。<br>
+ * 優越判定は{@link Rank#dominated(double[], double[], double[], double[], double, double)}と同じです。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class DominanceMatrix {
+
+	/** ε値				*/	private double epsilon;
+	/** α値				*/	private double alpha;
+
+	/** 識別番号から行番号への対応	*/	private final HashMap<Long, Integer> slotOf = new HashMap<Long, Integer>();
+	/** 行番号ごとの適応度		*/	private double[][] fitness = new double[0][];
+	/** 行番号ごとの制約違反量	*/	private double[][] constraint = new double[0][];
+	/** 行番号が使われているか	*/	private boolean[] used = new boolean[0];
+	/** 優越されている個数		*/	private int[] count = new int[0];
+	/** 優越関係(行の解が列の解に優越していればビットを立てる)	*/	private long[] bits = new long[0];
+	/** 1行のlong数			*/	private int words = 0;
+	/** 使われている行の数		*/	private int size = 0;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 */
+	public DominanceMatrix(double epsilon, double alpha)
+	{
+		this.epsilon = epsilon;
+		this.alpha = alpha;
+	}
+
+	/**
+	 * 保持している粒子の数を返します。<br>
+	 * @return 粒子の数
+	 */
+	public int size()	{ return size; }
+
+	/**
+	 * 保持している優越関係をすべて削除します。<br>
+	 */
+	public void clear()
+	{
+		slotOf.clear();
+		fitness = new double[0][];
+		constraint = new double[0][];
+		used = new boolean[0];
+		count = new int[0];
+		bits = new long[0];
+		words = 0;
+		size = 0;
+	}
+
+	/**
+	 * 粒子群のランク付けを行います。ランク付けにはFlemingの方法を用います。<br>
+	 * 保持している粒子を粒子群に合わせて更新し、新しい粒子の優越関係のみを計算します。<br>
+	 * ε・α値が前回と異なる場合は、保持している優越関係を削除して計算し直します。<br>
+	 * 識別番号のない粒子や、粒子群の中で識別番号が重複する粒子は、その回のみ計算します。<br>
+	 * @param swarm 粒子群
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @return 解のランク配列({@link Rank#ranking(double[][], double[][], double, double)}と同一)
+	 */
+	public int[] ranking(Swarm swarm, double epsilon, double alpha)
+	{
+		if(epsilon != this.epsilon || alpha != this.alpha)
+		{
+			clear();
+			this.epsilon = epsilon;
+			this.alpha = alpha;
+		}
+
+		Particle[] particle = swarm.particle;
+		int[] slot = new int[particle.length];
+		boolean[] temporary = new boolean[particle.length];
+
+		//粒子群にいなくなった粒子を削除する
+		HashMap<Long, Integer> current = new HashMap<Long, Integer>();
+		for(int i=0; i<particle.length; i++)
+		{
+			long id = particle[i].id;
+			if(id < 0 || current.containsKey(id))	temporary[i] = true;
+			else									current.put(id, i);
+		}
+		Iterator<Map.Entry<Long, Integer>> iterator = slotOf.entrySet().iterator();
+		while(iterator.hasNext())
+		{
+			Map.Entry<Long, Integer> entry = iterator.next();
+			if(!current.containsKey(entry.getKey()))
+			{
+				remove(entry.getValue());
+				iterator.remove();
+			}
+		}
+
+		//新しい粒子を追加する
+		for(int i=0; i<particle.length; i++)
+		{
+			if(temporary[i])
+			{
+				slot[i] = insert(particle[i]);
+				continue;
+			}
+			Integer s = slotOf.get(particle[i].id);
+			if(s == null)
+			{
+				s = insert(particle[i]);
+				slotOf.put(particle[i].id, s);
+			}
+			slot[i] = s;
+		}
+
+		//優越されている個数+1がランク
+		int[] rank = new int[particle.length];
+		for(int i=0; i<particle.length; i++)	rank[i] = count[slot[i]] + 1;
+
+		//その回限りの粒子は削除する
+		for(int i=0; i<particle.length; i++)	if(temporary[i])	remove(slot[i]);
+
+		return rank;
+	}
+
+	/**
+	 * 粒子を空いている行に追加し、既存の粒子との優越関係を計算します。<br>
+	 * @param particle 粒子
+	 * @return 行番号
+	 */
+	private int insert(Particle particle)
+	{
+		//空いている行を探し、なければ行列を広げる
+		int s = 0;
+		while(s < used.length && used[s])	s++;
+		if(s == used.length)	grow();
+
+		used[s] = true;
+		fitness[s] = particle.fitness.clone();
+		constraint[s] = particle.constraintViolation.clone();
+		count[s] = 0;
+		size++;
+
+		//既存の粒子との両方向の優越関係
+		for(int t=0; t<used.length; t++)
+		{
+			if(t == s || !used[t])	continue;
+			if(Rank.dominated(fitness[t], fitness[s], constraint[t], constraint[s], epsilon, alpha))
+			{
+				set(t, s);
+				count[s]++;
+			}
+			if(Rank.dominated(fitness[s], fitness[t], constraint[s], constraint[t], epsilon, alpha))
+			{
+				set(s, t);
+				count[t]++;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * 行を削除し、その粒子に優越されていた粒子の個数を減らします。<br>
+	 * @param s 行番号
+	 */
+	private void remove(int s)
+	{
+		//行sのビットが立っている列の個数を減らして行を消す
+		int row = s*words;
+		for(int w=0; w<words; w++)
+		{
+			long b = bits[row+w];
+			while(b != 0L)
+			{
+				count[w*64 + Long.numberOfTrailingZeros(b)]--;
+				b &= b-1;
+			}
+			bits[row+w] = 0L;
+		}
+		//列sのビットを消す
+		int word = s >>> 6;
+		long mask = ~(1L << (s & 63));
+		for(int t=0; t<used.length; t++)	bits[t*words + word] &= mask;
+
+		used[s] = false;
+		fitness[s] = null;
+		constraint[s] = null;
+		count[s] = 0;
+		size--;
+	}
+
+	/**
+	 * 行sの列tのビットを立てます。<br>
+	 * @param s 行番号
+	 * @param t 列番号
+	 */
+	private void set(int s, int t)
+	{
+		bits[s*words + (t >>> 6)] |= 1L << (t & 63);
+	}
+
+	/**
+	 * 行列の大きさを2倍(最低64行)に広げます。<br>
+	 */
+	private void grow()
+	{
+		int capacity = Math.max(64, used.length*2);
+		int newWords = capacity >>> 6;
+		long[] newBits = new long[capacity*newWords];
+		for(int s=0; s<used.length; s++)	System.arraycopy(bits, s*words, newBits, s*newWords, words);
+
+		double[][] newFitness = new double[capacity][];
+		double[][] newConstraint = new double[capacity][];
+		boolean[] newUsed = new boolean[capacity];
+		int[] newCount = new int[capacity];
+		System.arraycopy(fitness, 0, newFitness, 0, used.length);
+		System.arraycopy(constraint, 0, newConstraint, 0, used.length);
+		System.arraycopy(used, 0, newUsed, 0, used.length);
+		System.arraycopy(count, 0, newCount, 0, used.length);
+
+		bits = newBits;
+		words = newWords;
+		fitness = newFitness;
+		constraint = newConstraint;
+		used = newUsed;
+		count = newCount;
+	}
+}
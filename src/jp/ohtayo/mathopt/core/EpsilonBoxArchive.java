@@ -0,0 +1,269 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * ε-box支配(Laumanns et al., 2002)で非劣解を管理するアーカイブクラスです。<br>
+ * 正規化した適応度をεごとの格子(box)に区切り、1つのboxには1つの解だけを保持します。<br>
+ * boxはハッシュマップで管理し、同じboxの解との比較は定数時間で行います。<br>
+ * boxの座標は目的ごとに順序付きの索引でも管理し、新しいboxに優越するbox・優越されるboxの候補は、<br>
+ * 全目的の索引を並行にたどって最初にたどり終えた(候補が最も少ない)目的の範囲だけから探します。<br>
+ * 保持する解の数は格子の大きさで上限が決まるため、長時間の計算でもメモリ使用量が増え続けません。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class EpsilonBoxArchive extends Archive {
+
+	/** boxの大きさ(正規化後の値)	*/	private final double epsilon;
+	/** 正規化に使う最大値		*/	private final double[] maxValue;
+	/** 正規化に使う最小値		*/	private final double[] minValue;
+	/** boxごとの解			*/	private final HashMap<Box, Entry> boxes = new HashMap<Box, Entry>();
+	/** 保持している解		*/	private final ArrayList<Entry> entries = new ArrayList<Entry>();
+	/** 目的ごとのboxの座標の索引	*/	private ArrayList<NavigableSet<Entry>> index;
+	/** 解の通し番号(索引で同じ座標の解を区別する)	*/	private long serial = 0;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param epsilon boxの大きさ(正規化後の値、0より大きい)
+	 * @param maxValue 正規化に使う目的関数の最大値(nullなら正規化しない)
+	 * @param minValue 正規化に使う目的関数の最小値(nullなら正規化しない)
+	 */
+	public EpsilonBoxArchive(double epsilon, double[] maxValue, double[] minValue)
+	{
+		if(!(epsilon > 0.0))	throw new IllegalArgumentException("illegal epsilon");
+		this.epsilon = epsilon;
+		this.maxValue = maxValue;
+		this.minValue = minValue;
+	}
+
+	/**
+	 * boxの大きさを返します。<br>
+	 * @return boxの大きさ
+	 */
+	public double getEpsilon()	{ return epsilon; }
+
+	@Override
+	public int size()	{ return entries.size(); }
+
+	@Override
+	public Particle get(int index)	{ return entries.get(index).particle; }
+
+	@Override
+	public boolean add(Particle particle)
+	{
+		Box box = toBox(particle.fitness);
+
+		//同じboxに解があれば、優越している方かboxの角に近い方を残す
+		Entry occupant = boxes.get(box);
+		if(occupant != null)
+		{
+			double[] current = occupant.particle.fitness;
+			if(Rank.dominated(current, particle.fitness))	return false;
+			if(!Rank.dominated(particle.fitness, current)
+					&& cornerDistance(box, current) <= cornerDistance(box, particle.fitness))	return false;
+			occupant.particle = particle.copy();	//boxは同じため索引は変わらない
+			return true;
+		}
+		if(index == null)	createIndex(box.coordinate.length);
+
+		//他のboxに優越されていれば追加しない
+		Entry lower = new Entry(null, box, Long.MIN_VALUE);
+		Entry upper = new Entry(null, box, Long.MAX_VALUE);
+		ArrayList<Iterator<Entry>> candidates = new ArrayList<Iterator<Entry>>();
+		for(int o=0; o<index.size(); o++)	candidates.add(index.get(o).headSet(upper, true).iterator());
+		if(!search(candidates, box, true).isEmpty())	return false;
+
+		//追加するboxに優越されるboxを削除
+		candidates.clear();
+		for(int o=0; o<index.size(); o++)	candidates.add(index.get(o).tailSet(lower, true).iterator());
+		for(Entry entry : search(candidates, box, false))
+		{
+			boxes.remove(entry.box);
+			for(int o=0; o<index.size(); o++)	index.get(o).remove(entry);
+			removeEntry(entry);
+		}
+
+		Entry entry = new Entry(particle.copy(), box, serial++);
+		entry.position = entries.size();
+		entries.add(entry);
+		boxes.put(box, entry);
+		for(int o=0; o<index.size(); o++)	index.get(o).add(entry);
+		return true;
+	}
+
+	/**
+	 * 目的ごとの索引を作ります。<br>
+	 * @param numberOfObjectives 目的の数
+	 */
+	private void createIndex(int numberOfObjectives)
+	{
+		index = new ArrayList<NavigableSet<Entry>>(numberOfObjectives);
+		for(int o=0; o<numberOfObjectives; o++)
+		{
+			final int objective = o;
+			index.add(new TreeSet<Entry>(new Comparator<Entry>() {
+				public int compare(Entry a, Entry b)
+				{
+					if(a.box.coordinate[objective] != b.box.coordinate[objective])
+						return (a.box.coordinate[objective] < b.box.coordinate[objective]) ? -1 : 1;
+					return (a.serial < b.serial) ? -1 : ((a.serial == b.serial) ? 0 : 1);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * 目的ごとの候補の範囲を1つずつ並行にたどり、boxに優越する(またはboxに優越される)解を探します。<br>
+	 * 優越関係にある解はすべての目的の範囲に含まれるため、いずれかの範囲をたどり終えた時点で探索を終えます。<br>
+	 * たどる解の数は最も狭い範囲の解の数×目的数以下になります。<br>
+	 * @param candidates 目的ごとの候補の範囲
+	 * @param box 比較するbox
+	 * @param dominating trueならboxに優越する解を1つ探す / falseならboxに優越される解をすべて探す
+	 * @return 見つかった解
+	 */
+	private LinkedHashSet<Entry> search(ArrayList<Iterator<Entry>> candidates, Box box, boolean dominating)
+	{
+		LinkedHashSet<Entry> found = new LinkedHashSet<Entry>();
+		while(true)
+		{
+			for(int o=0; o<candidates.size(); o++)
+			{
+				Iterator<Entry> iterator = candidates.get(o);
+				if(!iterator.hasNext())	return found;
+				Entry entry = iterator.next();
+				if(dominating)
+				{
+					if(entry.box.dominates(box))
+					{
+						found.add(entry);
+						return found;
+					}
+				}
+				else if(box.dominates(entry.box))
+				{
+					found.add(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 解の一覧から末尾の解と入れ替えて解を削除します。<br>
+	 * @param entry 削除する解
+	 */
+	private void removeEntry(Entry entry)
+	{
+		Entry last = entries.remove(entries.size()-1);
+		if(last != entry)
+		{
+			last.position = entry.position;
+			entries.set(entry.position, last);
+		}
+	}
+
+	/**
+	 * 適応度を正規化した値を返します。<br>
+	 * @param fitness 適応度
+	 * @param o 目的の番号
+	 * @return 正規化した値
+	 */
+	private double normalize(double[] fitness, int o)
+	{
+		if(maxValue == null || minValue == null || maxValue[o] == minValue[o])	return fitness[o];
+		return (fitness[o] - minValue[o]) / (maxValue[o] - minValue[o]);
+	}
+
+	/**
+	 * 適応度が属するboxを求めます。<br>
+	 * @param fitness 適応度
+	 * @return box
+	 */
+	private Box toBox(double[] fitness)
+	{
+		long[] coordinate = new long[fitness.length];
+		for(int o=0; o<fitness.length; o++)
+		{
+			coordinate[o] = (long)Math.floor(normalize(fitness, o) / epsilon);
+		}
+		return new Box(coordinate);
+	}
+
+	/**
+	 * boxの角(各目的の最小値側)から適応度までの距離の二乗を返します。<br>
+	 * @param box box
+	 * @param fitness 適応度
+	 * @return 距離の二乗
+	 */
+	private double cornerDistance(Box box, double[] fitness)
+	{
+		double sum = 0.0;
+		for(int o=0; o<fitness.length; o++)
+		{
+			double d = normalize(fitness, o) - box.coordinate[o] * epsilon;
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	/**
+	 * 格子の座標を表すクラス<br>
+	 */
+	private static class Box {
+		private final long[] coordinate;	//格子の座標
+		private final int hash;				//ハッシュ値
+
+		//コンストラクタ
+		Box(long[] coordinate)
+		{
+			this.coordinate = coordinate;
+			this.hash = Arrays.hashCode(coordinate);
+		}
+
+		//自身が別のboxに優越しているか(同じboxは除く)
+		boolean dominates(Box other)
+		{
+			boolean different = false;
+			for(int o=0; o<coordinate.length; o++)
+			{
+				if(coordinate[o] > other.coordinate[o])	return false;
+				if(coordinate[o] != other.coordinate[o])	different = true;
+			}
+			return different;
+		}
+
+		@Override
+		public int hashCode()	{ return hash; }
+
+		@Override
+		public boolean equals(Object object)
+		{
+			if(!(object instanceof Box))	return false;
+			return Arrays.equals(coordinate, ((Box)object).coordinate);
+		}
+	}
+
+	/**
+	 * アーカイブに保持する解<br>
+	 */
+	private static class Entry {
+		private Particle particle;			//粒子
+		private final Box box;				//属するbox
+		private final long serial;			//通し番号
+		private int position;				//解の一覧での位置
+
+		//コンストラクタ
+		Entry(Particle particle, Box box, long serial)
+		{
+			this.particle = particle;
+			this.box = box;
+			this.serial = serial;
+		}
+	}
+}
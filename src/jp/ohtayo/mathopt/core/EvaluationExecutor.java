@@ -0,0 +1,353 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.lang.reflect.Method;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.commons.util.StringUtility;
+
+/**
+ * 解の評価をマルチスレッドで行うためのスレッドプールのクラスです。<br>
+ * 計算の開始時に1度だけスレッドを生成し、世代ごとの評価タスクをまとめて渡して、全タスクの終了をラッチで待ちます。<br>
+ * 世代ごとにスレッドプールを生成・終了しないため、評価が短い目的関数でもスレッド生成の時間がかかりません。<br>
+ * 計算の終了時には{@link #close()}でスレッドを終了してください。<br>
+ * 外部のシミュレータ等を待つ目的関数向けに、仮想スレッドで評価するモード({@link #newVirtualThreadExecutor(int)})も提供します。<br>
+ * 評価が非常に短い目的関数向けに、評価時間を計測して複数の評価をまとめて1タスクとするモード({@link #newAdaptiveExecutor(int)})も提供します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class EvaluationExecutor implements AutoCloseable {
+
+	/** 1タスクの目標時間[ns]	*/	private static final long TARGET_CHUNK_NANOS = 200000L;
+
+	/** スレッドプール	*/	private final ExecutorService executor;
+	/** スレッド数(仮想スレッドなら同時評価数の上限、上限なしは0)	*/	private final int numberOfThreads;
+	/** 同時評価数の制限(nullなら制限なし)	*/	private final Semaphore semaphore;
+	/** 仮想スレッドで評価するか	*/	private final boolean virtual;
+	/** 評価をまとめるForkJoinPool(nullならタスクごとに評価)	*/	private final ForkJoinPool forkJoinPool;
+	/** 1評価あたりの時間の推定値[ns](未計測なら負)	*/	private volatile double nanosPerTask = -1.0;
+
+	/**
+	 * コンストラクタ<br>
+	 * スレッド名は"evaluation-thread-番号"(番号は1から)とします。<br>
+	 * @param numberOfThreads スレッド数
+	 */
+	public EvaluationExecutor(int numberOfThreads)
+	{
+		if(numberOfThreads < 1)
+		{
+			Logging.logger.severe("スレッド数(numberOfThreads)が少なすぎます。");
+			throw new IllegalArgumentException("illegal number of threads: " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+		this.executor = Executors.newFixedThreadPool(numberOfThreads, new DaemonThreadFactory());
+		this.semaphore = null;
+		this.virtual = false;
+		this.forkJoinPool = null;
+	}
+
+	/**
+	 * スレッドプールを指定するコンストラクタ<br>
+	 * @param executor スレッドプール
+	 * @param concurrency 同時評価数の上限(0以下なら上限なし)
+	 * @param virtual 仮想スレッドか
+	 */
+	private EvaluationExecutor(ExecutorService executor, int concurrency, boolean virtual)
+	{
+		this.executor = executor;
+		this.numberOfThreads = (concurrency > 0) ? concurrency : 0;
+		this.semaphore = (concurrency > 0) ? new Semaphore(concurrency) : null;
+		this.virtual = virtual;
+		this.forkJoinPool = null;
+	}
+
+	/**
+	 * ForkJoinPoolを指定するコンストラクタ<br>
+	 * @param forkJoinPool ForkJoinPool
+	 */
+	private EvaluationExecutor(ForkJoinPool forkJoinPool)
+	{
+		this.executor = forkJoinPool;
+		this.numberOfThreads = forkJoinPool.getParallelism();
+		this.semaphore = null;
+		this.virtual = false;
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * 評価時間に合わせて複数の評価をまとめて1タスクとするスレッドプールを生成します。<br>
+	 * 評価ごとの時間を計測し、1タスクがTARGET_CHUNK_NANOS程度になるよう評価をまとめて、ForkJoinPoolのワークスティーリングで分配します。<br>
+	 * 評価の長い目的関数では1評価を1タスクとし、全評価でもTARGET_CHUNK_NANOSに満たない場合は呼び出し元のスレッドで評価します。<br>
+	 * 最初の呼び出しでは評価時間が分からないため、1評価を1タスクとします。<br>
+	 * @param parallelism 並列数
+	 * @return スレッドプール
+	 */
+	public static EvaluationExecutor newAdaptiveExecutor(int parallelism)
+	{
+		if(parallelism < 1)
+		{
+			Logging.logger.severe("スレッド数(numberOfThreads)が少なすぎます。");
+			throw new IllegalArgumentException("illegal number of threads: " + parallelism);
+		}
+		return new EvaluationExecutor(new ForkJoinPool(parallelism));
+	}
+
+	/**
+	 * 評価ごとに仮想スレッドを生成するスレッドプールを生成します。<br>
+	 * 評価中に外部のシミュレータやファイルのやり取りを待つ目的関数では、OSのスレッドを増やさずに多数の評価を同時に待つことができます。<br>
+	 * 同時評価数は外部資源に合わせてconcurrencyで制限します。<br>
+	 * 仮想スレッドの使えないJava(21未満)では、必要に応じてスレッドを生成するスレッドプールで代用します。<br>
+	 * @param concurrency 同時評価数の上限(0以下なら上限なし)
+	 * @return スレッドプール
+	 */
+	public static EvaluationExecutor newVirtualThreadExecutor(int concurrency)
+	{
+		try {
+			//Java 21以上のみにあるメソッドのためリフレクションで呼び出す
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return new EvaluationExecutor((ExecutorService) method.invoke(null), concurrency, true);
+		} catch (Exception e) {
+			Logging.logger.info("仮想スレッドが使えないため、通常のスレッドで評価します。");
+			return new EvaluationExecutor(Executors.newCachedThreadPool(new DaemonThreadFactory()), concurrency, false);
+		}
+	}
+
+	/**
+	 * 設定ファイルの評価方法と同時評価数を確認します。<br>
+	 * 評価方法は空欄(逐次評価)かvirtual(仮想スレッド)かadaptive(評価をまとめて並列評価)、同時評価数は空欄(上限なし)か1以上です。<br>
+	 * @param evaluation 評価方法
+	 * @param concurrency 仮想スレッドでの同時評価数の上限
+	 */
+	public static void validate(String evaluation, String concurrency)
+	{
+		if (!StringUtility.isNullOrEmpty(evaluation) && !"virtual".equals(evaluation) && !"adaptive".equals(evaluation)){
+			Logging.logger.severe("evaluationの指定が異常です。");
+			throw new IllegalArgumentException("illegal evaluation: " + evaluation);
+		}
+		if (!StringUtility.isNullOrEmpty(concurrency) && Integer.valueOf(concurrency) < 1){
+			Logging.logger.severe("同時評価数(concurrency)が少なすぎます。");
+			throw new IllegalArgumentException("illegal concurrency: " + concurrency);
+		}
+	}
+
+	/**
+	 * 設定ファイルの評価方法に従って評価用のスレッドプールを生成します。<br>
+	 * 計算の終了後に{@link #close()}で閉じてください。<br>
+	 * @param evaluation 評価方法(空欄なら逐次評価、virtualなら仮想スレッド、adaptiveなら評価をまとめて並列評価)
+	 * @param concurrency 仮想スレッドでの同時評価数の上限(空欄なら上限なし)
+	 * @param parallelism adaptiveでの並列数
+	 * @return 仮想スレッドか評価をまとめるスレッドプール、逐次評価ならnull
+	 */
+	public static EvaluationExecutor create(String evaluation, String concurrency, int parallelism)
+	{
+		if ("adaptive".equals(evaluation))	return newAdaptiveExecutor(parallelism);
+		if (!"virtual".equals(evaluation))	return null;
+		int limit = StringUtility.isNullOrEmpty(concurrency) ? 0 : Integer.valueOf(concurrency);
+		return newVirtualThreadExecutor(limit);
+	}
+
+	/**
+	 * スレッド数を返します。<br>
+	 * @return スレッド数
+	 */
+	public int getNumberOfThreads()	{ return numberOfThreads; }
+
+	/**
+	 * 仮想スレッドで評価しているかを返します。<br>
+	 * @return 仮想スレッドならtrue
+	 */
+	public boolean isVirtual()	{ return virtual; }
+
+	/**
+	 * 1評価あたりの時間の推定値を返します。<br>
+	 * @return 1評価あたりの時間[ns](評価時間を計測しないモードや未計測なら負)
+	 */
+	public double getNanosPerTask()	{ return nanosPerTask; }
+
+	/**
+	 * タスクをまとめて実行し、全てのタスクが終了するまで待ちます。<br>
+	 * いずれかのタスクで例外が発生した場合、全てのタスクの終了後に最初の例外を投げます。<br>
+	 * @param tasks 実行するタスク
+	 */
+	public void execute(Runnable[] tasks)
+	{
+		if(forkJoinPool != null)
+		{
+			executeAdaptive(tasks);
+			return;
+		}
+
+		final CountDownLatch latch = new CountDownLatch(tasks.length);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+		try {
+			//タスクの終了時にラッチを減らす
+			for(int i=0; i<tasks.length; i++)
+			{
+				final Runnable task = tasks[i];
+				if(semaphore != null)	semaphore.acquire();	//同時評価数が上限なら空くまで待つ
+				executor.execute(new Runnable() {
+					public void run()
+					{
+						try{
+							task.run();
+						}catch(Throwable e){
+							error.compareAndSet(null, e);
+						}finally{
+							if(semaphore != null)	semaphore.release();
+							latch.countDown();
+						}
+					}
+				});
+			}
+
+			//全タスクの終了を待つ
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("evaluation was interrupted", e);
+		}
+
+		if(error.get() != null)
+		{
+			Logging.logger.severe("評価中に例外が発生しました。" + error.get().toString());
+			throw new IllegalStateException("evaluation failed", error.get());
+		}
+	}
+
+	/**
+	 * 評価時間の推定値から決めた数ずつ評価をまとめて実行します。<br>
+	 * @param tasks 実行するタスク
+	 */
+	private void executeAdaptive(Runnable[] tasks)
+	{
+		int size = tasks.length;
+		if(size == 0)	return;
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		LongAdder elapsed = new LongAdder();
+
+		//1タスクにまとめる評価数を決める(最大でも並列数で等分した数)
+		double estimate = nanosPerTask;
+		int chunk = 1;
+		if(estimate >= 0)
+		{
+			int parallelism = forkJoinPool.getParallelism();
+			int maximum = (size + parallelism - 1) / parallelism;
+			chunk = (int)Math.max(1, Math.min(maximum, TARGET_CHUNK_NANOS / Math.max(estimate, 1.0)));
+		}
+
+		if(estimate >= 0 && estimate*size < TARGET_CHUNK_NANOS)
+		{
+			//全評価でも短ければ呼び出し元のスレッドで評価
+			new ChunkTask(tasks, 0, size, size, elapsed, error).compute();
+		}
+		else
+		{
+			forkJoinPool.invoke(new ChunkTask(tasks, 0, size, chunk, elapsed, error));
+		}
+
+		//推定値を更新する(前回の推定値と平均する)
+		double measured = (double)elapsed.sum() / size;
+		nanosPerTask = (estimate < 0) ? measured : (estimate + measured) / 2.0;
+
+		if(error.get() != null)
+		{
+			Logging.logger.severe("評価中に例外が発生しました。" + error.get().toString());
+			throw new IllegalStateException("evaluation failed", error.get());
+		}
+	}
+
+	/**
+	 * 新規タスクの受付を終了し、実行中のタスクの終了を待ってスレッドを終了します。<br>
+	 */
+	public void close()
+	{
+		executor.shutdown();
+		try {
+			if(!executor.awaitTermination(1, TimeUnit.MINUTES))	executor.shutdownNow();
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+		}
+	}
+
+	/**
+	 * 評価をまとめて実行するためのクラス<br>
+	 * 評価数がchunk以下になるまで2分割し、分割したタスクはForkJoinPoolのワークスティーリングで分配されます。<br>
+	 */
+	private static class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Runnable[] tasks;					//評価タスク
+		private final int start;						//開始番号
+		private final int end;							//終了番号
+		private final int chunk;						//1タスクにまとめる評価数
+		private final LongAdder elapsed;				//評価時間の合計[ns]
+		private final AtomicReference<Throwable> error;	//最初に発生した例外
+
+		//コンストラクタ
+		ChunkTask(Runnable[] tasks, int start, int end, int chunk, LongAdder elapsed, AtomicReference<Throwable> error)
+		{
+			this.tasks = tasks;
+			this.start = start;
+			this.end = end;
+			this.chunk = chunk;
+			this.elapsed = elapsed;
+			this.error = error;
+		}
+
+		//実行
+		protected void compute()
+		{
+			//評価数が十分少なければ逐次評価
+			if(end - start <= chunk)
+			{
+				long begin = System.nanoTime();
+				for(int i=start; i<end; i++)
+				{
+					try{
+						tasks[i].run();
+					}catch(Throwable e){
+						error.compareAndSet(null, e);
+					}
+				}
+				elapsed.add(System.nanoTime() - begin);
+				return;
+			}
+			//2分割して並列評価
+			int middle = (start + end) >>> 1;
+			invokeAll(new ChunkTask(tasks, start, middle, chunk, elapsed, error),
+					new ChunkTask(tasks, middle, end, chunk, elapsed, error));
+		}
+	}
+
+	/**
+	 * デーモンスレッドを生成するクラス<br>
+	 * スレッド名は"evaluation-thread-番号"(番号は1から)とします。<br>
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();	//スレッド番号
+
+		//スレッドの生成
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "evaluation-thread-" + count.incrementAndGet());
+			thread.setDaemon(true);	//closeし忘れてもプログラムの終了を妨げない
+			return thread;
+		}
+	}
+}
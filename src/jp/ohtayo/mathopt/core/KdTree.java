@@ -0,0 +1,251 @@
+package jp.ohtayo.mathopt.core;
+
+/**
+ * 適応度空間の近傍探索に用いるk-d木のクラスです。<br>
+ * 点集合から一度だけ木を構築し、マンハッタン距離(L1)またはユークリッド距離(L2)でk近傍探索を行います。<br>
+ * 構築後の木は変更しないため、複数スレッドから同時に探索できます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class KdTree {
+
+	/** マンハッタン距離(L1)	*/	public static final int MANHATTAN = 1;
+	/** ユークリッド距離(L2)	*/	public static final int EUCLIDEAN = 2;
+
+	/** 葉として全探索する点の数	*/	private static final int LEAF_SIZE = 8;
+
+	/** 点集合			*/	private final double[][] point;
+	/** 木の並びの点番号	*/	private final int[] order;
+	/** 各節点の分割次元	*/	private final int[] splitDimension;
+	/** 距離の種類		*/	private final int metric;
+
+	/**
+	 * コンストラクタ<br>
+	 * 点集合からk-d木を構築します。点集合の配列はコピーせずに参照します。<br>
+	 * @param point 点集合(行が点、列が次元)
+	 * @param metric 距離の種類(MANHATTAN/EUCLIDEAN)
+	 */
+	public KdTree(double[][] point, int metric)
+	{
+		if(metric != MANHATTAN && metric != EUCLIDEAN)
+			throw new IllegalArgumentException("illegal metric");
+		this.point = point;
+		this.metric = metric;
+		this.order = new int[point.length];
+		this.splitDimension = new int[point.length];
+		for(int i=0; i<order.length; i++)	order[i] = i;
+		if(point.length > 0)	build(0, point.length);
+	}
+
+	/**
+	 * 点の数を返します。<br>
+	 * @return 点の数
+	 */
+	public int size()	{ return point.length; }
+
+	/**
+	 * 2点間の距離を計算します。<br>
+	 * ユークリッド距離の場合は平方根をとる前の二乗和を返します。<br>
+	 * @param a 点a
+	 * @param b 点b
+	 * @return 距離
+	 */
+	private double distance(double[] a, double[] b)
+	{
+		double sum = 0.0;
+		if(metric == MANHATTAN){
+			for(int o=0; o<a.length; o++)	sum += Math.abs(a[o] - b[o]);
+		}else{
+			for(int o=0; o<a.length; o++){
+				double d = a[o] - b[o];
+				sum += d*d;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * order[start]～order[end-1]の点で部分木を構築します。<br>
+	 * 広がりが最大の次元の中央値で分割し、中央の位置を節点とします。<br>
+	 * @param start 開始位置
+	 * @param end 終了位置(この位置を含まない)
+	 */
+	private void build(int start, int end)
+	{
+		if(end - start <= LEAF_SIZE)	return;
+
+		//広がりが最大の次元を分割次元にする
+		int dimension = 0;
+		double maxSpread = -1.0;
+		for(int o=0; o<point[order[start]].length; o++)
+		{
+			double max = point[order[start]][o];
+			double min = max;
+			for(int i=start+1; i<end; i++)
+			{
+				double value = point[order[i]][o];
+				if(value > max)	max = value;
+				if(value < min)	min = value;
+			}
+			if(max - min > maxSpread)
+			{
+				maxSpread = max - min;
+				dimension = o;
+			}
+		}
+
+		//中央値を選択して左右に振り分ける
+		int middle = (start + end) >>> 1;
+		select(start, end-1, middle, dimension);
+		splitDimension[middle] = dimension;
+
+		build(start, middle);
+		build(middle+1, end);
+	}
+
+	/**
+	 * クイックセレクトでorder[left]～order[right]を並べ替え、k番目の位置に分割次元の中央値を置きます。<br>
+	 * @param left 左端
+	 * @param right 右端(この位置を含む)
+	 * @param k 選択する位置
+	 * @param dimension 分割次元
+	 */
+	private void select(int left, int right, int k, int dimension)
+	{
+		while(right > left)
+		{
+			//中央の要素をピボットにする
+			double pivot = point[order[(left + right) >>> 1]][dimension];
+			int i = left;
+			int j = right;
+			while(i <= j)
+			{
+				while(point[order[i]][dimension] < pivot)	i++;
+				while(point[order[j]][dimension] > pivot)	j--;
+				if(i <= j)
+				{
+					int temp = order[i];
+					order[i] = order[j];
+					order[j] = temp;
+					i++;
+					j--;
+				}
+			}
+			if(k <= j)			right = j;
+			else if(k >= i)		left = i;
+			else				return;
+		}
+	}
+
+	/**
+	 * 問い合わせ点に近い順にk個の点を探索します。<br>
+	 * 見つかった点の番号と距離を近い順にindex, distanceへ格納します。<br>
+	 * @param query 問い合わせ点
+	 * @param k 探索する点の数
+	 * @param exclude 探索から除く点の番号(除かない場合は負の値)
+	 * @param index 見つかった点の番号の格納先(長さk以上)
+	 * @param distance 見つかった点の距離の格納先(長さk以上)
+	 * @return 見つかった点の数
+	 */
+	public int nearest(double[] query, int k, int exclude, int[] index, double[] distance)
+	{
+		for(int i=0; i<k; i++)
+		{
+			index[i] = -1;
+			distance[i] = Double.MAX_VALUE;
+		}
+		int[] found = {0};
+		if(k > 0 && point.length > 0)	search(query, k, exclude, index, distance, found, 0, point.length);
+
+		//ユークリッド距離は平方根に戻す
+		if(metric == EUCLIDEAN)
+		{
+			for(int i=0; i<found[0]; i++)	distance[i] = Math.sqrt(distance[i]);
+		}
+		return found[0];
+	}
+
+	/**
+	 * 問い合わせ点に最も近い点までの距離を返します。<br>
+	 * @param query 問い合わせ点
+	 * @return 最も近い点までの距離(点がなければDouble.MAX_VALUE)
+	 */
+	public double nearestDistance(double[] query)
+	{
+		int[] index = new int[1];
+		double[] distance = new double[1];
+		nearest(query, 1, -1, index, distance);
+		return distance[0];
+	}
+
+	/**
+	 * order[start]～order[end-1]の部分木をk近傍探索します。<br>
+	 * @param query 問い合わせ点
+	 * @param k 探索する点の数
+	 * @param exclude 探索から除く点の番号
+	 * @param index 見つかった点の番号
+	 * @param distance 見つかった点の距離(昇順)
+	 * @param found 見つかった点の数
+	 * @param start 開始位置
+	 * @param end 終了位置(この位置を含まない)
+	 */
+	private void search(double[] query, int k, int exclude, int[] index, double[] distance, int[] found, int start, int end)
+	{
+		//葉は全探索
+		if(end - start <= LEAF_SIZE)
+		{
+			for(int i=start; i<end; i++)	offer(query, order[i], k, exclude, index, distance, found);
+			return;
+		}
+
+		int middle = (start + end) >>> 1;
+		int dimension = splitDimension[middle];
+		double difference = query[dimension] - point[order[middle]][dimension];
+
+		//問い合わせ点がある側から探索する
+		int nearStart, nearEnd, farStart, farEnd;
+		if(difference < 0){
+			nearStart = start;		nearEnd = middle;
+			farStart = middle+1;	farEnd = end;
+		}else{
+			nearStart = middle+1;	nearEnd = end;
+			farStart = start;		farEnd = middle;
+		}
+		search(query, k, exclude, index, distance, found, nearStart, nearEnd);
+		offer(query, order[middle], k, exclude, index, distance, found);
+
+		//分割面までの距離がk番目の距離より近ければ反対側も探索する
+		double bound = (metric == MANHATTAN) ? Math.abs(difference) : difference*difference;
+		if(found[0] < k || bound < distance[k-1])
+		{
+			search(query, k, exclude, index, distance, found, farStart, farEnd);
+		}
+	}
+
+	/**
+	 * 点を候補として評価し、k番目までに入れば挿入ソートで格納します。<br>
+	 * @param query 問い合わせ点
+	 * @param candidate 候補の点番号
+	 * @param k 探索する点の数
+	 * @param exclude 探索から除く点の番号
+	 * @param index 見つかった点の番号
+	 * @param distance 見つかった点の距離(昇順)
+	 * @param found 見つかった点の数
+	 */
+	private void offer(double[] query, int candidate, int k, int exclude, int[] index, double[] distance, int[] found)
+	{
+		if(candidate == exclude)	return;
+		double d = distance(query, point[candidate]);
+		if(found[0] == k && d >= distance[k-1])	return;
+
+		int position = (found[0] < k) ? found[0]++ : k-1;
+		while(position > 0 && distance[position-1] > d)
+		{
+			distance[position] = distance[position-1];
+			index[position] = index[position-1];
+			position--;
+		}
+		distance[position] = d;
+		index[position] = candidate;
+	}
+}
@@ -0,0 +1,571 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * ND-tree(Jaszkiewicz and Lust, 2018)で非劣解を管理するアーカイブクラスです。<br>
+ * 木の各節点は部分木の解の理想点(各目的の最小値)と最悪点(各目的の最大値)を持ち、<br>
+ * 追加する解と関係しない部分木の優越判定を省略することで、追加を解の数に対して劣線形の時間で行います。<br>
+ * 解の数が上限を超えた場合、混雑距離が最小の解を1つずつ削除し、上限数ちょうどまで減らします。<br>
+ * 混雑距離の計算は削除1回ごとにやり直さず、削除した解を近傍に持つ解の混雑距離だけを計算し直します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class NDTreeArchive extends Archive {
+
+	/** 葉が持つ解の最大数		*/	private static final int MAX_LEAF_SIZE = 20;
+
+	/** アーカイブの上限数		*/	private final int capacity;
+	/** 正規化に使う最大値		*/	private final double[] maxValue;
+	/** 正規化に使う最小値		*/	private final double[] minValue;
+	/** 節点の子の最大数		*/	private int numberOfChildren;
+	/** 木の根				*/	private Node root;
+	/** 保持している解		*/	private final ArrayList<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * コンストラクタ<br>
+	 * 追加の後は常に解の数を上限数以下にします。<br>
+	 * @param capacity アーカイブの上限数
+	 * @param maxValue 混雑距離計算で正規化に使う目的関数の最大値(nullなら正規化しない)
+	 * @param minValue 混雑距離計算で正規化に使う目的関数の最小値(nullなら正規化しない)
+	 */
+	public NDTreeArchive(int capacity, double[] maxValue, double[] minValue)
+	{
+		if(capacity < 1)	throw new IllegalArgumentException("illegal capacity");
+		this.capacity = capacity;
+		this.maxValue = maxValue;
+		this.minValue = minValue;
+	}
+
+	/**
+	 * アーカイブの上限数を返します。<br>
+	 * @return 上限数
+	 */
+	public int getCapacity()	{ return capacity; }
+
+	@Override
+	public int size()	{ return entries.size(); }
+
+	@Override
+	public Particle get(int index)	{ return entries.get(index).particle; }
+
+	@Override
+	public boolean add(Particle particle)
+	{
+		boolean added = insert(particle);
+		truncate();
+		return added;
+	}
+
+	@Override
+	public int add(Swarm swarm)
+	{
+		//まとめて追加してから上限数まで削除する
+		int count = 0;
+		for(int i=0; i<swarm.particle.length; i++)
+		{
+			if(insert(swarm.particle[i]))	count++;
+		}
+		truncate();
+		return count;
+	}
+
+	/**
+	 * 解を木に追加します。<br>
+	 * 追加する解に優越される解は削除し、追加する解が優越されていれば追加しません。<br>
+	 * @param particle 追加する粒子
+	 * @return 追加された場合true
+	 */
+	private boolean insert(Particle particle)
+	{
+		double[] point = particle.fitness;
+		if(root == null)
+		{
+			numberOfChildren = point.length + 1;
+			root = new Node(null, point.length);
+		}
+		else
+		{
+			//木をたどる間は構造を変えないよう、優越される解は後でまとめて削除する
+			ArrayList<Entry> dominatedEntries = new ArrayList<Entry>();
+			if(!update(root, point, dominatedEntries))	return false;
+			for(Entry entry : dominatedEntries)	removeEntry(entry);
+
+			//全ての解が削除された場合は根を作り直す
+			if(root == null)	root = new Node(null, point.length);
+		}
+
+		Entry entry = new Entry(particle.copy());
+		entry.position = entries.size();
+		entries.add(entry);
+		place(root, entry);
+		return true;
+	}
+
+	/**
+	 * 節点以下の解と追加する解との優越関係を判定します。<br>
+	 * 追加する解に優越される解をdominatedEntriesに集めます。<br>
+	 * @param node 節点
+	 * @param point 追加する解の適応度
+	 * @param dominatedEntries 追加する解に優越される解の格納先
+	 * @return 追加する解が優越されていなければtrue
+	 */
+	private boolean update(Node node, double[] point, ArrayList<Entry> dominatedEntries)
+	{
+		//最悪点が追加する解に優越していれば、部分木の全ての解が優越している
+		if(Rank.dominated(node.nadir, point))	return false;
+
+		//追加する解が理想点に優越していれば、部分木の全ての解が優越される
+		if(Rank.dominated(point, node.ideal))
+		{
+			collect(node, dominatedEntries);
+			return true;
+		}
+
+		//理想点が優越せず、最悪点に優越もしなければ部分木の解とは関係がない
+		if(!Rank.dominated(node.ideal, point) && !Rank.dominated(point, node.nadir))	return true;
+
+		if(node.isLeaf())
+		{
+			for(Entry entry : node.leaf)
+			{
+				if(Rank.dominated(entry.particle.fitness, point))	return false;
+				if(Rank.dominated(point, entry.particle.fitness))	dominatedEntries.add(entry);
+			}
+		}
+		else
+		{
+			for(Node child : node.children)
+			{
+				if(!update(child, point, dominatedEntries))	return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 部分木の全ての解を集めます。<br>
+	 * @param node 部分木の根
+	 * @param result 解の格納先
+	 */
+	private void collect(Node node, ArrayList<Entry> result)
+	{
+		if(node.isLeaf())
+		{
+			result.addAll(node.leaf);
+		}
+		else
+		{
+			for(Node child : node.children)	collect(child, result);
+		}
+	}
+
+	/**
+	 * 解を適切な葉に格納します。<br>
+	 * 内部節点では、理想点と最悪点の中点が最も近い子を選びます。<br>
+	 * @param node 節点
+	 * @param entry 格納する解
+	 */
+	private void place(Node node, Entry entry)
+	{
+		double[] point = entry.particle.fitness;
+		node.extend(point);
+		if(node.isLeaf())
+		{
+			node.leaf.add(entry);
+			entry.node = node;
+			if(node.leaf.size() > MAX_LEAF_SIZE)	split(node);
+			return;
+		}
+
+		Node closest = node.children.get(0);
+		double minDistance = Double.MAX_VALUE;
+		for(Node child : node.children)
+		{
+			double distance = child.distanceToMidpoint(point);
+			if(distance < minDistance)
+			{
+				minDistance = distance;
+				closest = child;
+			}
+		}
+		place(closest, entry);
+	}
+
+	/**
+	 * 葉を分割して内部節点にします。<br>
+	 * 互いに遠い解を子の種として選び、残りの解を最も近い子に割り当てます。<br>
+	 * @param node 分割する葉
+	 */
+	private void split(Node node)
+	{
+		ArrayList<Entry> points = node.leaf;
+		int size = points.size();
+		int numberOfObjectives = node.ideal.length;
+
+		//他の解との平均距離が最大の解を最初の種にする
+		boolean[] used = new boolean[size];
+		double[] nearestSeed = new double[size];
+		int first = 0;
+		double maxDistance = -1.0;
+		for(int i=0; i<size; i++)
+		{
+			double sum = 0.0;
+			for(int j=0; j<size; j++)	sum += squaredDistance(points.get(i).particle.fitness, points.get(j).particle.fitness);
+			if(sum > maxDistance)
+			{
+				maxDistance = sum;
+				first = i;
+			}
+		}
+
+		node.leaf = null;
+		node.children = new ArrayList<Node>();
+		Node child = new Node(node, numberOfObjectives);
+		node.children.add(child);
+		child.extend(points.get(first).particle.fitness);
+		child.leaf.add(points.get(first));
+		points.get(first).node = child;
+		used[first] = true;
+		for(int i=0; i<size; i++)	nearestSeed[i] = squaredDistance(points.get(i).particle.fitness, points.get(first).particle.fitness);
+
+		//既存の種から最も遠い解を次の種にする
+		while(node.children.size() < numberOfChildren)
+		{
+			int next = -1;
+			maxDistance = -1.0;
+			for(int i=0; i<size; i++)
+			{
+				if(!used[i] && nearestSeed[i] > maxDistance)
+				{
+					maxDistance = nearestSeed[i];
+					next = i;
+				}
+			}
+			if(next < 0)	break;
+			child = new Node(node, numberOfObjectives);
+			node.children.add(child);
+			child.extend(points.get(next).particle.fitness);
+			child.leaf.add(points.get(next));
+			points.get(next).node = child;
+			used[next] = true;
+			for(int i=0; i<size; i++)
+			{
+				double distance = squaredDistance(points.get(i).particle.fitness, points.get(next).particle.fitness);
+				if(distance < nearestSeed[i])	nearestSeed[i] = distance;
+			}
+		}
+
+		//残りの解を中点が最も近い子に割り当てる
+		for(int i=0; i<size; i++)
+		{
+			if(used[i])	continue;
+			Node closest = node.children.get(0);
+			double minDistance = Double.MAX_VALUE;
+			for(Node c : node.children)
+			{
+				double distance = c.distanceToMidpoint(points.get(i).particle.fitness);
+				if(distance < minDistance)
+				{
+					minDistance = distance;
+					closest = c;
+				}
+			}
+			closest.extend(points.get(i).particle.fitness);
+			closest.leaf.add(points.get(i));
+			points.get(i).node = closest;
+		}
+	}
+
+	/**
+	 * 解を1つ削除します。<br>
+	 * 解の一覧からは末尾の解と入れ替えて削除し、空になった葉は木から取り除きます。<br>
+	 * @param entry 削除する解
+	 */
+	private void removeEntry(Entry entry)
+	{
+		//解の一覧から削除
+		Entry last = entries.remove(entries.size()-1);
+		if(last != entry)
+		{
+			last.position = entry.position;
+			entries.set(entry.position, last);
+		}
+
+		//葉から削除
+		Node node = entry.node;
+		node.leaf.remove(entry);
+		entry.node = null;
+		if(!node.leaf.isEmpty())	return;
+
+		//空になった節点を親から取り除き、子が1つになった節点は子と入れ替える
+		while(node.parent != null && node.isEmpty())
+		{
+			Node parent = node.parent;
+			parent.children.remove(node);
+			node = parent;
+		}
+		if(node.parent == null && node.isEmpty())
+		{
+			root = null;
+			return;
+		}
+		if(!node.isLeaf() && node.children.size() == 1)	collapse(node);
+	}
+
+	/**
+	 * 子が1つだけの内部節点を、その子と入れ替えます。<br>
+	 * @param node 縮約する節点
+	 */
+	private void collapse(Node node)
+	{
+		Node child = node.children.get(0);
+		node.children = child.children;
+		node.leaf = child.leaf;
+		System.arraycopy(child.ideal, 0, node.ideal, 0, node.ideal.length);
+		System.arraycopy(child.nadir, 0, node.nadir, 0, node.nadir.length);
+		if(node.leaf != null)
+		{
+			for(Entry e : node.leaf)	e.node = node;
+		}
+		else
+		{
+			for(Node c : node.children)	c.parent = node;
+		}
+	}
+
+	/**
+	 * 解の数が上限を超えていれば、混雑距離が最小の解を1つずつ削除して上限数にします。<br>
+	 * 混雑距離は{@link Rank#calculateDistance(double[][])}と同じく、端の解は最大、それ以外はマンハッタン距離で最も近い2つの解までの距離の和です。<br>
+	 * 最初に全ての解の2近傍を求め、削除のたびに削除した解を近傍に持つ解の2近傍だけを求め直します。<br>
+	 * 端の解を削除した場合は、残りの解から端の解を判定し直します。<br>
+	 * 各目的の端の解は混雑距離が最大のため最後に削除しますが、上限数が目的数の2倍より小さい場合は端の解も削除されます。<br>
+	 */
+	private void truncate()
+	{
+		int excess = entries.size() - capacity;
+		if(excess <= 0)	return;
+
+		int size = entries.size();
+		double[][] fitness = new double[size][];
+		for(int i=0; i<size; i++)
+		{
+			fitness[i] = normalize(entries.get(i).particle.fitness);
+		}
+
+		//全ての解の2近傍と端の解を求める
+		boolean[] alive = new boolean[size];
+		Arrays.fill(alive, true);
+		int[][] nearest = new int[size][2];
+		double[] neighbourDistance = new double[size];
+		if(size >= Rank.KD_TREE_THRESHOLD)
+		{
+			KdTree tree = new KdTree(fitness, KdTree.MANHATTAN);
+			double[] d = new double[2];
+			for(int i=0; i<size; i++)
+			{
+				tree.nearest(fitness[i], 2, i, nearest[i], d);
+				neighbourDistance[i] = d[0] + d[1];
+			}
+		}
+		else
+		{
+			for(int i=0; i<size; i++)	neighbourDistance[i] = nearest(fitness, alive, i, nearest[i]);
+		}
+		boolean[] isEdge = new boolean[size];
+		markEdge(fitness, alive, isEdge);
+
+		//混雑距離が最小の解を削除し、影響を受けた解の混雑距離を求め直す
+		Entry[] removed = new Entry[excess];
+		for(int r=0; r<excess; r++)
+		{
+			int target = -1;
+			double minDistance = Double.POSITIVE_INFINITY;
+			for(int i=0; i<size; i++)
+			{
+				if(!alive[i])	continue;
+				double distance = isEdge[i] ? Double.MAX_VALUE : neighbourDistance[i];
+				if(target < 0 || distance < minDistance)
+				{
+					minDistance = distance;
+					target = i;
+				}
+			}
+			alive[target] = false;
+			removed[r] = entries.get(target);
+
+			for(int i=0; i<size; i++)
+			{
+				if(alive[i] && (nearest[i][0] == target || nearest[i][1] == target))
+					neighbourDistance[i] = nearest(fitness, alive, i, nearest[i]);
+			}
+			if(isEdge[target])	markEdge(fitness, alive, isEdge);
+		}
+
+		//削除で一覧の位置が変わるため、削除する解を全て選んでから削除する
+		for(int r=0; r<excess; r++)	removeEntry(removed[r]);
+	}
+
+	/**
+	 * 残っている解の中から、マンハッタン距離で最も近い2つの解を探します。<br>
+	 * 近傍が2つ未満の場合、足りない近傍の番号は-1、距離はDouble.MAX_VALUEとします。<br>
+	 * @param fitness 正規化した適応度
+	 * @param alive 残っている解ならtrue
+	 * @param index 探す解の番号
+	 * @param nearest 近傍の番号の格納先
+	 * @return 2つの近傍までの距離の和
+	 */
+	private static double nearest(double[][] fitness, boolean[] alive, int index, int[] nearest)
+	{
+		double first = Double.MAX_VALUE;
+		double second = Double.MAX_VALUE;
+		nearest[0] = -1;
+		nearest[1] = -1;
+		for(int j=0; j<fitness.length; j++)
+		{
+			if(j == index || !alive[j])	continue;
+			double distance = 0.0;
+			for(int o=0; o<fitness[j].length; o++)	distance += Math.abs(fitness[index][o] - fitness[j][o]);
+			if(distance < first)
+			{
+				second = first;
+				nearest[1] = nearest[0];
+				first = distance;
+				nearest[0] = j;
+			}
+			else if(distance < second)
+			{
+				second = distance;
+				nearest[1] = j;
+			}
+		}
+		return first + second;
+	}
+
+	/**
+	 * 残っている解の中から、各目的の最大値・最小値を持つ端の解を判定します。<br>
+	 * 同じ値を持つ解が複数ある場合、先頭の解のみを端の解とします。<br>
+	 * @param fitness 正規化した適応度
+	 * @param alive 残っている解ならtrue
+	 * @param isEdge 端の解かどうかの格納先
+	 */
+	private static void markEdge(double[][] fitness, boolean[] alive, boolean[] isEdge)
+	{
+		Arrays.fill(isEdge, false);
+		for(int o=0; o<fitness[0].length; o++)
+		{
+			int max = -1, min = -1;
+			for(int i=0; i<fitness.length; i++)
+			{
+				if(!alive[i])	continue;
+				if(max < 0 || fitness[i][o] > fitness[max][o])	max = i;
+				if(min < 0 || fitness[i][o] < fitness[min][o])	min = i;
+			}
+			if(max >= 0)	isEdge[max] = true;
+			if(min >= 0)	isEdge[min] = true;
+		}
+	}
+
+	/**
+	 * 適応度を正規化します。<br>
+	 * @param fitness 適応度
+	 * @return 正規化した適応度(別メモリ確保)
+	 */
+	private double[] normalize(double[] fitness)
+	{
+		double[] result = new double[fitness.length];
+		for(int o=0; o<fitness.length; o++)
+		{
+			if(maxValue == null || minValue == null || maxValue[o] == minValue[o])
+				result[o] = fitness[o];
+			else
+				result[o] = (fitness[o] - minValue[o]) / (maxValue[o] - minValue[o]);
+		}
+		return result;
+	}
+
+	/**
+	 * 2点間のユークリッド距離の二乗を計算します。<br>
+	 * @param a 点a
+	 * @param b 点b
+	 * @return 距離の二乗
+	 */
+	private static double squaredDistance(double[] a, double[] b)
+	{
+		double sum = 0.0;
+		for(int o=0; o<a.length; o++)
+		{
+			double d = a[o] - b[o];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	/**
+	 * アーカイブに保持する解<br>
+	 */
+	private static class Entry {
+		private final Particle particle;	//粒子
+		private int position;				//解の一覧での位置
+		private Node node;					//格納している葉
+
+		//コンストラクタ
+		Entry(Particle particle)
+		{
+			this.particle = particle;
+		}
+	}
+
+	/**
+	 * ND-treeの節点<br>
+	 * 葉は解の一覧を、内部節点は子節点の一覧を持ちます。<br>
+	 */
+	private static class Node {
+		private Node parent;				//親節点
+		private ArrayList<Node> children;	//子節点(葉ならnull)
+		private ArrayList<Entry> leaf;		//葉の解(内部節点ならnull)
+		private final double[] ideal;		//理想点
+		private final double[] nadir;		//最悪点
+
+		//コンストラクタ(空の葉を生成)
+		Node(Node parent, int numberOfObjectives)
+		{
+			this.parent = parent;
+			this.leaf = new ArrayList<Entry>();
+			this.ideal = new double[numberOfObjectives];
+			this.nadir = new double[numberOfObjectives];
+			for(int o=0; o<numberOfObjectives; o++)
+			{
+				ideal[o] = Double.MAX_VALUE;
+				nadir[o] = -Double.MAX_VALUE;
+			}
+		}
+
+		boolean isLeaf()	{ return leaf != null; }
+
+		boolean isEmpty()	{ return isLeaf() ? leaf.isEmpty() : children.isEmpty(); }
+
+		//理想点と最悪点を解を含むように広げる
+		void extend(double[] point)
+		{
+			for(int o=0; o<point.length; o++)
+			{
+				if(point[o] < ideal[o])	ideal[o] = point[o];
+				if(point[o] > nadir[o])	nadir[o] = point[o];
+			}
+		}
+
+		//理想点と最悪点の中点までの距離の二乗
+		double distanceToMidpoint(double[] point)
+		{
+			double sum = 0.0;
+			for(int o=0; o<point.length; o++)
+			{
+				double d = point[o] - (ideal[o] + nadir[o]) / 2.0;
+				sum += d*d;
+			}
+			return sum;
+		}
+	}
+}
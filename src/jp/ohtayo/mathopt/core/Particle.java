@@ -1,5 +1,7 @@
 package jp.ohtayo.mathopt.core;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
 
 /**
@@ -19,6 +21,9 @@ public class Particle{
 	/** 最良適応度	*/	public double[] bestFitness;
 	/** 最良制約違反量*/public double[] bestConstraintViolation;
 
+	/** 識別番号(評価のたびに振り直す。未評価なら-1)	*/	public long id = -1;
+	/** 識別番号の採番	*/	private static final AtomicLong counter = new AtomicLong();
+
 	/**
 	 * デフォルトコンストラクタ<br>
 	 * 変数の数と目的関数の数を指定して粒子のメモリを確保します。<br>
@@ -72,6 +77,17 @@ public class Particle{
 			this.fitness = ev.fitness;
 			this.constraintViolation = ev.constraintViolation;
 		}
+		//適応度が変わったので識別番号を振り直す
+		renumber();
+	}
+
+	/**
+	 * このプロセスで一意な識別番号を振り直します。<br>
+	 * 識別番号はプロセスごとの採番のため、他のプロセスから受け取った粒子にも振り直してください。<br>
+	 */
+	void renumber()
+	{
+		id = counter.getAndIncrement();
 	}
 
 	/**
@@ -126,6 +142,7 @@ public class Particle{
 		System.arraycopy(p.bestPosition, 0, bestPosition, 0, p.bestPosition.length);
 		System.arraycopy(p.bestFitness, 0, bestFitness, 0, p.bestFitness.length);
 		this.bestConstraintViolation = p.bestConstraintViolation;
+		this.id = p.id;
 	}
 
 	/**
@@ -143,6 +160,7 @@ public class Particle{
 		System.arraycopy(bestPosition, 0, result.bestPosition, 0, bestPosition.length);
 		System.arraycopy(bestFitness, 0, result.bestFitness, 0, bestFitness.length);
 		result.bestConstraintViolation = this.bestConstraintViolation;
+		result.id = this.id;
 
 		return result;
 	}
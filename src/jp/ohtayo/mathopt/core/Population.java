@@ -1,7 +1,5 @@
 package jp.ohtayo.mathopt.core;
 
-import jp.ohtayo.commons.random.Random;
-
 /**
  * 個体群を取り扱うクラスです．
  *
@@ -61,17 +59,7 @@ public class Population {
 	 */
 	public void initialize(int numberOfVariables, int numberOfBits, int numberOfPopulations, int numberOfObjectives, String nameOfObjectiveFunction)
 	{
-		Random random = new Random();
-		individual = new BinaryIndividual[numberOfPopulations];
-		double[] value = new double[numberOfVariables];
-		
-		for (int i = 0; i < individual.length; i++)
-		{
-			value = random.rand(value.length);	//0～1の乱数配列を生成
-			individual[i] = new BinaryIndividual(numberOfVariables, numberOfBits, numberOfObjectives);
-			individual[i].setVariable(value);
-			individual[i].evaluate(nameOfObjectiveFunction);
-		 }
+		initialize(numberOfVariables, numberOfBits, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction, new RandomStream(), null);
 	}
 	
 	/**
@@ -83,19 +71,33 @@ public class Population {
 	 */
 	public void initialize(int numberOfVariables, int numberOfPopulations, int numberOfObjectives, String nameOfObjectiveFunction)
 	{
-		Random random = new Random();
-		individual = new RealCodedIndividual[numberOfPopulations];
-		double[] value = new double[numberOfVariables];
-		
+		initialize(numberOfVariables, 0, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction, new RandomStream(), null);
+	}
+	
+	/**
+	 * 個体群の変数を指定した乱数列で初期化し、スレッドプールで並行に評価します。<br>
+	 * numberOfBitsが1以上ならビットコーディング、0なら実数値で個体群を作ります。<br>
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfBits ビット数(0なら実数値)
+	 * @param numberOfPopulations 個体数
+	 * @param numberOfObjectives 目的数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param random 乱数列
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void initialize(int numberOfVariables, int numberOfBits, int numberOfPopulations, int numberOfObjectives,
+			String nameOfObjectiveFunction, RandomStream random, EvaluationExecutor executor)
+	{
+		individual = (numberOfBits > 0) ? new BinaryIndividual[numberOfPopulations] : new RealCodedIndividual[numberOfPopulations];
+		if (numberOfBits > 0)	initialize(numberOfVariables, numberOfBits, numberOfObjectives);
+		else					initialize(numberOfVariables, numberOfObjectives);
 		for (int i = 0; i < individual.length; i++)
 		{
-			value = random.rand(value.length);	//0～1の乱数配列を生成
-			individual[i] = new RealCodedIndividual(numberOfVariables, numberOfObjectives);
-			individual[i].setVariable(value);
-			individual[i].evaluate(nameOfObjectiveFunction);
-		 }
+			individual[i].setVariable(random.rand(numberOfVariables));	//0～1の乱数配列を生成
+		}
+		evaluate(nameOfObjectiveFunction, executor);
 	}
-	
+
 	/**
 	 * 粒子を初期化します。ビット数を指定してビットコーディングします。<br>
 	 * (配列のメモリ確保のみ。通常は使用しないでください。)<br>
@@ -160,6 +162,29 @@ public class Population {
 			individual[i].evaluate(nameOfObjectiveFunction);
 		}
 	}
+
+	/**
+	 * 個体群をスレッドプールで並行に評価します。
+	 * @param nameOfObjectiveFunction 評価したい目的関数名
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void evaluate(final String nameOfObjectiveFunction, EvaluationExecutor executor)
+	{
+		if (executor == null)
+		{
+			evaluate(nameOfObjectiveFunction);
+			return;
+		}
+		Runnable[] tasks = new Runnable[individual.length];
+		for (int i=0; i<individual.length; i++)
+		{
+			final Individual target = individual[i];
+			tasks[i] = new Runnable() {
+				public void run()	{ target.evaluate(nameOfObjectiveFunction); }
+			};
+		}
+		executor.execute(tasks);
+	}
 	
 	/**
 	 * 個体群の適応度を行列で返します。
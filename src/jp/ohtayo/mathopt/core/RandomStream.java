@@ -0,0 +1,167 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分割可能な乱数列のクラスです。<br>
+ * 乱数の生成にはSplitMix64を用います。同じシードからは常に同じ乱数列を生成します。<br>
+ * {@link #split(long)}で番号ごとに独立した乱数列を生成できるため、<br>
+ * 個体ごとに乱数列を分けておけば、どのスレッドがどの順番で計算しても結果は同一になります。<br>
+ * 1つのインスタンスを複数スレッドから同時に使うことはできません。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class RandomStream extends java.util.Random {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 黄金比から求めた加算定数	*/	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	/** シードなしの場合のシードの採番	*/	private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+	/** 乱数列のシード(分割に使う)	*/	private long seed;
+	/** 内部状態			*/	private long state;
+
+	/**
+	 * コンストラクタ<br>
+	 * シードは時刻から決めます。<br>
+	 */
+	public RandomStream()
+	{
+		this(mix(seedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime()));
+	}
+
+	/**
+	 * コンストラクタ<br>
+	 * @param seed シード
+	 */
+	public RandomStream(long seed)
+	{
+		super(seed);	//setSeedが呼ばれる
+	}
+
+	/**
+	 * シードを設定し、乱数列を最初からやり直します。<br>
+	 * @param seed シード
+	 */
+	@Override
+	public synchronized void setSeed(long seed)
+	{
+		//java.util.Randomのコンストラクタからも呼ばれる
+		this.seed = seed;
+		this.state = seed;
+		super.setSeed(seed);	//nextGaussianの保持値を消す
+	}
+
+	/**
+	 * シードを返します。<br>
+	 * @return シード
+	 */
+	public long getSeed()	{ return seed; }
+
+	/**
+	 * 番号に対応する独立した乱数列を生成します。<br>
+	 * 生成する乱数列はシードと番号のみで決まり、この乱数列からすでに取り出した乱数の数には依存しません。<br>
+	 * @param index 番号
+	 * @return 乱数列
+	 */
+	public RandomStream split(long index)
+	{
+		return new RandomStream(mix(seed + mix(index + 1) * GOLDEN_GAMMA));
+	}
+
+	/**
+	 * 64ビットの乱数を返します。<br>
+	 * @return 乱数
+	 */
+	@Override
+	public long nextLong()
+	{
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	/**
+	 * 指定ビット数の乱数を返します。<br>
+	 * @param bits ビット数
+	 * @return 乱数
+	 */
+	@Override
+	protected int next(int bits)
+	{
+		return (int)(nextLong() >>> (64 - bits));
+	}
+
+	/**
+	 * 0以上1未満の乱数を返します。<br>
+	 * @return 乱数
+	 */
+	@Override
+	public double nextDouble()
+	{
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * 0以上1未満の乱数の配列を返します。<br>
+	 * @param length 配列の長さ
+	 * @return 乱数配列
+	 */
+	public double[] rand(int length)
+	{
+		double[] value = new double[length];
+		for(int i=0; i<length; i++)	value[i] = nextDouble();
+		return value;
+	}
+
+	/**
+	 * 平均0、分散1の正規乱数を返します。<br>
+	 * @return 正規乱数
+	 */
+	public double randn()
+	{
+		return nextGaussian();
+	}
+
+	/**
+	 * 平均0、分散1の正規乱数の配列を返します。<br>
+	 * @param length 配列の長さ
+	 * @return 正規乱数配列
+	 */
+	public double[] randn(int length)
+	{
+		double[] value = new double[length];
+		for(int i=0; i<length; i++)	value[i] = nextGaussian();
+		return value;
+	}
+
+	/**
+	 * 0～length-1をシャッフルした配列を返します。<br>
+	 * @param length 配列の長さ
+	 * @return シャッフルした配列
+	 */
+	public int[] permutation(int length)
+	{
+		int[] value = new int[length];
+		for(int i=0; i<length; i++)	value[i] = i;
+		for(int i=length-1; i>0; i--)
+		{
+			int j = nextInt(i+1);
+			int temp = value[i];
+			value[i] = value[j];
+			value[j] = temp;
+		}
+		return value;
+	}
+
+	/**
+	 * SplitMix64の出力関数です。<br>
+	 * @param z 値
+	 * @return 撹拌した値
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
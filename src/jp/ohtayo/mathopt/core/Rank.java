@@ -1,8 +1,11 @@
 package jp.ohtayo.mathopt.core;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import jp.ohtayo.commons.util.Cast;
 import jp.ohtayo.commons.log.Logging;
-import jp.ohtayo.commons.math.Numeric;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
 
@@ -14,6 +17,10 @@ import jp.ohtayo.commons.math.Vector;
  */
 public class Rank {
 
+	/** 並列計算に切り替える解の数の閾値	*/	public static final int PARALLEL_THRESHOLD = 512;
+	/** 並列計算で1タスクが受け持つ行数		*/	private static final int PARALLEL_BLOCK = 64;
+	/** 近傍探索にk-d木を使う解の数の閾値	*/	public static final int KD_TREE_THRESHOLD = 64;
+
 	/**
 	 * ２つの粒子の適応度の優劣を判定します。<br>
 	 * ε、もしくはαどちらかの値を入れると、ε-domination,またα-dominationによる優劣判定を行います。<br>
@@ -164,10 +171,11 @@ public class Rank {
 	 */
 	private static boolean dominatedEpsilon(double[] basis, double[] target, double epsilon)
 	{
+		double scale = 1-epsilon;
 		//1つでもtargetをε広げた範囲よりbasisの方が小さければ優越していない
 		for(int i=0; i<target.length; i++)
 		{
-			if( target[i]<(basis[i]*(1-epsilon)) )
+			if( target[i]<(basis[i]*scale) )
 			{
 				return false;
 			}
@@ -179,22 +187,24 @@ public class Rank {
 	/**
 	 * ２つの粒子の適応度の優劣を判定します。<br>
 	 * α-dominationによる優劣判定を行います。適応度は正規化してください。<br>
+	 * 差の二乗和を1回だけ計算し、勝っている目的以外の距離は二乗和からその目的の分を引いて求めます。<br>
+	 * 作業用の配列を確保しません。<br>
 	 *
 	 * @param basis 比較対象の適応度
 	 * @param target 比較される適応度
-	 * @param epsilon α値
+	 * @param alpha α値
 	 * @return basisがtargetより優越していればtrue / 優越していなければfalse
 	 */
 	private static boolean dominatedAlpha(double[] basis, double[] target, double alpha)
 	{
-		//double[] difference = Vector.minus(basis, target);	//basis-target
-		double[] difference = new Vector(basis).minus(new Vector(target)).get();
-
-		//targetが勝ってる目的数を抽出
+		//targetが勝ってる目的数と差の二乗和を求める
 		int count=0;
+		double total = 0.0;
 		for (int i=0; i<basis.length; i++)
 		{
-			if(difference[i]>0)	count++;	//差が0より大きい→targetの値が小さいのでtargetが優越
+			double difference = basis[i] - target[i];
+			if(difference>0)	count++;	//差が0より大きい→targetの値が小さいのでtargetが優越
+			total += difference*difference;
 		}
 
 		//全ての目的でtargetが勝っていたらbasisは非優越
@@ -207,50 +217,36 @@ public class Rank {
 		{
 			return true;
 		}
-		//その他の場合、targetに対し、勝ってない目的の距離×α < 勝ってる目的の距離 かどうか判定
+		//その他の場合、targetが勝ってる目的1つずつに対し、他の目的の距離×α < 勝ってる目的の距離 かどうか判定
 		//→本来非優越だが、全ての勝ってる目的でこれなら優越。
-		else
-		{
-			//targetが勝ってる目的のインデックスを抽出
-			int[] winIndex = new int[count];
-			count = 0;
-			for (int i=0; i<basis.length; i++)
-			{
-				if (difference[i]>0)
-				{
-					winIndex[count] = i;
-					count++;
-				}
-			}
+		return !alphaWins(basis, target, total, alpha);
+	}
 
-			//勝ってる目的1つずつに対し、他の目的×αで勝てるか確認
-			for (int w=0; w<winIndex.length; w++ )
+	/**
+	 * α-dominationで、targetが勝っている目的のいずれかで他の目的の距離×αより大きく勝っているか判定します。<br>
+	 * @param basis 比較対象の適応度
+	 * @param target 比較される適応度
+	 * @param total basisとtargetの差の二乗和
+	 * @param alpha α値
+	 * @return 大きく勝っている目的があればtrue
+	 */
+	private static boolean alphaWins(double[] basis, double[] target, double total, double alpha)
+	{
+		for (int i=0; i<basis.length; i++)
+		{
+			double difference = basis[i] - target[i];
+			if (difference>0)
 			{
-				//負けてる目的のインデックスを抽出
-				int[] loseIndex = new int[basis.length - winIndex.length];
-				count = 0;
-				for (int i=0; i<basis.length; i++)
+				//他の目的の距離は二乗和から勝ってる目的の分を引く(丸め誤差で負にならないようにする)
+				double others = total - difference*difference;
+				if (others < 0)	others = 0;
+				if ( Math.sqrt(others)*alpha < difference )
 				{
-					if (i!=winIndex[w])
-					{
-						loseIndex[count] = i;
-						count++;
-					}
-				}
-
-				//basisに対し、勝ってない目的の距離×α < 勝ってる目的の距離 かどうか判定
-				double temp = 0;
-				for (int n=0; n<loseIndex.length; n++)
-				{
-					temp += Numeric.square(difference[loseIndex[n]]);
-				}
-				if ( Math.abs( Math.sqrt(temp)*alpha ) < Math.abs( difference[winIndex[w]]) )
-				{
-					return false;
+					return true;
 				}
 			}
-			return true;
 		}
+		return false;
 	}
 
 	/**
@@ -263,19 +259,8 @@ public class Rank {
 	 */
 	public static int[] ranking(double[][] fitness, double epsilon, double alpha)
 	{
-		int[] number = new int[fitness.length];
-
-		//優越されている個数を数える
-		for(int i=0; i<fitness.length; i++){
-			for(int j=0; j<fitness.length; j++){
-				if(i!=j){
-					if( dominated(fitness[j], fitness[i], epsilon, alpha) )
-					{
-						number[i] +=1;
-					}
-				}
-			}
-		}
+		//優越されている個数をまとめて判定して数える
+		int[] number = countDominators(fitness, epsilon, alpha, false, Integer.MAX_VALUE);
 
 		//個数+1がランク
 		for(int i=0; i<number.length; i++)
@@ -289,36 +274,312 @@ public class Rank {
 	 * 解集合のランク付けを行います。ランク付けにはFlemingの方法を用います。<br>
 	 * 優越判定に制約違反量も考慮します。<br>
 	 * 優劣判定にε-dominationもしくはα-dominationを使う場合、ε・α値に0以上の値を入力してください。<br>
+	 * 結果は{@link #dominated(double[], double[], double[], double[], double, double)}で全ての組を判定した場合と同一ですが、<br>
+	 * 制約を満たす解と満たさない解に分けてから数えるため、目的関数による優越判定は制約を満たす解の間でのみ行います。<br>
+	 * 制約数が1の場合、制約を満たさない解は違反量のソートで優越されている個数を求めます。(O(N log N))<br>
+	 * 制約数が2以上の場合、違反している制約の数が同じ解の間でのみ目的関数による優越判定を行います。<br>
 	 * @param fitness 適応度行列
+	 * @param constraint 制約違反量行列
 	 * @param epsilon ε値
 	 * @param alpha α値
 	 * @return 解のランク配列
 	 */
 	public static int[] ranking(double[][] fitness, double[][] constraint, double epsilon, double alpha)
 	{
-		int[] number = new int[fitness.length];
+		return constrainedRanking(fitness, constraint, epsilon, alpha, false, Integer.MAX_VALUE);
+	}
 
-		//優越されている個数を数える
-		for(int i=0; i<fitness.length; i++){
-			for(int j=0; j<fitness.length; j++){
-				if(i!=j){
-					if( dominated(fitness[j], fitness[i], constraint[j], constraint[i], epsilon, alpha) )
-					{
-						number[i] +=1;
-					}
-				}
+	/**
+	 * 解集合のランク付けをForkJoinPoolで並列に行います。<br>
+	 * 解の数がPARALLEL_THRESHOLD未満の場合は逐次計算します。結果は{@link #ranking(double[][], double, double)}と同一です。<br>
+	 * @param fitness 適応度行列
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @return 解のランク配列
+	 */
+	public static int[] parallelRanking(double[][] fitness, double epsilon, double alpha)
+	{
+		//行ブロックごとに優越されている個数を数える
+		int[] number = countDominators(fitness, epsilon, alpha, true, Integer.MAX_VALUE);
+
+		//個数+1がランク
+		for(int i=0; i<number.length; i++)
+		{
+			number[i] += 1;
+		}
+
+		return number;
+	}
+	/**
+	 * 制約違反量を考慮した解集合のランク付けをForkJoinPoolで並列に行います。<br>
+	 * 目的関数で比較する解の数がPARALLEL_THRESHOLD未満の場合は逐次計算します。結果は{@link #ranking(double[][], double[][], double, double)}と同一です。<br>
+	 * @param fitness 適応度行列
+	 * @param constraint 制約違反量行列(nullなら制約なし)
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @return 解のランク配列
+	 */
+	public static int[] parallelRanking(double[][] fitness, double[][] constraint, double epsilon, double alpha)
+	{
+		return constrainedRanking(fitness, constraint, epsilon, alpha, true, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 上位globalSize個の選択に必要な範囲で解集合のランク付けを行います。<br>
+	 * 優越されている個数がglobalSize以上の解は比較を打ち切ってランクをglobalSize+1にそろえます。<br>
+	 * {@link #calculateBorderRank(int[], int)}で求める境界ランク以下のランクは{@link #ranking(double[][], double[][], double, double)}と同一で、<br>
+	 * 境界ランクより後ろの解はランクが境界ランクより大きいことのみ保証します。<br>
+	 * 打ち切ったランクが境界ランクになる場合は、打ち切らずに計算し直します。<br>
+	 * @param fitness 適応度行列
+	 * @param constraint 制約違反量行列(nullなら制約なし)
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @param globalSize 選択する解の数
+	 * @param parallel 目的関数で比較する解の数がPARALLEL_THRESHOLD以上なら並列計算するか
+	 * @return 解のランク配列
+	 */
+	public static int[] borderRanking(double[][] fitness, double[][] constraint, double epsilon, double alpha, int globalSize, boolean parallel)
+	{
+		if(globalSize >= fitness.length)	return constrainedRanking(fitness, constraint, epsilon, alpha, parallel, Integer.MAX_VALUE);
+
+		int[] rank = constrainedRanking(fitness, constraint, epsilon, alpha, parallel, globalSize);
+		if(calculateBorderRank(rank, globalSize) > globalSize)
+		{
+			//境界ランクが打ち切ったランクなら計算し直す
+			rank = constrainedRanking(fitness, constraint, epsilon, alpha, parallel, Integer.MAX_VALUE);
+		}
+		return rank;
+	}
+
+	/**
+	 * 制約を満たす解と満たさない解に分けてランク付けします。<br>
+	 * @param fitness 適応度行列
+	 * @param constraint 制約違反量行列(nullなら制約なし)
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @param parallel 目的関数による優越判定を並列計算するか
+	 * @param limit 優越されている個数の上限(これ以上の解はランクをlimit+1とする)
+	 * @return 解のランク配列
+	 */
+	private static int[] constrainedRanking(double[][] fitness, double[][] constraint, double epsilon, double alpha, boolean parallel, int limit)
+	{
+		int size = fitness.length;
+		int numberOfConstraints = (constraint == null || size == 0) ? 0 : constraint[0].length;
+		int[] number;
+
+		if(numberOfConstraints == 0)
+		{
+			//制約がなければ目的関数のみで比較
+			number = countDominators(fitness, epsilon, alpha, parallel, limit);
+		}
+		else if(numberOfConstraints == 1)
+		{
+			number = new int[size];
+
+			//制約を満たす解と満たさない解に分ける
+			int[] feasible = new int[size];
+			int[] infeasible = new int[size];
+			int numberOfFeasible = 0, numberOfInfeasible = 0;
+			for(int i=0; i<size; i++)
+			{
+				if(constraint[i][0] > 0)	infeasible[numberOfInfeasible++] = i;
+				else						feasible[numberOfFeasible++] = i;
+			}
+
+			//制約を満たす解は、制約を満たす解の間でのみ目的関数で比較
+			countWithin(fitness, feasible, numberOfFeasible, epsilon, alpha, parallel, limit, number);
+
+			//制約を満たさない解は、制約を満たす全ての解と、違反量が同じか小さい解に優越される
+			double[] violation = new double[numberOfInfeasible];
+			for(int k=0; k<numberOfInfeasible; k++)	violation[k] = constraint[infeasible[k]][0];
+			Arrays.sort(violation);
+			for(int k=0; k<numberOfInfeasible; k++)
+			{
+				int i = infeasible[k];
+				number[i] = numberOfFeasible + countNotGreater(violation, constraint[i][0]) - 1;	//自身は除く
 			}
 		}
+		else
+		{
+			number = new int[size];
 
-		//個数+1がランク
+			//違反している制約の数ごとに分ける
+			int[] violated = new int[size];
+			int[] histogram = new int[numberOfConstraints+1];
+			for(int i=0; i<size; i++)
+			{
+				for(int c=0; c<numberOfConstraints; c++)	if(constraint[i][c]!=0)	violated[i]++;
+				histogram[violated[i]]++;
+			}
+
+			//違反している制約の数が多い解に優越される
+			int[] greater = new int[numberOfConstraints+1];
+			for(int k=numberOfConstraints-1; k>=0; k--)	greater[k] = greater[k+1] + histogram[k+1];
+
+			//違反している制約の数が同じ解の間では目的関数で比較
+			int[] group = new int[size];
+			for(int k=0; k<=numberOfConstraints; k++)
+			{
+				if(histogram[k] == 0)	continue;
+				int count = 0;
+				for(int i=0; i<size; i++)	if(violated[i] == k)	group[count++] = i;
+				countWithin(fitness, group, count, epsilon, alpha, parallel, limit, number);
+			}
+			for(int i=0; i<size; i++)	number[i] += greater[violated[i]];
+		}
+
+		//個数+1がランク(上限以上の個数はlimitにそろえる)
 		for(int i=0; i<number.length; i++)
 		{
+			if(number[i] > limit)	number[i] = limit;
 			number[i] += 1;
 		}
 
 		return number;
 	}
 
+	/**
+	 * 解の一部について、その中で目的関数により優越されている個数をnumberに加算します。<br>
+	 * @param fitness 適応度行列
+	 * @param index 解の番号
+	 * @param count 解の数
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @param parallel 並列計算するか
+	 * @param limit 比較を打ち切る個数
+	 * @param number 優越されている個数の配列
+	 */
+	private static void countWithin(double[][] fitness, int[] index, int count, double epsilon, double alpha, boolean parallel, int limit, int[] number)
+	{
+		if(count < 2)	return;
+		double[][] part = new double[count][];
+		for(int k=0; k<count; k++)	part[k] = fitness[index[k]];
+		int[] partNumber = countDominators(part, epsilon, alpha, parallel, limit);
+		for(int k=0; k<count; k++)	number[index[k]] += partNumber[k];
+	}
+
+	/**
+	 * 目的関数により優越されている個数を数えます。<br>
+	 * limitが上限なしの場合、逐次計算では解の組の上三角のみを走査します。<br>
+	 * limitがある場合は解ごとに個数がlimitに達した時点で比較を打ち切ります。<br>
+	 * このときε・αを使わなければ、解を目的関数の和の昇順に並べ、和が自身以下の解とのみ比較します。<br>
+	 * (解jが解iに優越するなら全目的でf_j≦f_iのため、浮動小数点の和でもsum_j≦sum_iになります。)<br>
+	 * @param fitness 適応度行列
+	 * @param epsilon ε値
+	 * @param alpha α値
+	 * @param parallel 解の数がPARALLEL_THRESHOLD以上なら並列計算するか
+	 * @param limit 比較を打ち切る個数(個数がlimit以上の解は不正確な値になる)
+	 * @return 優越されている個数の配列
+	 */
+	private static int[] countDominators(double[][] fitness, double epsilon, double alpha, boolean parallel, int limit)
+	{
+		int size = fitness.length;
+		int[] number = new int[size];
+		boolean sorted = limit < Integer.MAX_VALUE && !(epsilon > 0.0) && !(alpha > 0.0);
+
+		//目的関数の和の昇順に並べ、和が自身以下の解の範囲を求める
+		int[] order = null;
+		int[] bound = null;
+		double[][] target = fitness;
+		if(sorted)
+		{
+			double[] sum = new double[size];
+			for(int i=0; i<size; i++)
+				for(int o=0; o<fitness[i].length; o++)	sum[i] += fitness[i][o];
+			order = Selection.smallest(sum, size);
+			target = new double[size][];
+			for(int k=0; k<size; k++)	target[k] = fitness[order[k]];
+			bound = new int[size];
+			int end = size;
+			for(int k=size-1; k>=0; k--)
+			{
+				if(k+1 < size && sum[order[k]] < sum[order[k+1]])	end = k+1;
+				bound[k] = end;
+			}
+		}
+
+		int[] count = sorted ? new int[size] : number;
+		DominanceKernel kernel = new DominanceKernel(target, null, epsilon, alpha);
+		if(parallel && size >= PARALLEL_THRESHOLD)
+		{
+			ForkJoinPool.commonPool().invoke(new RankingTask(kernel, count, 0, size, limit, bound));
+		}
+		else if(limit == Integer.MAX_VALUE)
+		{
+			kernel.countDominators(count);
+		}
+		else
+		{
+			kernel.countDominators(count, 0, size, limit, bound);
+		}
+
+		//元の順番に戻す
+		if(sorted)
+			for(int k=0; k<size; k++)	number[order[k]] = count[k];
+		return number;
+	}
+
+	/**
+	 * 昇順の配列でvalue以下の値の数を二分探索で数えます。<br>
+	 * @param sorted 昇順の配列
+	 * @param value 値
+	 * @return value以下の値の数
+	 */
+	private static int countNotGreater(double[] sorted, double value)
+	{
+		int low = 0;
+		int high = sorted.length;
+		while(low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if(sorted[middle] <= value)	low = middle+1;
+			else						high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * ランク付けを行ブロックに分割して並列計算するためのクラス<br>
+	 * extends RecursiveAction<br>
+	 */
+	private static class RankingTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DominanceKernel kernel;	//優越判定
+		private final int[] number;				//優越されている個数
+		private final int start;				//開始行
+		private final int end;					//終了行
+		private final int limit;				//比較を打ち切る個数
+		private final int[] bound;				//解ごとの比較する解の終了番号
+
+		//コンストラクタ
+		RankingTask(DominanceKernel kernel, int[] number, int start, int end, int limit, int[] bound)
+		{
+			this.kernel = kernel;
+			this.number = number;
+			this.start = start;
+			this.end = end;
+			this.limit = limit;
+			this.bound = bound;
+		}
+
+		//実行
+		protected void compute()
+		{
+			//ブロックが十分小さければ逐次計算
+			if(end - start <= PARALLEL_BLOCK)
+			{
+				kernel.countDominators(number, start, end, limit, bound);
+				return;
+			}
+			//2分割して並列計算
+			int middle = (start + end) >>> 1;
+			invokeAll(new RankingTask(kernel, number, start, middle, limit, bound),
+					new RankingTask(kernel, number, middle, end, limit, bound));
+		}
+	}
+
 	/**
 	 * あるランク値の解のインデックスを返します。<br>
 	 * @param rank 解のランク配列
@@ -387,13 +648,53 @@ public class Rank {
 	 * 混雑距離を計算します。<br>
 	 * 距離計算はマンハッタン距離を使用します。<br>
 	 * 混雑距離は、距離の１番目・２番目に近い解の距離の和とします。<br>
+	 * 解の数がKD_TREE_THRESHOLD以上の場合、k-d木を一度構築して近傍探索します。<br>
 	 * @param fitness 適応度行列
 	 * @return 各解の混雑距離
 	 */
 	public static double[] calculateDistance(double[][] fitness){
 		double[] distance = new double[fitness.length];
-		double[] temp = new double[fitness.length];
-		int index=0;
+
+		//端の解の距離は最大
+		boolean[] isEdge = markEdge(fitness);
+
+		//端の解以外はマンハッタン距離で最も近い２つの解までの距離の和
+		KdTree tree = buildTree(fitness);
+		neighbourDistance(fitness, tree, isEdge, distance, 0, fitness.length);
+
+		return distance;
+	}
+
+	/**
+	 * 混雑距離をForkJoinPoolで並列に計算します。<br>
+	 * 解の数がPARALLEL_THRESHOLD未満の場合は逐次計算します。結果は{@link #calculateDistance(double[][])}と同一です。<br>
+	 * @param fitness 適応度行列
+	 * @return 各解の混雑距離
+	 */
+	public static double[] parallelCalculateDistance(double[][] fitness){
+		if(fitness.length < PARALLEL_THRESHOLD)	return calculateDistance(fitness);
+
+		double[] distance = new double[fitness.length];
+
+		//端の解の判定は解の順番に依存するため逐次計算
+		boolean[] isEdge = markEdge(fitness);
+
+		//近傍距離は行ブロックごとに並列計算(k-d木は共有して読み出しのみ)
+		KdTree tree = buildTree(fitness);
+		ForkJoinPool.commonPool().invoke(new DistanceTask(fitness, tree, isEdge, distance, 0, fitness.length));
+
+		return distance;
+	}
+
+	/**
+	 * 各目的の最大値・最小値を持つ端の解を判定します。<br>
+	 * 同じ値を持つ解が複数ある場合、先頭の解のみを端の解とします。<br>
+	 * @param fitness 適応度行列
+	 * @return 端の解ならtrue
+	 */
+	private static boolean[] markEdge(double[][] fitness)
+	{
+		boolean[] isEdge = new boolean[fitness.length];
 
 		Matrix fitnessMatrix = new Matrix(fitness);
 		double[] maxFitness = fitnessMatrix.max("column").get();
@@ -401,69 +702,132 @@ public class Rank {
 		int objectiveNumber = fitness[0].length;
 		boolean[] finMaxEdge = new boolean[objectiveNumber];
 		boolean[] finMinEdge = new boolean[objectiveNumber];
-		boolean isEdge;
 
-		//マンハッタン距離で最も近い解までの距離を返す。
 		for(int i=0; i<fitness.length; i++){
-			isEdge = false;
 			//端の解かどうか判定
 			for( int o=0; o<objectiveNumber; o++)
 			{
 				if( fitness[i][o] == maxFitness[o] && finMaxEdge[o] == false )
 				{
-					isEdge = true;
+					isEdge[i] = true;
 					finMaxEdge[o] = true;
 				}
 				else if( fitness[i][o] == minFitness[o] && finMinEdge[o] == false )
 				{
-					isEdge = true;
+					isEdge[i] = true;
 					finMinEdge[o] = true;
 				}
 			}
+		}
+		return isEdge;
+	}
+
+	/**
+	 * 解の数がKD_TREE_THRESHOLD以上なら、マンハッタン距離のk-d木を構築します。<br>
+	 * @param fitness 適応度行列
+	 * @return k-d木(閾値未満ならnull)
+	 */
+	private static KdTree buildTree(double[][] fitness)
+	{
+		if(fitness.length < KD_TREE_THRESHOLD)	return null;
+		return new KdTree(fitness, KdTree.MANHATTAN);
+	}
+
+	/**
+	 * start～end-1番目の解について、マンハッタン距離で１番目・２番目に近い解の距離の和を計算します。<br>
+	 * 端の解の距離は最大値とします。近傍が2つ未満の場合、足りない距離はDouble.MAX_VALUEとします。<br>
+	 * @param fitness 適応度行列
+	 * @param tree 適応度行列のk-d木(nullなら全探索)
+	 * @param isEdge 端の解かどうか
+	 * @param distance 混雑距離の格納先
+	 * @param start 開始行
+	 * @param end 終了行(この行を含まない)
+	 */
+	private static void neighbourDistance(double[][] fitness, KdTree tree, boolean[] isEdge, double[] distance, int start, int end)
+	{
+		int[] nearestIndex = new int[2];
+		double[] nearestDistance = new double[2];
 
+		for(int i=start; i<end; i++){
 			//端の解なら距離は最大
-			if(isEdge){
+			if(isEdge[i]){
 				distance[i] = Double.MAX_VALUE;
-			}else{
-				for(int j=0; j<fitness.length; j++)
+				continue;
+			}
+			//k-d木があれば自身を除く2近傍を探索
+			if(tree != null){
+				tree.nearest(fitness[i], 2, i, nearestIndex, nearestDistance);
+				distance[i] = nearestDistance[0] + nearestDistance[1];
+				continue;
+			}
+			//最小値と2番目の最小値を1回の走査で求める
+			double first = Double.MAX_VALUE;
+			double second = Double.MAX_VALUE;
+			for(int j=0; j<fitness.length; j++)
+			{
+				double temp;
+				if(i!=j)
 				{
-					if(i!=j)
-					{
-						//temp[j] = Numeric.sum( Numeric.abs( Vector.minus(fitness[i], fitness[j]) ) );
-						temp[j] = new Vector(fitness[i]).minus(new Vector(fitness[j])).abs().sum();
-
-					}
-					else
-					{
-						temp[j] = Double.MAX_VALUE;
-					}
+					temp = 0.0;
+					for(int o=0; o<fitness[i].length; o++)	temp += Math.abs(fitness[i][o] - fitness[j][o]);
+				}
+				else
+				{
+					temp = Double.MAX_VALUE;
+				}
+				if(temp < first)
+				{
+					second = first;
+					first = temp;
+				}
+				else if(temp < second)
+				{
+					second = temp;
 				}
-				index = minIndex(temp);		//最小値のインデックスを格納
-				distance[i] = temp[index];	//最小値を格納
-				temp[index] = Double.MAX_VALUE;		//最小値を無限にする。
-				distance[i] += new Vector(temp).min();
 			}
+			distance[i] = first + second;
 		}
-		return distance;
 	}
 
 	/**
-	 * 最小値のインデックスを計算します。<br>
-	 * @param value 最小値を計算したい配列
-	 * @return 最小値のインデックス
+	 * 混雑距離を行ブロックに分割して並列計算するためのクラス<br>
+	 * extends RecursiveAction<br>
 	 */
-	private static int minIndex(double[] value)
-	{
-		double min = value[0];
-		int index=0;
-		for( int i=0; i<value.length; i++ )
+	private static class DistanceTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] fitness;	//適応度行列
+		private final KdTree tree;			//適応度行列のk-d木
+		private final boolean[] isEdge;		//端の解かどうか
+		private final double[] distance;	//混雑距離
+		private final int start;			//開始行
+		private final int end;				//終了行
+
+		//コンストラクタ
+		DistanceTask(double[][] fitness, KdTree tree, boolean[] isEdge, double[] distance, int start, int end)
+		{
+			this.fitness = fitness;
+			this.tree = tree;
+			this.isEdge = isEdge;
+			this.distance = distance;
+			this.start = start;
+			this.end = end;
+		}
+
+		//実行
+		protected void compute()
 		{
-			if( min > value[i] )
+			//ブロックが十分小さければ逐次計算
+			if(end - start <= PARALLEL_BLOCK)
 			{
-				min = value[i];
-				index = i;
+				neighbourDistance(fitness, tree, isEdge, distance, start, end);
+				return;
 			}
+			//2分割して並列計算
+			int middle = (start + end) >>> 1;
+			invokeAll(new DistanceTask(fitness, tree, isEdge, distance, start, middle),
+					new DistanceTask(fitness, tree, isEdge, distance, middle, end));
 		}
-		return index;
 	}
 }
@@ -0,0 +1,109 @@
+package jp.ohtayo.mathopt.core;
+
+/**
+ * 値の上位k個を選択するクラスです。<br>
+ * 全体をソートせず、k個の要素を持つヒープで選択するため、計算量はO(N log k)です。<br>
+ * 値が同じ場合は番号の小さい順に選択します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class Selection {
+
+	/**
+	 * 値が小さい順にk個の番号を返します。<br>
+	 * @param value 値
+	 * @param k 選択する数
+	 * @return 選択した番号(値の昇順)
+	 */
+	public static int[] smallest(double[] value, int k)
+	{
+		return select(value, k, false);
+	}
+
+	/**
+	 * 値が大きい順にk個の番号を返します。<br>
+	 * @param value 値
+	 * @param k 選択する数
+	 * @return 選択した番号(値の降順)
+	 */
+	public static int[] largest(double[] value, int k)
+	{
+		return select(value, k, true);
+	}
+
+	/**
+	 * 上位k個の番号を選択します。<br>
+	 * ヒープの根には選択した中で最も順位の低い要素を置き、それより順位の高い要素が来たら入れ替えます。<br>
+	 * @param value 値
+	 * @param k 選択する数
+	 * @param descend trueなら値が大きい順、falseなら値が小さい順
+	 * @return 選択した番号(順位順)
+	 */
+	private static int[] select(double[] value, int k, boolean descend)
+	{
+		if(k < 0 || k > value.length)	throw new IllegalArgumentException("illegal number of selection: " + k);
+
+		//先頭k個でヒープを作る
+		int[] heap = new int[k];
+		for(int i=0; i<k; i++)	heap[i] = i;
+		for(int i=k/2-1; i>=0; i--)	siftDown(heap, i, k, value, descend);
+
+		//根より順位が高ければ入れ替える
+		for(int i=k; i<value.length; i++)
+		{
+			if(k > 0 && before(i, heap[0], value, descend))
+			{
+				heap[0] = i;
+				siftDown(heap, 0, k, value, descend);
+			}
+		}
+
+		//根から取り出すと順位の低い順になるので後ろから詰める
+		int[] index = new int[k];
+		for(int size=k; size>0; size--)
+		{
+			index[size-1] = heap[0];
+			heap[0] = heap[size-1];
+			siftDown(heap, 0, size-1, value, descend);
+		}
+		return index;
+	}
+
+	/**
+	 * 番号aが番号bより順位が高いかを判定します。<br>
+	 * @param a 番号
+	 * @param b 番号
+	 * @param value 値
+	 * @param descend trueなら値が大きいほうが上位
+	 * @return aが上位ならtrue
+	 */
+	private static boolean before(int a, int b, double[] value, boolean descend)
+	{
+		int compare = descend ? Double.compare(value[b], value[a]) : Double.compare(value[a], value[b]);
+		return (compare != 0) ? compare < 0 : a < b;
+	}
+
+	/**
+	 * ヒープの要素を下に移動して、根が最も順位の低い要素になるようにします。<br>
+	 * @param heap ヒープ
+	 * @param position 移動する要素の位置
+	 * @param size ヒープの要素数
+	 * @param value 値
+	 * @param descend trueなら値が大きいほうが上位
+	 */
+	private static void siftDown(int[] heap, int position, int size, double[] value, boolean descend)
+	{
+		int target = heap[position];
+		while(true)
+		{
+			int child = 2*position+1;
+			if(child >= size)	break;
+			//順位の低いほうの子を選ぶ
+			if(child+1 < size && before(heap[child], heap[child+1], value, descend))	child++;
+			if(!before(target, heap[child], value, descend))	break;
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = target;
+	}
+}
@@ -0,0 +1,48 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 複数スレッドで共有する単目的のグローバルベスト粒子のクラスです。<br>
+ * グローバルベストは粒子のコピーとして保持し、保持した粒子は変更しません。<br>
+ * よりよい粒子はコピーを作ってから比較・交換(compareAndSet)で置き換えるため、ロックを使わず、<br>
+ * 取り出した粒子は他のスレッドが置き換えた後もそのまま参照できます。<br>
+ * 適応度は1番目の目的関数の値のみを比較し、小さいほどよいとします。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class SharedGlobalBest {
+
+	/** グローバルベスト粒子(置き換えるまで変更しない)	*/	private final AtomicReference<Particle> best = new AtomicReference<Particle>();
+
+	/**
+	 * グローバルベスト粒子を返します。<br>
+	 * 返した粒子は共有しているため、変更しないでください。<br>
+	 * @return グローバルベスト粒子(まだなければnull)
+	 */
+	public Particle get()
+	{
+		return best.get();
+	}
+
+	/**
+	 * 粒子がグローバルベストよりよければ、粒子のコピーでグローバルベストを置き換えます。<br>
+	 * 適応度が同じ場合は置き換えません。<br>
+	 * @param particle 評価済みの粒子
+	 * @return 置き換えた場合true
+	 */
+	public boolean offer(Particle particle)
+	{
+		Particle current = best.get();
+		if(current != null && !(particle.fitness[0] < current.fitness[0]))	return false;
+
+		Particle snapshot = particle.copy();	//比較・交換に失敗しても使い回す
+		while(!best.compareAndSet(current, snapshot))
+		{
+			//他のスレッドが先に置き換えた場合は比較し直す
+			current = best.get();
+			if(current != null && !(snapshot.fitness[0] < current.fitness[0]))	return false;
+		}
+		return true;
+	}
+}
@@ -1,6 +1,5 @@
 package jp.ohtayo.mathopt.core;
 
-import jp.ohtayo.commons.random.Random;
 import jp.ohtayo.commons.math.Numeric;
 import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.math.Vector;
@@ -33,25 +32,35 @@ public class Simplex extends Population {
 	 */
 	public void initialize(int numberOfVariables, int numberOfPopulations, int numberOfObjectives, String nameOfObjectiveFunction)
 	{
-		Random random = new Random();
+		initialize(numberOfVariables, numberOfPopulations, numberOfObjectives, nameOfObjectiveFunction, new RandomStream(), null);
+	}
+	
+	/**
+	 * 個体群の変数を指定した乱数列で初期化し、スレッドプールで並行に評価します。<br>
+	 * 重心は{@link #calculateCentroid()}で求め直すため、乱数で初期化するだけで評価しません。<br>
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfPopulations 個体数
+	 * @param numberOfObjectives 目的数
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param random 乱数列
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void initialize(int numberOfVariables, int numberOfPopulations, int numberOfObjectives, String nameOfObjectiveFunction,
+			RandomStream random, EvaluationExecutor executor)
+	{
 		individual = new Vertex[numberOfPopulations];
-		double[] value = new double[numberOfVariables];
 		
 		//変数初期化
 		for (int i = 0; i < individual.length; i++)
 		{
-			value = random.rand(value.length);	//0～1の乱数配列を生成
 			individual[i] = new Vertex(numberOfVariables, numberOfObjectives);
-			individual[i].setVariable(value);
-			individual[i].evaluate(nameOfObjectiveFunction);
+			individual[i].setVariable(random.rand(numberOfVariables));	//0～1の乱数配列を生成
 		}
+		this.evaluate(nameOfObjectiveFunction, executor);
 		
 		//重心の初期化
-		value = random.rand(value.length);	//0～1の乱数配列を生成
 		xg = new Vertex(numberOfVariables, numberOfObjectives);
-		xg.setVariable(value);
-		xg.evaluate(nameOfObjectiveFunction);
-
+		xg.setVariable(random.rand(numberOfVariables));	//0～1の乱数配列を生成
 	}
 	
 	/**
@@ -59,6 +68,15 @@ public class Simplex extends Population {
 	 * @param nameOfObjectiveFunction 目的関数名
 	 */
 	public void reduction(String nameOfObjectiveFunction){
+		reduction(nameOfObjectiveFunction, null);
+	}
+
+	/**
+	 * 収縮操作をします。収縮した探索点はスレッドプールで並行に評価します。
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void reduction(String nameOfObjectiveFunction, EvaluationExecutor executor){
 		
 		int[] index={0};
 		new Matrix(this.getFitness()).getColumn(0).min(index);
@@ -68,7 +86,7 @@ public class Simplex extends Population {
 			individual[i].setVariable( new Vector(individual[index[0]].getVariable()).plus(new Vector(individual[i].getVariable())).division(2).get() );
 		}
 		this.limit();
-		this.evaluate(nameOfObjectiveFunction);
+		this.evaluate(nameOfObjectiveFunction, executor);
 	}
 	
 	/**
@@ -101,4 +119,30 @@ public class Simplex extends Population {
 		//個体数-1で割って平均を算出し、xgにセット
 		xg.setVariable( sum.division(temp.length()-1).get() );
 	}
+
+	/**
+	 * 指定した頂点を除いた頂点の重心を求め、xgに格納します。<br>
+	 * 複数の最悪点を同時に更新する場合に、残す頂点の重心を求めるために使います。<br>
+	 * @param excluded 除く頂点のインデックス
+	 */
+	public void calculateCentroid(int[] excluded)
+	{
+		boolean[] skip = new boolean[individual.length];
+		for(int i=0; i<excluded.length; i++)	skip[excluded[i]] = true;
+		
+		//除かない頂点の変数の和
+		double[] sum = new double[individual[0].getVariable().length];
+		int count = 0;
+		for(int i=0; i<individual.length; i++)
+		{
+			if(skip[i])	continue;
+			double[] variable = individual[i].getVariable();
+			for(int j=0; j<sum.length; j++)	sum[j] += variable[j];
+			count++;
+		}
+		
+		//頂点数で割って平均を算出し、xgにセット
+		for(int j=0; j<sum.length; j++)	sum[j] /= count;
+		xg.setVariable(sum);
+	}
 }
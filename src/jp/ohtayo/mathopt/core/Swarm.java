@@ -1,6 +1,5 @@
 package jp.ohtayo.mathopt.core;
 
-import jp.ohtayo.commons.math.Matrix;
 import jp.ohtayo.commons.io.Csv;
 import jp.ohtayo.commons.util.StringUtility;
 import jp.ohtayo.mathopt.function.ObjectiveFunction;
@@ -33,24 +32,19 @@ public class Swarm{
 	 */
 	public void initialize(int numberOfVariables, int numberOfObjectives, String nameOfObjectiveFunction)
 	{
-		for (int i=0; i<particle.length; i++)
-		{
-			particle[i] = new Particle(numberOfVariables, numberOfObjectives);
-		}
-		//位置は0~1で初期化
-		double[][] initPosition = new Matrix(particle.length, numberOfVariables, "random").get();
-		//速度は-0.5~0.5で初期化
-		double[][] initVelocity = new Matrix(particle.length, numberOfVariables, "random").minus(0.5).get();
+		initialize(numberOfVariables, numberOfObjectives, 0, nameOfObjectiveFunction, null, new RandomStream());
+	}
 
-		for (int i=0; i<particle.length; i++)
-		{
-			particle[i].position = initPosition[i];
-			particle[i].velocity = initVelocity[i];
-			System.arraycopy(particle[i].position, 0, particle[i].bestPosition, 0, particle[i].position.length);
-			double[] maximum = (double[]) ObjectiveFunction.getMaxValue(nameOfObjectiveFunction);
-			System.arraycopy(maximum, 0, particle[i].fitness, 0, maximum.length);	//目的関数の最大値をfitnessに格納
-			System.arraycopy(particle[i].fitness, 0, particle[i].bestFitness, 0, particle[i].fitness.length);	//fitnessの値をbestfitnessに格納
-		}
+	/**
+	 * 粒子を指定した乱数列で初期化します。
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数の名前(文字列)
+	 * @param random 乱数列
+	 */
+	public void initialize(int numberOfVariables, int numberOfObjectives, String nameOfObjectiveFunction, RandomStream random)
+	{
+		initialize(numberOfVariables, numberOfObjectives, 0, nameOfObjectiveFunction, null, random);
 	}
 
 	/**
@@ -62,6 +56,20 @@ public class Swarm{
 	 */
 	public void initialize(int numberOfVariables, int numberOfObjectives, int numberOfConstraints,
 			String nameOfObjectiveFunction, String fileOfInitialSolutions)
+	{
+		initialize(numberOfVariables, numberOfObjectives, numberOfConstraints, nameOfObjectiveFunction, fileOfInitialSolutions, new RandomStream());
+	}
+
+	/**
+	 * 粒子を指定した乱数列で初期化します。
+	 * @param numberOfVariables 変数の数
+	 * @param numberOfObjectives 目的関数の数
+	 * @param nameOfObjectiveFunction 目的関数の名前(文字列)
+	 * @param fileOfInitialSolutions 初期解を指定する場合そのファイル名。nullか空文字列ならランダムで初期化
+	 * @param random 乱数列
+	 */
+	public void initialize(int numberOfVariables, int numberOfObjectives, int numberOfConstraints,
+			String nameOfObjectiveFunction, String fileOfInitialSolutions, RandomStream random)
 	{
 		for (int i=0; i<particle.length; i++)
 		{
@@ -73,23 +81,20 @@ public class Swarm{
 		}
 
 		//位置の初期値
-		double[][] initPosition;
-		if( StringUtility.isNullOrEmpty(fileOfInitialSolutions) ) {
-			//位置は0~1で初期化
-			initPosition = new Matrix(particle.length, numberOfVariables, "random").get();
-		} else {
+		double[][] initPosition = null;
+		if( !StringUtility.isNullOrEmpty(fileOfInitialSolutions) ) {
 			//ファイル名があれば初期化時に解を取り込む
 			initPosition = Csv.read(fileOfInitialSolutions, 1, 0);
 		}
-		//速度は-0.5~0.5で初期化
-		double[][] initVelocity = new Matrix(particle.length, numberOfVariables, "random").minus(0.5).get();
 
+		double[] maximum = (double[]) ObjectiveFunction.getMaxValue(nameOfObjectiveFunction);
 		for (int i=0; i<particle.length; i++)
 		{
-			particle[i].position = initPosition[i];
-			particle[i].velocity = initVelocity[i];
+			//位置は0~1、速度は-0.5~0.5で初期化
+			particle[i].position = (initPosition == null) ? random.rand(numberOfVariables) : initPosition[i];
+			particle[i].velocity = random.rand(numberOfVariables);
+			for (int j=0; j<numberOfVariables; j++)	particle[i].velocity[j] -= 0.5;
 			System.arraycopy(particle[i].position, 0, particle[i].bestPosition, 0, particle[i].position.length);
-			double[] maximum = (double[]) ObjectiveFunction.getMaxValue(nameOfObjectiveFunction);
 			System.arraycopy(maximum, 0, particle[i].fitness, 0, maximum.length);	//目的関数の最大値をfitnessに格納
 			System.arraycopy(particle[i].fitness, 0, particle[i].bestFitness, 0, particle[i].fitness.length);	//fitnessの値をbestfitnessに格納
 		}
@@ -225,6 +230,30 @@ public class Swarm{
 		return bestFitness;
 	}
 
+	/**
+	 * 粒子群の各粒子をスレッドプールで並行に評価し、適応度を更新します。<br>
+	 * 最良位置・適応度は更新しません。<br>
+	 * @param nameOfObjectiveFunction 目的関数の名前
+	 * @param executor 評価用のスレッドプール(nullなら逐次評価)
+	 */
+	public void evaluate(final String nameOfObjectiveFunction, EvaluationExecutor executor)
+	{
+		if (executor == null)
+		{
+			for (int i=0; i<particle.length; i++)	particle[i].evaluate(nameOfObjectiveFunction);
+			return;
+		}
+		Runnable[] tasks = new Runnable[particle.length];
+		for (int i=0; i<particle.length; i++)
+		{
+			final Particle target = particle[i];
+			tasks[i] = new Runnable() {
+				public void run()	{ target.evaluate(nameOfObjectiveFunction); }
+			};
+		}
+		executor.execute(tasks);
+	}
+
 	/**
 	 * ２つの粒子群を合成して1つの粒子群にします。
 	 * @param basis 先頭に置く粒子群
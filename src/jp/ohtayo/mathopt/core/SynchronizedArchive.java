@@ -0,0 +1,103 @@
+package jp.ohtayo.mathopt.core;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 複数スレッドから同時に使えるようにアーカイブを包むクラスです。<br>
+ * 解の追加は書き込みロック、リーダーの取り出しなどの参照は読み込みロックで行うため、<br>
+ * 追加と追加の間は排他しますが、リーダーの取り出しどうしは同時に行えます。<br>
+ * アーカイブは解をコピーして保持し、保持した解を変更しないため、取り出した粒子はロックの外で参照できます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class SynchronizedArchive extends Archive {
+
+	/** 包むアーカイブ	*/	private final Archive archive;
+	/** 読み書きロック	*/	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * コンストラクタ<br>
+	 * 包んだ後は元のアーカイブを直接使わないでください。<br>
+	 * @param archive 包むアーカイブ
+	 */
+	public SynchronizedArchive(Archive archive)
+	{
+		this.archive = archive;
+	}
+
+	@Override
+	public boolean add(Particle particle)
+	{
+		lock.writeLock().lock();
+		try {
+			return archive.add(particle);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int add(Swarm swarm)
+	{
+		lock.writeLock().lock();
+		try {
+			return archive.add(swarm);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		lock.readLock().lock();
+		try {
+			return archive.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Particle get(int index)
+	{
+		lock.readLock().lock();
+		try {
+			return archive.get(index);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 保持している解からランダムに1つ取り出します。<br>
+	 * 解の数の取得と取り出しを1つのロックの中で行います。<br>
+	 * @param random 0以上1未満の乱数
+	 * @return 取り出した粒子
+	 */
+	@Override
+	public Particle sample(double random)
+	{
+		lock.readLock().lock();
+		try {
+			return archive.sample(random);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 保持している解を粒子群として返します。(別メモリ確保)<br>
+	 * @return 粒子群
+	 */
+	@Override
+	public Swarm toSwarm()
+	{
+		lock.readLock().lock();
+		try {
+			return archive.toSwarm();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
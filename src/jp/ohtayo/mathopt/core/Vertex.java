@@ -28,6 +28,20 @@ public class Vertex extends RealCodedIndividual {
 	 * @return 自分から重心に対して反射された頂点
 	 */
 	public Vertex reflection(Vertex xg, double alpha, String nameOfObjectiveFunction)
+	{
+		Vertex vertex = reflection(xg, alpha);
+		vertex.evaluate(nameOfObjectiveFunction);
+		return vertex;
+	}
+	
+	/**
+	 * 反射操作をします。反射した頂点は評価しません。<br>
+	 * 適応度は自分の適応度のコピーのため、評価してから使用してください。<br>
+	 * @param xg 重心にある頂点
+	 * @param alpha 反射率
+	 * @return 自分から重心に対して反射された頂点
+	 */
+	public Vertex reflection(Vertex xg, double alpha)
 	{
 		Vector vxg = new Vector(xg.getVariable());
 		Vector vx = new Vector(this.getVariable());
@@ -36,7 +50,6 @@ public class Vertex extends RealCodedIndividual {
 		//xr = xo + α(xo-xh) (xhが自分(最悪値))
 		vertex.setVariable( vxg.minus(vx).multiply(alpha).plus(vxg).get() );
 		vertex.setVariable(Numeric.limit(vertex.getVariable(), 1, 0));
-		vertex.evaluate(nameOfObjectiveFunction);
 		return vertex;
 	}
 	
@@ -48,6 +61,20 @@ public class Vertex extends RealCodedIndividual {
 	 * @return 拡大操作された頂点
 	 */
 	public Vertex expansion(Vertex xg, double ganma, String nameOfObjectiveFunction)
+	{
+		Vertex vertex = expansion(xg, ganma);
+		vertex.evaluate(nameOfObjectiveFunction);
+		return vertex;
+	}
+	
+	/**
+	 * 拡大操作をします。拡大した頂点は評価しません。<br>
+	 * 適応度は自分の適応度のコピーのため、評価してから使用してください。<br>
+	 * @param xg 重心にある頂点
+	 * @param ganma 拡大率
+	 * @return 拡大操作された頂点
+	 */
+	public Vertex expansion(Vertex xg, double ganma)
 	{
 		Vector vxg = new Vector(xg.getVariable());
 		Vector vx = new Vector(this.getVariable());
@@ -56,7 +83,6 @@ public class Vertex extends RealCodedIndividual {
 		//xe = xo + γ(xr-xo) (xrが自分)
 		vertex.setVariable( vx.minus(vxg).multiply(ganma).plus(vxg).get() );
 		vertex.setVariable(Numeric.limit(vertex.getVariable(), 1, 0));
-		vertex.evaluate(nameOfObjectiveFunction);
 		return vertex;
 	}
 	
@@ -73,6 +99,18 @@ public class Vertex extends RealCodedIndividual {
 		return expansion(xg, beta, nameOfObjectiveFunction);
 	}
 	
+	/**
+	 * 縮小操作をします。縮小した頂点は評価しません。<br>
+	 * 適応度は自分の適応度のコピーのため、評価してから使用してください。<br>
+	 * @param xg 重心にある頂点
+	 * @param beta 縮小率
+	 * @return 縮小操作された頂点
+	 */
+	public Vertex contraction(Vertex xg, double beta)
+	{
+		return expansion(xg, beta);
+	}
+	
 	/**
 	 * 自身を別の個体iにコピーします
 	 * @return コピー先個体
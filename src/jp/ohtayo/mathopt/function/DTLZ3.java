@@ -29,6 +29,23 @@ public class DTLZ3 {
 	{
 		return minValue;
 	}
+	/**
+	 * 真のパレートフロントを返します。<br>
+	 * f1^2 + f2^2 = 1 の円弧上に等間隔に点をとります。<br>
+	 * @param numberOfPoints 点の数
+	 * @return パレートフロント(行が点、列が目的)
+	 */
+	public static double[][] getParetoFront(int numberOfPoints)
+	{
+		double[][] front = new double[numberOfPoints][2];
+		for(int i=0; i<numberOfPoints; i++)
+		{
+			double theta = (numberOfPoints > 1) ? Math.PI/2 * i/(numberOfPoints-1) : 0.0;
+			front[i][0] = Math.sin(theta);
+			front[i][1] = Math.cos(theta);
+		}
+		return front;
+	}
 	
 	/**
 	 * 制約条件を満たしているか判定し、<br>
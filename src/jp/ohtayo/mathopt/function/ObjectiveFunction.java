@@ -79,5 +79,28 @@ public class ObjectiveFunction {
 			return null;
 		}
 	}
+
+	/**
+	 * 目的関数の真のパレートフロントを返します。<br>
+	 * @param nameOfObjectiveFunction 目的関数のクラス名
+	 * @param numberOfPoints 点の数
+	 * @return パレートフロント
+	 */
+	public static Object getParetoFront(String nameOfObjectiveFunction, int numberOfPoints)
+	{
+		Class<?> cClass;
+		try{
+			//Staticでクラス定義と関数実行する
+			cClass = Class.forName(nameOfObjectiveFunction);					//クラスを定義
+			Method method = cClass.getMethod("getParetoFront", int.class);	//関数を取得
+			Object ret = method.invoke(cClass, numberOfPoints);				//関数の実行
+			return ret;	//値を型変換して返す
+		}
+		catch(Exception e)
+		{
+			Logging.logger.severe(e.toString());
+			return null;
+		}
+	}
 	
 }
@@ -27,6 +27,23 @@ public class ZDT2 {
 	{
 		return minValue;
 	}
+	/**
+	 * 真のパレートフロントを返します。<br>
+	 * f2 = 1 - f1^2 (0≦f1≦1) の曲線上に等間隔に点をとります。<br>
+	 * @param numberOfPoints 点の数
+	 * @return パレートフロント(行が点、列が目的)
+	 */
+	public static double[][] getParetoFront(int numberOfPoints)
+	{
+		double[][] front = new double[numberOfPoints][2];
+		for(int i=0; i<numberOfPoints; i++)
+		{
+			double x = (numberOfPoints > 1) ? (double)i/(numberOfPoints-1) : 0.0;
+			front[i][0] = x;
+			front[i][1] = 1 - x*x;
+		}
+		return front;
+	}
 	
 	/**
 	 * 目的関数を計算します<br>
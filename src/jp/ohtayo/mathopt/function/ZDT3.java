@@ -27,6 +27,34 @@ public class ZDT3 {
 	{
 		return minValue;
 	}
+	/**
+	 * 真のパレートフロントを返します。<br>
+	 * f2 = 1 - √f1 - f1・sin(10πf1) の曲線のうち非劣な部分の点を返すため、点の数は指定より少なくなります。<br>
+	 * @param numberOfPoints 点の数
+	 * @return パレートフロント(行が点、列が目的)
+	 */
+	public static double[][] getParetoFront(int numberOfPoints)
+	{
+		//曲線上に等間隔に点をとり、優越される点を除く
+		double[][] curve = new double[numberOfPoints][2];
+		int count = 0;
+		double minimum = Double.MAX_VALUE;
+		for(int i=0; i<numberOfPoints; i++)
+		{
+			double x = (numberOfPoints > 1) ? (double)i/(numberOfPoints-1) : 0.0;
+			double y = 1 - Math.sqrt(x) - x*Math.sin(10*Math.PI*x);
+			if(y < minimum)
+			{
+				curve[count][0] = x;
+				curve[count][1] = y;
+				count++;
+				minimum = y;
+			}
+		}
+		double[][] front = new double[count][];
+		for(int i=0; i<count; i++)	front[i] = curve[i];
+		return front;
+	}
 
 	/**
 	 * 目的関数を計算します<br>
@@ -0,0 +1,522 @@
+package jp.ohtayo.mathopt.indicator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jp.ohtayo.commons.random.Random;
+
+/**
+ * 多目的最適化の解集合の超体積(Hypervolume)指標を計算するクラスです。<br>
+ * 適応度は全ての目的で最小化とし、参照点よりも全ての目的で小さい解のみが超体積に寄与します。<br>
+ * 厳密計算は2目的でソートによるO(N log N)、3目的で平面走査によるO(N log N)(いずれも非劣解の絞り込みを含む)、<br>
+ * 4目的以上でWFGアルゴリズム(While et al., 2012)を用います。<br>
+ * 目的数が多い場合のためにモンテカルロ法による推定も提供します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class Hypervolume {
+
+	/**
+	 * 解集合の超体積を厳密に計算します。<br>
+	 * Swarm.getFitness()の適応度行列をそのまま渡せます。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @param reference 参照点
+	 * @return 超体積
+	 */
+	public static double calculate(double[][] fitness, double[] reference)
+	{
+		double[][] points = filter(fitness, reference);
+		if(points.length == 0)	return 0.0;
+		return volume(points, reference);
+	}
+
+	/**
+	 * 解集合の超体積をモンテカルロ法で推定します。<br>
+	 * 理想点と参照点で囲まれた領域に一様に点を打ち、いずれかの解に優越される点の割合から推定します。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @param reference 参照点
+	 * @param numberOfSamples サンプル数
+	 * @param seed 乱数のシード
+	 * @return 超体積の推定値
+	 */
+	public static double estimate(double[][] fitness, double[] reference, int numberOfSamples, long seed)
+	{
+		double[][] points = filter(fitness, reference);
+		if(points.length == 0 || numberOfSamples < 1)	return 0.0;
+		int numberOfObjectives = reference.length;
+
+		//理想点と参照点で囲まれた領域の体積
+		double[] ideal = new double[numberOfObjectives];
+		Arrays.fill(ideal, Double.MAX_VALUE);
+		for(double[] point : points)
+		{
+			for(int o=0; o<numberOfObjectives; o++)	if(point[o] < ideal[o])	ideal[o] = point[o];
+		}
+		double box = 1.0;
+		for(int o=0; o<numberOfObjectives; o++)	box *= reference[o] - ideal[o];
+
+		//優越される点を数える
+		Random random = new Random(seed);
+		double[] sample = new double[numberOfObjectives];
+		int hit = 0;
+		for(int s=0; s<numberOfSamples; s++)
+		{
+			for(int o=0; o<numberOfObjectives; o++)	sample[o] = ideal[o] + random.nextDouble() * (reference[o] - ideal[o]);
+			for(double[] point : points)
+			{
+				if(weaklyDominates(point, sample))
+				{
+					hit++;
+					break;
+				}
+			}
+		}
+		return box * hit / numberOfSamples;
+	}
+
+	/**
+	 * 各解の排他的な寄与(その解だけが優越している領域の体積)を計算します。<br>
+	 * 他の解に優越される解や、同じ適応度の解が複数ある場合の寄与は0です。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @param reference 参照点
+	 * @return 各解の寄与
+	 */
+	public static double[] contribution(double[][] fitness, double[] reference)
+	{
+		double[] result = new double[fitness.length];
+		int numberOfObjectives = reference.length;
+
+		//参照点より良い解のインデックス
+		ArrayList<Integer> valid = new ArrayList<Integer>();
+		for(int i=0; i<fitness.length; i++)	if(strictlyBetter(fitness[i], reference))	valid.add(i);
+		if(valid.isEmpty())	return result;
+
+		if(numberOfObjectives == 2)
+		{
+			contribution2D(fitness, valid, reference, result);
+			return result;
+		}
+
+		//3目的以上は各解単独の体積から他の解と重なる体積を引く
+		double[][] points = new double[valid.size()][];
+		for(int k=0; k<points.length; k++)	points[k] = fitness[valid.get(k)];
+		for(int k=0; k<points.length; k++)
+		{
+			result[valid.get(k)] = exclusive(points, k, reference);
+		}
+		return result;
+	}
+
+	/**
+	 * k番目の解の排他的な寄与を計算します。<br>
+	 * 寄与 = k番目の解単独の体積 - k番目の解で制限した他の解集合の超体積<br>
+	 * @param points 解集合
+	 * @param k 解の番号
+	 * @param reference 参照点
+	 * @return 寄与
+	 */
+	private static double exclusive(double[][] points, int k, double[] reference)
+	{
+		double[][] limited = new double[points.length-1][];
+		int count = 0;
+		for(int j=0; j<points.length; j++)
+		{
+			if(j == k)	continue;
+			limited[count++] = limit(points[j], points[k]);
+		}
+		limited = nondominated(limited);
+		double inclusive = boxVolume(points[k], reference);
+		if(limited.length == 0)	return inclusive;
+		return inclusive - volume(limited, reference);
+	}
+
+	/**
+	 * 参照点より良い解のみを非劣解に絞り込みます。<br>
+	 * @param fitness 適応度行列
+	 * @param reference 参照点
+	 * @return 非劣解の適応度行列
+	 */
+	private static double[][] filter(double[][] fitness, double[] reference)
+	{
+		ArrayList<double[]> result = new ArrayList<double[]>();
+		for(double[] point : fitness)	if(strictlyBetter(point, reference))	result.add(point);
+		return nondominated(result.toArray(new double[result.size()][]));
+	}
+
+	/**
+	 * 超体積を計算します。解集合は非劣解で参照点より良いものとします。<br>
+	 * @param points 解集合
+	 * @param reference 参照点
+	 * @return 超体積
+	 */
+	private static double volume(double[][] points, double[] reference)
+	{
+		if(points.length == 1)	return boxVolume(points[0], reference);
+		switch(reference.length)
+		{
+		case 1:		return reference[0] - points[0][0];
+		case 2:		return volume2D(points, reference);
+		case 3:		return volume3D(points, reference);
+		default:	return volumeWFG(points, reference);
+		}
+	}
+
+	/**
+	 * 2目的の超体積をf0でソートして計算します。O(N log N)<br>
+	 * @param points 非劣解集合
+	 * @param reference 参照点
+	 * @return 超体積
+	 */
+	private static double volume2D(double[][] points, double[] reference)
+	{
+		double[][] sorted = points.clone();
+		Arrays.sort(sorted, new Comparator<double[]>() {
+			public int compare(double[] a, double[] b) {
+				return Double.compare(a[0], b[0]);
+			}
+		});
+		double volume = 0.0;
+		double top = reference[1];
+		for(int k=0; k<sorted.length; k++)
+		{
+			if(sorted[k][1] >= top)	continue;
+			double right = reference[0];
+			volume += (right - sorted[k][0]) * (top - sorted[k][1]);
+			top = sorted[k][1];
+		}
+		return volume;
+	}
+
+	/**
+	 * 3目的の超体積をf0方向の平面走査で計算します。O(N log N)<br>
+	 * f1-f2平面の非劣解の階段と面積を木構造で逐次更新します。<br>
+	 * @param points 非劣解集合
+	 * @param reference 参照点
+	 * @return 超体積
+	 */
+	private static double volume3D(double[][] points, double[] reference)
+	{
+		double[][] sorted = points.clone();
+		Arrays.sort(sorted, new Comparator<double[]>() {
+			public int compare(double[] a, double[] b) {
+				return Double.compare(a[0], b[0]);
+			}
+		});
+
+		//f1をキー、f2を値とする階段(f1の昇順にf2は降順)
+		TreeMap<Double, Double> front = new TreeMap<Double, Double>();
+		double area = 0.0;
+		double volume = 0.0;
+		for(int k=0; k<sorted.length; k++)
+		{
+			area += insert(front, sorted[k][1], sorted[k][2], reference[1], reference[2]);
+			double next = (k+1 < sorted.length) ? sorted[k+1][0] : reference[0];
+			volume += area * (next - sorted[k][0]);
+		}
+		return volume;
+	}
+
+	/**
+	 * 2次元の階段に点を追加し、増えた面積を返します。<br>
+	 * 追加する点に優越される点は階段から削除します。<br>
+	 * @param front 階段(f1の昇順にf2は降順)
+	 * @param x 追加する点のf1
+	 * @param y 追加する点のf2
+	 * @param referenceX 参照点のf1
+	 * @param referenceY 参照点のf2
+	 * @return 増えた面積
+	 */
+	private static double insert(TreeMap<Double, Double> front, double x, double y, double referenceX, double referenceY)
+	{
+		//x以下で最も右の点がy以下なら優越されている
+		Map.Entry<Double, Double> floor = front.floorEntry(x);
+		if(floor != null && floor.getValue() <= y)	return 0.0;
+
+		//xより左の点の高さから、右の点を順にたどって増えた面積を求める
+		Map.Entry<Double, Double> lower = front.lowerEntry(x);
+		double currentX = x;
+		double currentY = (lower != null) ? lower.getValue() : referenceY;
+		double gain = 0.0;
+		Map.Entry<Double, Double> entry = front.ceilingEntry(x);
+		while(entry != null)
+		{
+			gain += (entry.getKey() - currentX) * (currentY - y);
+			currentX = entry.getKey();
+			currentY = entry.getValue();
+			if(currentY < y)	break;
+			//追加する点に優越される点は削除
+			front.remove(entry.getKey());
+			entry = front.higherEntry(currentX);
+		}
+		if(entry == null)	gain += (referenceX - currentX) * (currentY - y);
+		front.put(x, y);
+		return gain;
+	}
+
+	/**
+	 * WFGアルゴリズムで超体積を計算します。<br>
+	 * 最後の目的の昇順に並べ、各解の排他的な体積の和を求めます。<br>
+	 * @param points 非劣解集合
+	 * @param reference 参照点
+	 * @return 超体積
+	 */
+	private static double volumeWFG(double[][] points, double[] reference)
+	{
+		final int last = reference.length-1;
+		double[][] sorted = points.clone();
+		Arrays.sort(sorted, new Comparator<double[]>() {
+			public int compare(double[] a, double[] b) {
+				return Double.compare(a[last], b[last]);
+			}
+		});
+		double volume = 0.0;
+		for(int k=0; k<sorted.length; k++)
+		{
+			//k番目より後の解をk番目の解で制限した解集合
+			double[][] limited = new double[sorted.length-k-1][];
+			for(int j=k+1; j<sorted.length; j++)	limited[j-k-1] = limit(sorted[j], sorted[k]);
+			limited = nondominated(limited);
+			volume += boxVolume(sorted[k], reference);
+			if(limited.length > 0)	volume -= volume(limited, reference);
+		}
+		return volume;
+	}
+
+	/**
+	 * 解を別の解で制限します。(各目的で悪い方の値をとる)<br>
+	 * @param point 解
+	 * @param limit 制限する解
+	 * @return 制限した解
+	 */
+	private static double[] limit(double[] point, double[] limit)
+	{
+		double[] result = new double[point.length];
+		for(int o=0; o<point.length; o++)	result[o] = Math.max(point[o], limit[o]);
+		return result;
+	}
+
+	/**
+	 * 非劣解のみを返します。同じ値の解は1つだけ残します。<br>
+	 * 2目的・3目的はソートと走査でO(N log N)、4目的以上は総当たりでO(N^2)です。<br>
+	 * @param points 解集合
+	 * @return 非劣解集合
+	 */
+	private static double[][] nondominated(double[][] points)
+	{
+		if(points.length < 2)	return points;
+		if(points[0].length == 2)	return nondominated2D(points);
+		if(points[0].length == 3)	return nondominated3D(points);
+
+		boolean[] removed = new boolean[points.length];
+		int count = points.length;
+		for(int i=0; i<points.length; i++)
+		{
+			if(removed[i])	continue;
+			for(int j=0; j<points.length; j++)
+			{
+				if(i == j || removed[j])	continue;
+				if(weaklyDominates(points[i], points[j]))
+				{
+					removed[j] = true;
+					count--;
+				}
+			}
+		}
+		double[][] result = new double[count][];
+		count = 0;
+		for(int i=0; i<points.length; i++)	if(!removed[i])	result[count++] = points[i];
+		return result;
+	}
+
+	/**
+	 * 2目的の非劣解を辞書式順に並べて走査し、求めます。O(N log N)<br>
+	 * それまでのf1の最小値より小さい解のみが非劣解です。<br>
+	 * @param points 解集合
+	 * @return 非劣解集合
+	 */
+	private static double[][] nondominated2D(double[][] points)
+	{
+		double[][] sorted = sortLexicographic(points);
+		ArrayList<double[]> result = new ArrayList<double[]>();
+		double bottom = Double.POSITIVE_INFINITY;
+		for(double[] point : sorted)
+		{
+			if(point[1] >= bottom)	continue;
+			result.add(point);
+			bottom = point[1];
+		}
+		return result.toArray(new double[result.size()][]);
+	}
+
+	/**
+	 * 3目的の非劣解を辞書式順に並べて走査し、求めます。O(N log N)<br>
+	 * それまでの非劣解のf1-f2平面の階段に優越される解を除きます。<br>
+	 * @param points 解集合
+	 * @return 非劣解集合
+	 */
+	private static double[][] nondominated3D(double[][] points)
+	{
+		double[][] sorted = sortLexicographic(points);
+		ArrayList<double[]> result = new ArrayList<double[]>();
+
+		//f1をキー、f2を値とする階段(f1の昇順にf2は降順)
+		TreeMap<Double, Double> front = new TreeMap<Double, Double>();
+		for(double[] point : sorted)
+		{
+			//f1以下で最も右の点がf2以下なら優越されている
+			Map.Entry<Double, Double> floor = front.floorEntry(point[1]);
+			if(floor != null && floor.getValue() <= point[2])	continue;
+			result.add(point);
+
+			//追加する点に優越される点を階段から削除
+			Map.Entry<Double, Double> entry = front.ceilingEntry(point[1]);
+			while(entry != null && entry.getValue() >= point[2])
+			{
+				front.remove(entry.getKey());
+				entry = front.higherEntry(entry.getKey());
+			}
+			front.put(point[1], point[2]);
+		}
+		return result.toArray(new double[result.size()][]);
+	}
+
+	/**
+	 * 解集合を目的の辞書式順に並べます。優越する解は優越される解より前になります。<br>
+	 * @param points 解集合
+	 * @return 並べた解集合(別メモリ確保)
+	 */
+	private static double[][] sortLexicographic(double[][] points)
+	{
+		double[][] sorted = points.clone();
+		Arrays.sort(sorted, new Comparator<double[]>() {
+			public int compare(double[] a, double[] b) {
+				for(int o=0; o<a.length; o++)
+				{
+					int c = Double.compare(a[o], b[o]);
+					if(c != 0)	return c;
+				}
+				return 0;
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * 解と参照点で囲まれた直方体の体積を返します。<br>
+	 * @param point 解
+	 * @param reference 参照点
+	 * @return 体積
+	 */
+	private static double boxVolume(double[] point, double[] reference)
+	{
+		double volume = 1.0;
+		for(int o=0; o<point.length; o++)	volume *= reference[o] - point[o];
+		return volume;
+	}
+
+	/**
+	 * 解aが解bに弱優越(全ての目的で以下)しているか判定します。<br>
+	 * @param a 解a
+	 * @param b 解b
+	 * @return 弱優越していればtrue
+	 */
+	private static boolean weaklyDominates(double[] a, double[] b)
+	{
+		for(int o=0; o<a.length; o++)	if(a[o] > b[o])	return false;
+		return true;
+	}
+
+	/**
+	 * 解が参照点より全ての目的で小さいか判定します。<br>
+	 * @param point 解
+	 * @param reference 参照点
+	 * @return 小さければtrue
+	 */
+	private static boolean strictlyBetter(double[] point, double[] reference)
+	{
+		for(int o=0; o<reference.length; o++)	if(!(point[o] < reference[o]))	return false;
+		return true;
+	}
+
+	/**
+	 * 2目的の各解の排他的な寄与をf0でソートして計算します。O(N log N)<br>
+	 * 非劣解の寄与は両隣の非劣解で囲まれた長方形から、その解だけに優越される解が覆う面積を引いたものです。<br>
+	 * @param fitness 適応度行列
+	 * @param valid 参照点より良い解のインデックス
+	 * @param reference 参照点
+	 * @param result 各解の寄与の格納先
+	 */
+	private static void contribution2D(final double[][] fitness, ArrayList<Integer> valid, double[] reference, double[] result)
+	{
+		//f0の昇順(同値ならf1の昇順)に並べる
+		Integer[] order = valid.toArray(new Integer[valid.size()]);
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int c = Double.compare(fitness[a][0], fitness[b][0]);
+				return (c != 0) ? c : Double.compare(fitness[a][1], fitness[b][1]);
+			}
+		});
+
+		//非劣解とそれ以外に分ける
+		ArrayList<Integer> front = new ArrayList<Integer>();
+		ArrayList<Integer> others = new ArrayList<Integer>();
+		double minY = reference[1];
+		for(int k=0; k<order.length; k++)
+		{
+			if(fitness[order[k]][1] < minY)
+			{
+				front.add(order[k]);
+				minY = fitness[order[k]][1];
+			}
+			else
+			{
+				others.add(order[k]);
+			}
+		}
+		double[] frontX = new double[front.size()];
+		for(int k=0; k<frontX.length; k++)	frontX[k] = fitness[front.get(k)][0];
+
+		//非劣解以外の解を、それを優越する唯一の非劣解ごとにまとめる
+		ArrayList<ArrayList<double[]>> covered = new ArrayList<ArrayList<double[]>>();
+		for(int k=0; k<front.size(); k++)	covered.add(new ArrayList<double[]>());
+		for(int i : others)
+		{
+			int k = lastNotGreater(frontX, fitness[i][0]);
+			double top = (k > 0) ? fitness[front.get(k-1)][1] : reference[1];
+			if(fitness[i][1] < top)	covered.get(k).add(fitness[i]);
+		}
+
+		for(int k=0; k<front.size(); k++)
+		{
+			int i = front.get(k);
+			double[] corner = new double[2];
+			corner[0] = (k+1 < front.size()) ? fitness[front.get(k+1)][0] : reference[0];
+			corner[1] = (k > 0) ? fitness[front.get(k-1)][1] : reference[1];
+			result[i] = (corner[0] - fitness[i][0]) * (corner[1] - fitness[i][1]);
+			ArrayList<double[]> list = covered.get(k);
+			if(!list.isEmpty())	result[i] -= volume2D(list.toArray(new double[list.size()][]), corner);
+		}
+	}
+
+	/**
+	 * 昇順の配列で値以下の最後の位置を二分探索で求めます。<br>
+	 * @param sorted 昇順の配列
+	 * @param value 値
+	 * @return 位置(先頭の値より小さい場合は-1)
+	 */
+	private static int lastNotGreater(double[] sorted, double value)
+	{
+		int low = 0;
+		int high = sorted.length-1;
+		while(low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			if(sorted[middle] <= value)	low = middle+1;
+			else						high = middle-1;
+		}
+		return high;
+	}
+}
@@ -0,0 +1,145 @@
+package jp.ohtayo.mathopt.indicator;
+
+import java.util.HashMap;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.core.KdTree;
+import jp.ohtayo.mathopt.function.ObjectiveFunction;
+
+/**
+ * 真のパレートフロント(参照フロント)に対する収束指標を計算するクラスです。<br>
+ * 参照フロントは一度だけk-d木に登録し、世代ごとの解集合に対してGD, IGD, 拡がり(Δ)を計算します。<br>
+ * 最近傍探索にk-d木を使うため、解の数N、参照点の数Rに対してO(N log R)程度で計算できます。<br>
+ * 距離はすべてユークリッド距離です。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class ReferenceFront {
+
+	/** 目的関数ごとの参照フロントのキャッシュ	*/	private static final HashMap<String, ReferenceFront> cache = new HashMap<String, ReferenceFront>();
+
+	/** 参照フロントの点		*/	private final double[][] point;
+	/** 参照フロントのk-d木		*/	private final KdTree tree;
+	/** 各目的の端点		*/	private final double[][] extreme;
+
+	/**
+	 * コンストラクタ<br>
+	 * 参照フロントの点からk-d木を構築します。<br>
+	 * @param point 参照フロントの点(行が点、列が目的)
+	 */
+	public ReferenceFront(double[][] point)
+	{
+		if(point == null || point.length == 0)
+			throw new IllegalArgumentException("empty reference front");
+		this.point = point;
+		this.tree = new KdTree(point, KdTree.EUCLIDEAN);
+
+		//各目的で最大の点を端点とする
+		int numberOfObjectives = point[0].length;
+		extreme = new double[numberOfObjectives][];
+		for(int o=0; o<numberOfObjectives; o++)
+		{
+			extreme[o] = point[0];
+			for(int i=1; i<point.length; i++)	if(point[i][o] > extreme[o][o])	extreme[o] = point[i];
+		}
+	}
+
+	/**
+	 * 目的関数の参照フロントを返します。<br>
+	 * 目的関数クラスのgetParetoFront(int)で生成し、同じ目的関数と点の数では生成済みのものを返します。<br>
+	 * @param nameOfObjectiveFunction 目的関数のクラス名
+	 * @param numberOfPoints 点の数
+	 * @return 参照フロント(生成できなかった場合null)
+	 */
+	public static synchronized ReferenceFront get(String nameOfObjectiveFunction, int numberOfPoints)
+	{
+		String key = nameOfObjectiveFunction + "#" + numberOfPoints;
+		ReferenceFront front = cache.get(key);
+		if(front == null)
+		{
+			double[][] point = (double[][])ObjectiveFunction.getParetoFront(nameOfObjectiveFunction, numberOfPoints);
+			if(point == null)
+			{
+				Logging.logger.severe("pareto front of " + nameOfObjectiveFunction + " is not defined.");
+				return null;
+			}
+			front = new ReferenceFront(point);
+			cache.put(key, front);
+		}
+		return front;
+	}
+
+	/**
+	 * 参照フロントの点の数を返します。<br>
+	 * @return 点の数
+	 */
+	public int size()	{ return point.length; }
+
+	/**
+	 * 世代距離(GD)を計算します。<br>
+	 * 各解から参照フロントの最も近い点までの距離の平均です。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @return GD
+	 */
+	public double calculateGD(double[][] fitness)
+	{
+		if(fitness.length == 0)	return 0.0;
+		double sum = 0.0;
+		for(int i=0; i<fitness.length; i++)	sum += tree.nearestDistance(fitness[i]);
+		return sum / fitness.length;
+	}
+
+	/**
+	 * 逆世代距離(IGD)を計算します。<br>
+	 * 参照フロントの各点から最も近い解までの距離の平均です。<br>
+	 * 解集合のk-d木を構築してから探索するため、O((N+R) log N)で計算します。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @return IGD(解がなければDouble.MAX_VALUE)
+	 */
+	public double calculateIGD(double[][] fitness)
+	{
+		if(fitness.length == 0)	return Double.MAX_VALUE;
+		KdTree solution = new KdTree(fitness, KdTree.EUCLIDEAN);
+		double sum = 0.0;
+		for(int i=0; i<point.length; i++)	sum += solution.nearestDistance(point[i]);
+		return sum / point.length;
+	}
+
+	/**
+	 * 拡がり(一般化Δ, Zhou et al., 2006)を計算します。<br>
+	 * Δ = (Σd(e_m) + Σ|d_i - d_mean|) / (Σd(e_m) + N*d_mean)<br>
+	 * d(e_m)は参照フロントの各目的の端点から最も近い解までの距離、d_iは各解から最も近い他の解までの距離です。<br>
+	 * 0に近いほど解が均一に分布し、端点まで広がっていることを示します。<br>
+	 * @param fitness 適応度行列(行が解、列が目的)
+	 * @return 拡がり
+	 */
+	public double calculateSpread(double[][] fitness)
+	{
+		if(fitness.length < 2)	return 1.0;
+		KdTree solution = new KdTree(fitness, KdTree.EUCLIDEAN);
+
+		//端点から解までの距離
+		double extremeSum = 0.0;
+		for(int o=0; o<extreme.length; o++)	extremeSum += solution.nearestDistance(extreme[o]);
+
+		//各解から最も近い他の解までの距離
+		int[] index = new int[1];
+		double[] nearest = new double[1];
+		double[] distance = new double[fitness.length];
+		double mean = 0.0;
+		for(int i=0; i<fitness.length; i++)
+		{
+			solution.nearest(fitness[i], 1, i, index, nearest);
+			distance[i] = nearest[0];
+			mean += distance[i];
+		}
+		mean /= fitness.length;
+
+		double deviation = 0.0;
+		for(int i=0; i<fitness.length; i++)	deviation += Math.abs(distance[i] - mean);
+
+		double denominator = extremeSum + fitness.length * mean;
+		if(denominator == 0.0)	return 0.0;
+		return (extremeSum + deviation) / denominator;
+	}
+}
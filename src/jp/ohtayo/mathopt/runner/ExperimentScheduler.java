@@ -0,0 +1,250 @@
+package jp.ohtayo.mathopt.runner;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.core.RandomStream;
+
+/**
+ * アルゴリズム×目的関数×試行の比較実験を複数のスレッドで並列に実行するクラスです。<br>
+ * アルゴリズム(パラメータを含む)と目的関数を登録すると、全組み合わせを試行数ずつ実行します。<br>
+ * 試行のシードは実験のシードから目的関数・試行番号ごとに分割するため、<br>
+ * 同じ目的関数・試行番号ではすべてのアルゴリズムが同じシードを使い、スレッド数によらず同じシードになります。<br>
+ * 試行の結果は終わり次第CSVファイルに1行ずつ追記し、アルゴリズム・目的関数ごとの統計量を逐次更新します。<br>
+ * 経過時間はSystem.nanoTimeで試行ごとに計測します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class ExperimentScheduler {
+
+	/** アルゴリズム名	*/	private final List<String> algorithmNames = new ArrayList<String>();
+	/** アルゴリズムの試行	*/	private final List<ExperimentTrial> algorithms = new ArrayList<ExperimentTrial>();
+	/** 目的関数名	*/	private final List<String> functions = new ArrayList<String>();
+	/** 試行数		*/	private final int numberOfTrials;
+	/** 実験のシード	*/	private final long seed;
+
+	/** 適応度[目的関数][試行][アルゴリズム]	*/	private double[][][] fitness;
+	/** 適応度の統計量[アルゴリズム][目的関数]	*/	private OnlineStatistics[][] statistics;
+	/** 経過時間[ms]の統計量[アルゴリズム][目的関数]	*/	private OnlineStatistics[][] elapsed;
+
+	/**
+	 * コンストラクタ<br>
+	 * @param numberOfTrials アルゴリズム・目的関数ごとの試行数
+	 * @param seed 実験のシード
+	 */
+	public ExperimentScheduler(int numberOfTrials, long seed)
+	{
+		if(numberOfTrials < 1)
+		{
+			Logging.logger.severe("試行数が少なすぎます。");
+			throw new IllegalArgumentException("illegal number of trials: " + numberOfTrials);
+		}
+		this.numberOfTrials = numberOfTrials;
+		this.seed = seed;
+	}
+
+	/**
+	 * 比較するアルゴリズムを追加します。<br>
+	 * 同じアルゴリズムをパラメータを変えて比較する場合は、パラメータごとに名前を変えて追加してください。<br>
+	 * @param name アルゴリズム名(結果ファイルに出力する名前)
+	 * @param trial アルゴリズムの試行
+	 */
+	public void addAlgorithm(String name, ExperimentTrial trial)
+	{
+		algorithmNames.add(name);
+		algorithms.add(trial);
+	}
+
+	/**
+	 * 比較する目的関数を追加します。<br>
+	 * @param nameOfObjectiveFunction 目的関数名
+	 */
+	public void addFunction(String nameOfObjectiveFunction)
+	{
+		functions.add(nameOfObjectiveFunction);
+	}
+
+	/**
+	 * 試行のシードを返します。<br>
+	 * @param function 目的関数の番号
+	 * @param trial 試行番号
+	 * @return シード
+	 */
+	public long getSeed(int function, int trial)
+	{
+		return new RandomStream(seed).split(function).split(trial).getSeed();
+	}
+
+	/**
+	 * 全組み合わせの試行を実行し、すべての試行の終了を待ちます。<br>
+	 * 試行は試行番号・目的関数・アルゴリズムの順に並べて実行するため、どのアルゴリズムの試行も計算の初めから並列に進みます。<br>
+	 * いずれかの試行で例外が発生した場合、その試行の適応度はNaNとし、すべての試行の終了後に最初の例外を投げます。<br>
+	 * @param numberOfThreads スレッド数
+	 * @param resultFile 試行ごとの結果を追記するCSVファイル名
+	 * @param summaryFile アルゴリズム・目的関数ごとの統計量を保存するCSVファイル名(nullなら保存しない)
+	 */
+	public void run(int numberOfThreads, String resultFile, String summaryFile)
+	{
+		final int numberOfAlgorithms = algorithms.size();
+		final int numberOfFunctions = functions.size();
+		fitness = new double[numberOfFunctions][numberOfTrials][numberOfAlgorithms];
+		statistics = new OnlineStatistics[numberOfAlgorithms][numberOfFunctions];
+		elapsed = new OnlineStatistics[numberOfAlgorithms][numberOfFunctions];
+		for(int a=0; a<numberOfAlgorithms; a++)
+		{
+			for(int f=0; f<numberOfFunctions; f++)
+			{
+				statistics[a][f] = new OnlineStatistics();
+				elapsed[a][f] = new OnlineStatistics();
+			}
+		}
+
+		final PrintWriter writer;
+		try {
+			writer = new PrintWriter(new BufferedWriter(new FileWriter(resultFile)));
+		} catch (IOException e) {
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("cannot open result file: " + resultFile, e);
+		}
+		writer.println("algorithm,function,trial,seed,fitness,elapsed[ms]");
+		writer.flush();
+
+		final int total = numberOfAlgorithms * numberOfFunctions * numberOfTrials;
+		final AtomicInteger finished = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for(int t=0; t<numberOfTrials; t++)
+			{
+				for(int f=0; f<numberOfFunctions; f++)
+				{
+					for(int a=0; a<numberOfAlgorithms; a++)
+					{
+						final int trial = t, function = f, algorithm = a;
+						executor.execute(new Runnable() {
+							public void run()
+							{
+								try {
+									execute(algorithm, function, trial, writer);
+								} catch (Throwable e) {
+									error.compareAndSet(null, e);
+									fitness[function][trial][algorithm] = Double.NaN;
+								}
+								int count = finished.incrementAndGet();
+								Logging.logger.info(count + "/" + total + "試行を終えました。");
+							}
+						});
+					}
+				}
+			}
+			executor.shutdown();
+			while(!executor.awaitTermination(1, TimeUnit.MINUTES))
+			{
+				Logging.logger.info(finished.get() + "/" + total + "試行を終えました。");
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			Logging.logger.severe(e.getMessage());
+			throw new IllegalStateException("experiment was interrupted", e);
+		} finally {
+			writer.close();
+		}
+
+		if(summaryFile != null)	saveSummary(summaryFile);
+
+		if(error.get() != null)
+		{
+			Logging.logger.severe("試行中に例外が発生しました。" + error.get().toString());
+			throw new IllegalStateException("trial failed", error.get());
+		}
+	}
+
+	/**
+	 * 1試行を実行し、結果を追記して統計量を更新します。<br>
+	 * @param algorithm アルゴリズムの番号
+	 * @param function 目的関数の番号
+	 * @param trial 試行番号
+	 * @param writer 結果ファイル
+	 */
+	private void execute(int algorithm, int function, int trial, PrintWriter writer)
+	{
+		long trialSeed = getSeed(function, trial);
+		long start = System.nanoTime();
+		double value = algorithms.get(algorithm).run(functions.get(function), trialSeed);
+		double time = (System.nanoTime() - start) / 1.0e6;
+
+		fitness[function][trial][algorithm] = value;
+		statistics[algorithm][function].add(value);
+		elapsed[algorithm][function].add(time);
+
+		synchronized(writer)
+		{
+			writer.println(algorithmNames.get(algorithm) + "," + functions.get(function) + "," + trial + ","
+					+ trialSeed + "," + value + "," + time);
+			writer.flush();	//途中で止めても終えた試行の結果は残す
+		}
+		if(statistics[algorithm][function].getCount() == numberOfTrials)
+		{
+			Logging.logger.info(algorithmNames.get(algorithm) + " / " + functions.get(function) + ": " + statistics[algorithm][function].toString());
+		}
+	}
+
+	/**
+	 * アルゴリズム・目的関数ごとの統計量をCSVファイルに保存します。<br>
+	 * @param summaryFile CSVファイル名
+	 */
+	private void saveSummary(String summaryFile)
+	{
+		try {
+			PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(summaryFile)));
+			writer.println("algorithm,function,count,mean,standard deviation,minimum,maximum,mean elapsed[ms],total elapsed[ms]");
+			for(int a=0; a<algorithms.size(); a++)
+			{
+				for(int f=0; f<functions.size(); f++)
+				{
+					OnlineStatistics s = statistics[a][f];
+					OnlineStatistics e = elapsed[a][f];
+					writer.println(algorithmNames.get(a) + "," + functions.get(f) + "," + s.getCount() + ","
+							+ s.getMean() + "," + s.getStandardDeviation() + "," + s.getMinimum() + "," + s.getMaximum() + ","
+							+ e.getMean() + "," + (e.getMean() * e.getCount()));
+				}
+			}
+			writer.close();
+		} catch (IOException e) {
+			Logging.logger.severe(e.getMessage());
+		}
+	}
+
+	/**
+	 * 試行ごとの適応度を返します。<br>
+	 * @return 適応度[目的関数][試行][アルゴリズム]
+	 */
+	public double[][][] getFitness()	{ return fitness; }
+
+	/**
+	 * 適応度の統計量を返します。<br>
+	 * @param algorithm アルゴリズムの番号
+	 * @param function 目的関数の番号
+	 * @return 統計量
+	 */
+	public OnlineStatistics getStatistics(int algorithm, int function)	{ return statistics[algorithm][function]; }
+
+	/**
+	 * 経過時間[ms]の統計量を返します。<br>
+	 * @param algorithm アルゴリズムの番号
+	 * @param function 目的関数の番号
+	 * @return 統計量
+	 */
+	public OnlineStatistics getElapsed(int algorithm, int function)	{ return elapsed[algorithm][function]; }
+}
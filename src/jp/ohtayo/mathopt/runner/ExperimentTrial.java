@@ -0,0 +1,19 @@
+package jp.ohtayo.mathopt.runner;
+
+/**
+ * 比較実験({@link ExperimentScheduler})の1試行を表す抽象クラスです。<br>
+ * アルゴリズムとそのパラメータを決めて、目的関数とシードを受け取って1回計算します。<br>
+ * 試行は複数のスレッドから同時に呼ばれるため、試行ごとにアルゴリズムのインスタンスを生成してください。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public abstract class ExperimentTrial {
+
+	/**
+	 * 1回計算して、もっともよい適応度を返します。<br>
+	 * @param nameOfObjectiveFunction 目的関数名
+	 * @param seed 試行の乱数のシード
+	 * @return もっともよい適応度
+	 */
+	abstract public double run(String nameOfObjectiveFunction, long seed);
+}
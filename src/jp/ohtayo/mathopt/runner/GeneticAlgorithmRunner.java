@@ -5,6 +5,7 @@ import java.io.File;
 import jp.ohtayo.mathopt.config.ConfigGA;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.mathopt.algorithm.SimpleGeneticAlgorithm;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
 
 /**
  * GAクラスのサンプルプログラム<br>
@@ -30,6 +31,9 @@ public class GeneticAlgorithmRunner {
 				+ "\n  rateOfCrossOver = " 		+ config.rateOfCrossOver
 				+ "\n  rateOfMutation = " 		+ config.rateOfMutation
 				+ "\n  numberOfElite = " 		+ config.numberOfElite
+				+ "\n  evaluation = " + config.evaluation
+				+ "\n  concurrency = " + config.concurrency
+				+ "\n  seed = " + config.seed
 				+ "\n");
 		
 		//入力エラーチェック
@@ -59,18 +63,26 @@ public class GeneticAlgorithmRunner {
 		}
 		
 		//mopsoの計算実行
-		Logging.logger.info("計算を開始します。");
+		long seed = config.getSeed();
+		Logging.logger.info("乱数のシード" + seed + "で計算を開始します。");
 
-		SimpleGeneticAlgorithm.main(
-				Integer.valueOf(config.numberOfBits),
-				Integer.valueOf(config.numberOfVariables),
-				Integer.valueOf(config.numberOfPopulations),
-				Integer.valueOf(config.numberOfIterations),
-				config.nameOfObjectiveFunction,
-				Double.valueOf(config.rateOfCrossOver),
-				Double.valueOf(config.rateOfMutation),
-				Integer.valueOf(config.numberOfElite)
-				);
+		EvaluationExecutor executor = config.createEvaluationExecutor();	//nullなら逐次評価
+		try {
+			SimpleGeneticAlgorithm.main(
+					Integer.valueOf(config.numberOfBits),
+					Integer.valueOf(config.numberOfVariables),
+					Integer.valueOf(config.numberOfPopulations),
+					Integer.valueOf(config.numberOfIterations),
+					config.nameOfObjectiveFunction,
+					Double.valueOf(config.rateOfCrossOver),
+					Double.valueOf(config.rateOfMutation),
+					Integer.valueOf(config.numberOfElite),
+					executor,
+					seed
+					);
+		} finally {
+			if(executor != null)	executor.close();
+		}
 		
 		Logging.logger.info("計算を終了します。");
 	}
@@ -0,0 +1,75 @@
+package jp.ohtayo.mathopt.runner;
+
+import java.util.Arrays;
+
+import jp.ohtayo.mathopt.algorithm.OMOPSO;
+import jp.ohtayo.mathopt.algorithm.OMOPSOIsland;
+import jp.ohtayo.mathopt.algorithm.RCGAIsland;
+import jp.ohtayo.mathopt.algorithm.RemoteIsland;
+import jp.ohtayo.mathopt.algorithm.RemoteIslandModel;
+import jp.ohtayo.mathopt.config.ConfigGA;
+import jp.ohtayo.mathopt.config.ConfigMOPSO;
+import jp.ohtayo.mathopt.core.SolutionCodec;
+import jp.ohtayo.commons.log.Logging;
+
+/**
+ * {@link RemoteIslandModel}から起動される島のプロセスのメインクラス<br>
+ * RemoteIslandModelの渡す引数に続けて、アルゴリズム名(omopso/rcga)と設定ファイル名を指定します。<br>
+ * omopsoならMOPSOの設定ファイル、rcgaならGAの設定ファイルから島のパラメータを読み込みます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class IslandProcess {
+
+	/** RemoteIslandModelの渡す引数の数	*/	private static final int NUMBER_OF_ARGUMENTS = 9;
+
+	public static void main(String[] args) {
+
+		if(args.length < NUMBER_OF_ARGUMENTS+2)
+		{
+			Logging.logger.severe("引数が足りません。" + Arrays.toString(args));
+			System.exit(1);
+		}
+		String algorithm = args[NUMBER_OF_ARGUMENTS];
+		String fileName = args[NUMBER_OF_ARGUMENTS+1];
+
+		try{
+			if("omopso".equals(algorithm))
+			{
+				ConfigMOPSO config = new ConfigMOPSO();
+				config.read(fileName);
+				OMOPSO mopso = new OMOPSO();
+				if("crowding".equals(config.density))	mopso.setDensity(OMOPSO.DENSITY_CROWDING);	//境界ランクを混雑距離で選択
+				OMOPSOIsland island = new OMOPSOIsland(mopso,
+						Integer.valueOf(config.numberOfVariables),
+						Integer.valueOf(config.numberOfParticles),
+						Integer.valueOf(config.numberOfObjectives),
+						String.valueOf(config.nameOfObjectiveFunction),
+						Double.valueOf(config.epsilon),
+						Double.valueOf(config.alpha));
+				RemoteIsland.run(island, SolutionCodec.PARTICLE, args);
+			}
+			else if("rcga".equals(algorithm))
+			{
+				ConfigGA config = new ConfigGA();
+				config.read(fileName);
+				RCGAIsland island = new RCGAIsland(
+						Integer.valueOf(config.numberOfVariables),
+						Integer.valueOf(config.numberOfPopulations),
+						config.nameOfObjectiveFunction,
+						Double.valueOf(config.rateOfCrossOver),
+						Double.valueOf(config.rateOfMutation),
+						Integer.valueOf(config.numberOfElite));
+				RemoteIsland.run(island, SolutionCodec.INDIVIDUAL, args);
+			}
+			else
+			{
+				Logging.logger.severe("アルゴリズム名が異常です。" + algorithm);
+				System.exit(1);
+			}
+		}catch(Exception e){
+			Logging.logger.severe(e.toString() + "\nプログラムを終了します。");
+			System.exit(1);
+		}
+	}
+}
@@ -13,6 +13,11 @@ import jp.ohtayo.commons.math.Matrix;
 
 /**
  * 多数の数理最適化手法，メタヒューリスティクスの比較するプログラム例です．
+ * アルゴリズム×目的関数×試行を{@link ExperimentScheduler}でCPUコア数のスレッドに割り振って並列に実行します．
+ * 試行ごとの結果はexperiment.csvに終わり次第追記し，統計量はsummary.csvに保存します．
+ * 目的関数ごとのtest目的関数名.csvは従来どおり11行9列で，0～9行目が試行ごとの適応度，10行目が合計経過時間[ms]です．
+ * 列はDownhillSimplex, QuasiNewton, (未使用), SimulatedAnnealing, SimpleGeneticAlgorithm, RCGA, JGGUNDX, PSO, OPSOの順です．
+ * 試行は同時に実行するため，PSO・OPSOは世代ごとのグローバルベストを保存しません．
  *
  * @author ohtayo (ohta.yoshihiro@outlook.jp)
  */
@@ -23,82 +28,77 @@ public class MathematicalProgrammingRunner {
 		objective[1] = "jp.ohtayo.mathopt.function.Griewank";
 		objective[2] = "jp.ohtayo.mathopt.function.Rosenbrock";
 		objective[3] = "jp.ohtayo.mathopt.function.Rastrigin";
-		int length = 4;
-		int repeat = 1000;
-		int population = 400;
-		QuasiNewton newton;
-		PSO pso;
-		OPSO opso;
-		double fitness;
-	
-		double alpha = 1, beta=0.5, ganma=2;
-		long start, end;
-		Matrix vector = new Matrix(11,9);
-		
-		for(int o=0; o<objective.length; o++){
-			
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				fitness = DownhillSimplex.main(population, length, repeat, objective[o], alpha, beta, ganma);
-				vector.set(i,0, fitness);
+		final int length = 4;
+		final int repeat = 1000;
+		final int population = 400;
+		final double alpha = 1, beta=0.5, ganma=2;
+		int trials = 10;
+		long seed = 1L;
+
+		ExperimentScheduler scheduler = new ExperimentScheduler(trials, seed);
+		for(int o=0; o<objective.length; o++)	scheduler.addFunction(objective[o]);
+
+		scheduler.addAlgorithm("DownhillSimplex", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				return DownhillSimplex.main(population, length, repeat, function, alpha, beta, ganma);
+			}
+		});
+		scheduler.addAlgorithm("QuasiNewton", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				return new QuasiNewton(length, 10000, 1e-9, 1.0, function).solve();
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 0, end-start);
-			
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				newton = new QuasiNewton(length, 10000, 1e-9, 1.0, objective[o] );
-				fitness = newton.solve();
-				vector.set(i,1, fitness);
+		});
+		scheduler.addAlgorithm("SimulatedAnnealing", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				return SimulatedAnnealing.main(length, 1000, function, 1000, 100, 0.001, 0.98, seed);
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 2, end-start);
-			
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				fitness = SimulatedAnnealing.main(length, 1000, objective[o], 1000, 100, 0.001, 0.98);
-				vector.set(i,3, fitness);
+		});
+		scheduler.addAlgorithm("SimpleGeneticAlgorithm", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				return SimpleGeneticAlgorithm.main(10, length, population, repeat, function, 1, 0.01, 1, null, seed);
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 3, end-start);
-			
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				vector.set(i,4, SimpleGeneticAlgorithm.main(10, length, population , repeat, objective[o] ,1, 0.01, 1 ));
+		});
+		scheduler.addAlgorithm("RCGA", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				return RCGA.main(length, population, repeat, function, 1, 0.01, 1, null, seed);
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 4, end-start);
-			
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				vector.set(i,5, RCGA.main(length, population, repeat, objective[o],1, 0.01, 1 ));
+		});
+		scheduler.addAlgorithm("JGGUNDX", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				return JGGUNDX.main(length, repeat, function, 0.01, null, seed);
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 5, end-start);
-			
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				vector.set(i,6, JGGUNDX.main(length, repeat, objective[o], 0.01));
+		});
+		scheduler.addAlgorithm("PSO", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				PSO pso = new PSO();
+				pso.setSeed(seed);
+				pso.setSaving(false);
+				return pso.main(length, population, repeat, function, 0.3, 1.75, 1.75);
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 6, end-start);
+		});
+		scheduler.addAlgorithm("OPSO", new ExperimentTrial() {
+			public double run(String function, long seed) {
+				OPSO opso = new OPSO();
+				opso.setSeed(seed);
+				opso.setSaving(false);
+				return opso.main(length, population, repeat, function);
+			}
+		});
+
+		scheduler.run(Runtime.getRuntime().availableProcessors(), "experiment.csv", "summary.csv");
 
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				pso = new PSO();
-				vector.set(i,7, pso.main(length, population, repeat, objective[o], 0.3, 1.75, 1.75));
+		//目的関数ごとに、行を試行・列をアルゴリズムとし、最終行に合計経過時間を置いた表を保存する(列の並びは従来と同じ)
+		final int[] column = {0, 1, 3, 4, 5, 6, 7, 8};
+		double[][][] fitness = scheduler.getFitness();
+		for(int o=0; o<objective.length; o++){
+			Matrix vector = new Matrix(trials+1, 9);
+			for(int i=0; i<trials; i++){
+				for(int a=0; a<column.length; a++)	vector.set(i, column[a], fitness[o][i][a]);
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 7, end-start);
-	
-			start = System.currentTimeMillis();
-			for(int i=0; i<10; i++){
-				opso = new OPSO();
-				vector.set(i,8, opso.main(length, population, repeat, objective[o]));
+			for(int a=0; a<column.length; a++){
+				OnlineStatistics elapsed = scheduler.getElapsed(a, o);
+				vector.set(trials, column[a], elapsed.getMean()*elapsed.getCount());
 			}
-			end = System.currentTimeMillis();
-			vector.set(10, 8, end-start);
-	
 			Csv.write("test"+objective[o]+".csv", vector.get(),"");
 			System.out.println(vector.toString());
 		}
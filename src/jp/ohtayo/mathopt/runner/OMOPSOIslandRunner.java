@@ -0,0 +1,108 @@
+package jp.ohtayo.mathopt.runner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.ohtayo.mathopt.config.ConfigMOPSO;
+import jp.ohtayo.mathopt.algorithm.IslandModel;
+import jp.ohtayo.mathopt.algorithm.OMOPSO;
+import jp.ohtayo.mathopt.algorithm.OMOPSOIsland;
+import jp.ohtayo.mathopt.core.Particle;
+import jp.ohtayo.mathopt.core.Rank;
+import jp.ohtayo.mathopt.core.Swarm;
+import jp.ohtayo.commons.log.Logging;
+
+/**
+ * 島モデルでMOPSOを計算するサンプルプログラム<br>
+ * 島ごとにnumberOfParticlesの粒子群を計算し、全島のグローバルベストの非劣解を結果として保存します。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class OMOPSOIslandRunner {
+
+	public static void main(String[] args) {
+
+		ConfigMOPSO config = new ConfigMOPSO();
+		try{
+			//設定ファイル読み込み
+			config.read(".\\xml\\mopso.config.xml");
+		}catch(Exception e){
+			Logging.logger.severe(e.toString() + "\nプログラムを終了します。");
+			return;
+		}
+		Logging.logger.info("以下のパラメータを読み込みました。\n"
+				+ "\n  numberOfParticles  = " + config.numberOfParticles
+				+ "\n  numberOfVariables  = " + config.numberOfVariables
+				+ "\n  numberOfIterations = " + config.numberOfIterations
+				+ "\n  numberOfObjectives = " + config.numberOfObjectives
+				+ "\n  nameOfObjectiveFunction = " + config.nameOfObjectiveFunction
+				+ "\n  epsilon = " + String.valueOf(config.epsilon)
+				+ "\n  alpha = " + String.valueOf(config.alpha)
+				+ "\n  density = " + config.density
+				+ "\n  numberOfIslands = " + config.numberOfIslands
+				+ "\n  migrationTopology = " + config.migrationTopology
+				+ "\n  migrationInterval = " + config.migrationInterval
+				+ "\n  numberOfMigrants = " + config.numberOfMigrants
+				+ "\n  migrationPolicy = " + config.migrationPolicy
+				+ "\n  seed = " + config.seed
+				+ "\n");
+
+		//入力エラーチェック
+		try{
+			config.inputErrorCheck(
+					Integer.valueOf(config.numberOfVariables),
+					Integer.valueOf(config.numberOfParticles),
+					Integer.valueOf(config.numberOfIterations),
+					Integer.valueOf(config.numberOfObjectives),
+					Integer.valueOf(config.numberOfConstraints),
+					String.valueOf(config.nameOfObjectiveFunction),
+					String.valueOf(config.filenameOfInitialSolutions),
+					Double.valueOf(config.epsilon),
+					Double.valueOf(config.alpha)
+					);
+		}catch(Exception e){
+			Logging.logger.severe("コンフィグファイル(mopso.config.xml)の内容を見なおしてください。");
+			Logging.logger.info("プログラムを終了します。");
+			return;
+		}
+
+
+		//resultフォルダがなければ作成
+		File dir = new File("./result");
+		if(dir.exists() == false){
+			dir.mkdir();
+			Logging.logger.info("resultフォルダを作成しました。");
+		}
+
+		//島モデルの計算実行
+		long seed = config.getSeed();
+		Logging.logger.info("乱数のシード" + seed + "で計算を開始します。");
+
+		int numberOfIslands = config.getNumberOfIslands();
+		List<OMOPSOIsland> islands = new ArrayList<OMOPSOIsland>(numberOfIslands);
+		for(int i=0; i<numberOfIslands; i++)
+		{
+			OMOPSO mopso = new OMOPSO();	//島ごとに別のインスタンス
+			if("crowding".equals(config.density))	mopso.setDensity(OMOPSO.DENSITY_CROWDING);	//境界ランクを混雑距離で選択
+			islands.add(new OMOPSOIsland(mopso,
+					Integer.valueOf(config.numberOfVariables),
+					Integer.valueOf(config.numberOfParticles),
+					Integer.valueOf(config.numberOfObjectives),
+					String.valueOf(config.nameOfObjectiveFunction),
+					Double.valueOf(config.epsilon),
+					Double.valueOf(config.alpha)));
+		}
+		IslandModel<Particle> model = config.createIslandModel();
+		model.run(islands, Integer.valueOf(config.numberOfIterations), seed);
+
+		//全島のグローバルベストからランク1の粒子を取り出して保存
+		Swarm merged = new Swarm(0);
+		for(int i=0; i<numberOfIslands; i++)	merged = Swarm.add(merged, islands.get(i).getGlobalBest());
+		int[] rank = Rank.ranking(merged.getFitness(), 0.0, 0.0);
+		Swarm front = Swarm.picup(merged, Rank.rankIndex(rank, 1));
+		new OMOPSO().save(front, Integer.valueOf(config.numberOfIterations));
+
+		Logging.logger.info("計算を終了します。");
+	}
+}
@@ -1,8 +1,10 @@
 package jp.ohtayo.mathopt.runner;
 
 import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.mathopt.algorithm.OMOPSO;
 import jp.ohtayo.mathopt.algorithm.OMOPSOMultiThreadConstraint;
 import jp.ohtayo.mathopt.config.ConfigMOPSO;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
 
 import java.io.File;
 
@@ -33,6 +35,13 @@ public class OMOPSOMultiThreadRunner {
 				+ "\n  filenameOfInitialSolutions = " + config.filenameOfInitialSolutions
 				+ "\n  epsilon = " + String.valueOf(config.epsilon)
 				+ "\n  alpha = " + String.valueOf(config.alpha)
+				+ "\n  density = " + config.density
+				+ "\n  incrementalRanking = " + config.incrementalRanking
+				+ "\n  numberOfThreads = " + config.numberOfThreads
+				+ "\n  evaluation = " + config.evaluation
+				+ "\n  concurrency = " + config.concurrency
+				+ "\n  pipelined = " + config.pipelined
+				+ "\n  seed = " + config.seed
 				+ "\n");
 
 		//入力エラーチェック
@@ -63,24 +72,35 @@ public class OMOPSOMultiThreadRunner {
 		}
 
 		//mopsoの計算実行
-		Logging.logger.info("計算を開始します。");
+		long seed = config.getSeed();
+		Logging.logger.info("乱数のシード" + seed + "で計算を開始します。");
 
-		int numberOfThreads = 8;
+		int numberOfThreads = config.getNumberOfThreads();
 
 		OMOPSOMultiThreadConstraint mopso = new OMOPSOMultiThreadConstraint();
+		if("crowding".equals(config.density))	mopso.setDensity(OMOPSO.DENSITY_CROWDING);	//境界ランクを混雑距離で選択
+		mopso.setIncrementalRanking(Boolean.valueOf(config.incrementalRanking));	//優越関係を世代をまたいで保持
+		EvaluationExecutor executor = config.createEvaluationExecutor();	//nullならnumberOfThreadsのスレッドで評価
+		try {
+			mopso.setEvaluationExecutor(executor);
+			mopso.setSeed(seed);
+			mopso.setPipelined(Boolean.valueOf(config.pipelined));	//評価中に前の世代の選択・保存を行う
 
-		mopso.main(
-				Integer.valueOf(config.numberOfVariables),
-				Integer.valueOf(config.numberOfParticles),
-				Integer.valueOf(config.numberOfIterations),
-				Integer.valueOf(config.numberOfObjectives),
-				String.valueOf(config.nameOfObjectiveFunction),
-				Integer.valueOf(config.numberOfConstraints),
-				Double.valueOf(config.epsilon),
-				Double.valueOf(config.alpha),
-				numberOfThreads,
-				config.filenameOfInitialSolutions
-				);
+			mopso.main(
+					Integer.valueOf(config.numberOfVariables),
+					Integer.valueOf(config.numberOfParticles),
+					Integer.valueOf(config.numberOfIterations),
+					Integer.valueOf(config.numberOfObjectives),
+					String.valueOf(config.nameOfObjectiveFunction),
+					Integer.valueOf(config.numberOfConstraints),
+					Double.valueOf(config.epsilon),
+					Double.valueOf(config.alpha),
+					numberOfThreads,
+					config.filenameOfInitialSolutions
+					);
+		} finally {
+			if(executor != null)	executor.close();
+		}
 
 		Logging.logger.info("計算を終了します。");
 	}
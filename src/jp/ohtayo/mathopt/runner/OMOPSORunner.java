@@ -3,7 +3,13 @@ package jp.ohtayo.mathopt.runner;
 import java.io.File;
 
 import jp.ohtayo.mathopt.config.ConfigMOPSO;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
+import jp.ohtayo.mathopt.algorithm.AsynchronousOMOPSO;
 import jp.ohtayo.mathopt.algorithm.OMOPSO;
+import jp.ohtayo.mathopt.core.Archive;
+import jp.ohtayo.mathopt.core.EpsilonBoxArchive;
+import jp.ohtayo.mathopt.core.NDTreeArchive;
+import jp.ohtayo.mathopt.function.ObjectiveFunction;
 import jp.ohtayo.commons.log.Logging;
 
 /**
@@ -33,6 +39,15 @@ public class OMOPSORunner {
 				+ "\n  filenameOfInitialSolutions = " + config.filenameOfInitialSolutions
 				+ "\n  epsilon = " + String.valueOf(config.epsilon)
 				+ "\n  alpha = " + String.valueOf(config.alpha)
+				+ "\n  archive = " + config.archive
+				+ "\n  density = " + config.density
+				+ "\n  incrementalRanking = " + config.incrementalRanking
+				+ "\n  evaluation = " + config.evaluation
+				+ "\n  concurrency = " + config.concurrency
+				+ "\n  asynchronous = " + config.asynchronous
+				+ "\n  pipelined = " + config.pipelined
+				+ "\n  numberOfThreads = " + config.numberOfThreads
+				+ "\n  seed = " + config.seed
 				+ "\n");
 
 		//入力エラーチェック
@@ -63,18 +78,83 @@ public class OMOPSORunner {
 		}
 
 		//mopsoの計算実行
-		Logging.logger.info("計算を開始します。");
+		long seed = config.getSeed();
+		Logging.logger.info("乱数のシード" + seed + "で計算を開始します。");
 
 		OMOPSO mopso = new OMOPSO();
-		mopso.main(
-				Integer.valueOf(config.numberOfVariables),
-				Integer.valueOf(config.numberOfParticles),
-				Integer.valueOf(config.numberOfIterations),
-				Integer.valueOf(config.numberOfObjectives),
-				String.valueOf(config.nameOfObjectiveFunction),
-				Double.valueOf(config.epsilon),
-				Double.valueOf(config.alpha)
-				);
+		if("crowding".equals(config.density))	mopso.setDensity(OMOPSO.DENSITY_CROWDING);	//境界ランクを混雑距離で選択
+		mopso.setIncrementalRanking(Boolean.valueOf(config.incrementalRanking));	//優越関係を世代をまたいで保持
+		EvaluationExecutor executor = config.createEvaluationExecutor();	//nullなら逐次評価
+		try {
+			mopso.setEvaluationExecutor(executor);
+			mopso.setSeed(seed);
+			mopso.setPipelined(Boolean.valueOf(config.pipelined));	//評価中に前の世代の選択・保存を行う
+			if(Boolean.valueOf(config.asynchronous)){
+				//粒子ごとに非同期に計算(アーカイブ方式が空欄ならND-treeアーカイブ)
+				Archive archive;
+				if("epsilonbox".equals(config.archive)){
+					archive = new EpsilonBoxArchive(
+							Double.valueOf(config.epsilon),
+							(double[])ObjectiveFunction.getMaxValue(config.nameOfObjectiveFunction),
+							(double[])ObjectiveFunction.getMinValue(config.nameOfObjectiveFunction));
+				}else{
+					archive = new NDTreeArchive(
+							Integer.valueOf(config.numberOfParticles),
+							(double[])ObjectiveFunction.getMaxValue(config.nameOfObjectiveFunction),
+							(double[])ObjectiveFunction.getMinValue(config.nameOfObjectiveFunction));
+				}
+				new AsynchronousOMOPSO().main(
+						Integer.valueOf(config.numberOfVariables),
+						Integer.valueOf(config.numberOfParticles),
+						Integer.valueOf(config.numberOfIterations),
+						Integer.valueOf(config.numberOfObjectives),
+						String.valueOf(config.nameOfObjectiveFunction),
+						archive,
+						config.getNumberOfThreads(),
+						seed
+						);
+			}else if("ndtree".equals(config.archive)){
+				//ND-treeアーカイブでグローバルベストを管理
+				NDTreeArchive archive = new NDTreeArchive(
+						Integer.valueOf(config.numberOfParticles),
+						(double[])ObjectiveFunction.getMaxValue(config.nameOfObjectiveFunction),
+						(double[])ObjectiveFunction.getMinValue(config.nameOfObjectiveFunction));
+				mopso.main(
+						Integer.valueOf(config.numberOfVariables),
+						Integer.valueOf(config.numberOfParticles),
+						Integer.valueOf(config.numberOfIterations),
+						Integer.valueOf(config.numberOfObjectives),
+						String.valueOf(config.nameOfObjectiveFunction),
+						archive
+						);
+			}else if("epsilonbox".equals(config.archive)){
+				//ε-boxアーカイブでグローバルベストを管理(boxの大きさはε値)
+				EpsilonBoxArchive archive = new EpsilonBoxArchive(
+						Double.valueOf(config.epsilon),
+						(double[])ObjectiveFunction.getMaxValue(config.nameOfObjectiveFunction),
+						(double[])ObjectiveFunction.getMinValue(config.nameOfObjectiveFunction));
+				mopso.main(
+						Integer.valueOf(config.numberOfVariables),
+						Integer.valueOf(config.numberOfParticles),
+						Integer.valueOf(config.numberOfIterations),
+						Integer.valueOf(config.numberOfObjectives),
+						String.valueOf(config.nameOfObjectiveFunction),
+						archive
+						);
+			}else{
+				mopso.main(
+						Integer.valueOf(config.numberOfVariables),
+						Integer.valueOf(config.numberOfParticles),
+						Integer.valueOf(config.numberOfIterations),
+						Integer.valueOf(config.numberOfObjectives),
+						String.valueOf(config.nameOfObjectiveFunction),
+						Double.valueOf(config.epsilon),
+						Double.valueOf(config.alpha)
+						);
+			}
+		} finally {
+			if(executor != null)	executor.close();
+		}
 
 		Logging.logger.info("計算を終了します。");
 	}
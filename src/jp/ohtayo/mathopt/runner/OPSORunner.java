@@ -3,6 +3,7 @@ package jp.ohtayo.mathopt.runner;
 import jp.ohtayo.commons.log.Logging;
 import jp.ohtayo.mathopt.algorithm.OPSO;
 import jp.ohtayo.mathopt.config.ConfigPSO;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
 
 import java.io.File;
 
@@ -31,6 +32,11 @@ public class OPSORunner {
 				+ "\n  w = " + config.weight
 				+ "\n  c1 = " + config.constant1
 				+ "\n  c2 = " + config.constant2
+				+ "\n  evaluation = " + config.evaluation
+				+ "\n  concurrency = " + config.concurrency
+				+ "\n  parallel = " + config.parallel
+				+ "\n  numberOfThreads = " + config.numberOfThreads
+				+ "\n  seed = " + config.seed
 				+ "\n");
 
 		//入力エラーチェック
@@ -59,15 +65,24 @@ public class OPSORunner {
 		}
 
 		//mopsoの計算実行
-		Logging.logger.info("計算を開始します。");
+		long seed = config.getSeed();
+		Logging.logger.info("乱数のシード" + seed + "で計算を開始します。");
 
 		OPSO opso = new OPSO();
-		opso.main(
-				Integer.valueOf(config.numberOfVariables),
-				Integer.valueOf(config.numberOfParticles),
-				Integer.valueOf(config.numberOfIterations),
-				config.nameOfObjectiveFunction
-				);
+		EvaluationExecutor executor = config.createEvaluationExecutor();	//nullなら逐次評価
+		try {
+			opso.setEvaluationExecutor(executor);
+			opso.setSeed(seed);
+			opso.setParallel(config.getNumberOfThreads(), config.getPropagation());	//0スレッドなら並列計算しない
+			opso.main(
+					Integer.valueOf(config.numberOfVariables),
+					Integer.valueOf(config.numberOfParticles),
+					Integer.valueOf(config.numberOfIterations),
+					config.nameOfObjectiveFunction
+					);
+		} finally {
+			if(executor != null)	executor.close();
+		}
 		
 		Logging.logger.info("計算を終了します。");
 	}
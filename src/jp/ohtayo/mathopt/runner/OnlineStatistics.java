@@ -0,0 +1,70 @@
+package jp.ohtayo.mathopt.runner;
+
+/**
+ * 値を1つずつ追加しながら平均・標準偏差・最小値・最大値を計算するクラスです。<br>
+ * 値を保持せず、平均と分散はWelfordの方法で更新します。<br>
+ * 複数のスレッドから同時に値を追加できます。<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class OnlineStatistics {
+
+	/** 値の数		*/	private long count = 0;
+	/** 平均		*/	private double mean = 0.0;
+	/** 平均との差の二乗和	*/	private double sumOfSquares = 0.0;
+	/** 最小値		*/	private double minimum = Double.POSITIVE_INFINITY;
+	/** 最大値		*/	private double maximum = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * 値を追加します。<br>
+	 * @param value 値
+	 */
+	public synchronized void add(double value)
+	{
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		sumOfSquares += delta * (value - mean);
+		if(value < minimum)	minimum = value;
+		if(value > maximum)	maximum = value;
+	}
+
+	/**
+	 * 値の数を返します。<br>
+	 * @return 値の数
+	 */
+	public synchronized long getCount()	{ return count; }
+
+	/**
+	 * 平均を返します。<br>
+	 * @return 平均(値がなければNaN)
+	 */
+	public synchronized double getMean()	{ return (count == 0) ? Double.NaN : mean; }
+
+	/**
+	 * 標本標準偏差を返します。<br>
+	 * @return 標準偏差(値が2つ未満ならNaN)
+	 */
+	public synchronized double getStandardDeviation()	{ return (count < 2) ? Double.NaN : Math.sqrt(sumOfSquares / (count-1)); }
+
+	/**
+	 * 最小値を返します。<br>
+	 * @return 最小値(値がなければNaN)
+	 */
+	public synchronized double getMinimum()	{ return (count == 0) ? Double.NaN : minimum; }
+
+	/**
+	 * 最大値を返します。<br>
+	 * @return 最大値(値がなければNaN)
+	 */
+	public synchronized double getMaximum()	{ return (count == 0) ? Double.NaN : maximum; }
+
+	/**
+	 * 統計量を文字列として返します。<br>
+	 * @return 統計量の文字列
+	 */
+	public synchronized String toString()
+	{
+		return "n=" + count + " mean=" + getMean() + " sd=" + getStandardDeviation() + " min=" + getMinimum() + " max=" + getMaximum();
+	}
+}
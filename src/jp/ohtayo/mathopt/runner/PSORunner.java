@@ -4,6 +4,7 @@ import java.io.File;
 
 import jp.ohtayo.mathopt.config.ConfigPSO;
 import jp.ohtayo.mathopt.algorithm.PSO;
+import jp.ohtayo.mathopt.core.EvaluationExecutor;
 import jp.ohtayo.commons.log.Logging;
 
 /**
@@ -31,6 +32,11 @@ public class PSORunner {
 				+ "\n  w = " + config.weight
 				+ "\n  c1 = " + config.constant1
 				+ "\n  c2 = " + config.constant2
+				+ "\n  evaluation = " + config.evaluation
+				+ "\n  concurrency = " + config.concurrency
+				+ "\n  parallel = " + config.parallel
+				+ "\n  numberOfThreads = " + config.numberOfThreads
+				+ "\n  seed = " + config.seed
 				+ "\n");
 		
 		//入力エラーチェック
@@ -59,18 +65,27 @@ public class PSORunner {
 		}
 		
 		//mopsoの計算実行
-		Logging.logger.info("計算を開始します。");
+		long seed = config.getSeed();
+		Logging.logger.info("乱数のシード" + seed + "で計算を開始します。");
 
 		PSO pso = new PSO();
-		pso.main(
-				Integer.valueOf(config.numberOfVariables),
-				Integer.valueOf(config.numberOfParticles),
-				Integer.valueOf(config.numberOfIterations),
-				config.nameOfObjectiveFunction,
-				Double.valueOf(config.weight),
-				Double.valueOf(config.constant1),
-				Double.valueOf(config.constant2)
-				);
+		EvaluationExecutor executor = config.createEvaluationExecutor();	//nullなら逐次評価
+		try {
+			pso.setEvaluationExecutor(executor);
+			pso.setSeed(seed);
+			pso.setParallel(config.getNumberOfThreads(), config.getPropagation());	//0スレッドなら並列計算しない
+			pso.main(
+					Integer.valueOf(config.numberOfVariables),
+					Integer.valueOf(config.numberOfParticles),
+					Integer.valueOf(config.numberOfIterations),
+					config.nameOfObjectiveFunction,
+					Double.valueOf(config.weight),
+					Double.valueOf(config.constant1),
+					Double.valueOf(config.constant2)
+					);
+		} finally {
+			if(executor != null)	executor.close();
+		}
 		
 		Logging.logger.info("計算を終了します。");
 	}
@@ -0,0 +1,103 @@
+package jp.ohtayo.mathopt.runner;
+
+import java.io.File;
+
+import jp.ohtayo.commons.io.Csv;
+import jp.ohtayo.commons.log.Logging;
+import jp.ohtayo.commons.random.Random;
+import jp.ohtayo.mathopt.core.Rank;
+
+/**
+ * ランク付けの計算時間を比較するベンチマークプログラムです。<br>
+ * 解ごとに1組ずつ優越判定する従来の方法と、まとめて優越判定するRank.ranking、並列計算するRank.parallelRankingを<br>
+ * 解の数N=1,000～50,000、目的数M=2～10で計測し、結果をCSVファイルに保存します。<br>
+ * 引数に解の数を並べると、計測する解の数を変更できます。(例: 1000 5000)<br>
+ *
+ * @author ohtayo (ohta.yoshihiro@outlook.jp)
+ */
+public class RankBenchmarkRunner {
+
+	/** 従来の方法を計測する解の数の上限(これより大きければ計測しない)	*/	private static final int PAIRWISE_LIMIT = 20000;
+
+	public static void main(String[] args) {
+
+		int[] size = {1000, 5000, 10000, 20000, 50000};
+		if(args.length > 0)
+		{
+			size = new int[args.length];
+			for(int i=0; i<args.length; i++)	size[i] = Integer.valueOf(args[i]);
+		}
+		int[] objective = {2, 3, 5, 10};
+
+		//列: N, M, 従来の方法[ms], ranking[ms], parallelRanking[ms]
+		double[][] result = new double[size.length*objective.length][5];
+		Random random = new Random(20190101L);
+		int row = 0;
+		for(int n=0; n<size.length; n++)
+		{
+			for(int m=0; m<objective.length; m++)
+			{
+				double[][] fitness = new double[size[n]][objective[m]];
+				for(int i=0; i<fitness.length; i++)
+					for(int o=0; o<objective[m]; o++)	fitness[i][o] = random.nextDouble();
+
+				//JITのための予備実行
+				Rank.ranking(fitness, 0.0, 0.0);
+
+				long start, end;
+				result[row][0] = size[n];
+				result[row][1] = objective[m];
+
+				//解ごとに1組ずつ判定する従来の方法
+				result[row][2] = Double.NaN;
+				if(size[n] <= PAIRWISE_LIMIT)
+				{
+					start = System.currentTimeMillis();
+					pairwiseRanking(fitness);
+					end = System.currentTimeMillis();
+					result[row][2] = end-start;
+				}
+
+				start = System.currentTimeMillis();
+				Rank.ranking(fitness, 0.0, 0.0);
+				end = System.currentTimeMillis();
+				result[row][3] = end-start;
+
+				start = System.currentTimeMillis();
+				Rank.parallelRanking(fitness, 0.0, 0.0);
+				end = System.currentTimeMillis();
+				result[row][4] = end-start;
+
+				Logging.logger.info("N=" + size[n] + ", M=" + objective[m]
+						+ ", pairwise=" + result[row][2] + "ms"
+						+ ", ranking=" + result[row][3] + "ms"
+						+ ", parallelRanking=" + result[row][4] + "ms");
+				row++;
+			}
+		}
+		//resultフォルダがなければ作成
+		File dir = new File("./result");
+		if(dir.exists() == false){
+			dir.mkdir();
+			Logging.logger.info("resultフォルダを作成しました。");
+		}
+		Csv.write("./result/rankBenchmark.csv", result, "N,M,pairwise[ms],ranking[ms],parallelRanking[ms]");
+	}
+
+	/**
+	 * 解の組ごとにRank.dominatedで優越判定してランク付けします。(比較用)<br>
+	 * @param fitness 適応度行列
+	 * @return 解のランク配列
+	 */
+	private static int[] pairwiseRanking(double[][] fitness)
+	{
+		int[] number = new int[fitness.length];
+		for(int i=0; i<fitness.length; i++){
+			for(int j=0; j<fitness.length; j++){
+				if(i!=j && Rank.dominated(fitness[j], fitness[i]))	number[i] +=1;
+			}
+		}
+		for(int i=0; i<number.length; i++)	number[i] += 1;
+		return number;
+	}
+}